@@ -0,0 +1,108 @@
+package com.egzosn.infrastructure.benchmarks;
+
+import com.egzosn.infrastructure.database.jdbc.annotations.Column;
+import com.egzosn.infrastructure.database.jdbc.annotations.GeneratedValue;
+import com.egzosn.infrastructure.database.jdbc.annotations.Id;
+import com.egzosn.infrastructure.database.jdbc.annotations.Table;
+import com.egzosn.infrastructure.database.jdbc.id.GenerationType;
+
+import java.math.BigDecimal;
+import java.util.Date;
+
+/**
+ * 基准测试使用的订单实体，字段类型覆盖基本类型与常用对象类型
+ */
+@Table(name = "bench_order")
+public class BenchOrder {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.AUTO)
+    private Long id;
+    @Column(name = "order_no")
+    private String orderNo;
+    @Column(name = "user_id")
+    private long userId;
+    private int status;
+    private boolean paid;
+    private BigDecimal amount;
+    private String subject;
+    @Column(name = "create_time")
+    private Date createTime;
+
+    public BenchOrder() {
+    }
+
+    public BenchOrder(int i) {
+        this.orderNo = "NO" + (1000000 + i);
+        this.userId = 10000L + i % 97;
+        this.status = i % 5;
+        this.paid = i % 2 == 0;
+        this.amount = BigDecimal.valueOf(i % 10000, 2);
+        this.subject = "订单" + i;
+        this.createTime = new Date(1513296000000L + i * 1000L);
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getOrderNo() {
+        return orderNo;
+    }
+
+    public void setOrderNo(String orderNo) {
+        this.orderNo = orderNo;
+    }
+
+    public long getUserId() {
+        return userId;
+    }
+
+    public void setUserId(long userId) {
+        this.userId = userId;
+    }
+
+    public int getStatus() {
+        return status;
+    }
+
+    public void setStatus(int status) {
+        this.status = status;
+    }
+
+    public boolean isPaid() {
+        return paid;
+    }
+
+    public void setPaid(boolean paid) {
+        this.paid = paid;
+    }
+
+    public BigDecimal getAmount() {
+        return amount;
+    }
+
+    public void setAmount(BigDecimal amount) {
+        this.amount = amount;
+    }
+
+    public String getSubject() {
+        return subject;
+    }
+
+    public void setSubject(String subject) {
+        this.subject = subject;
+    }
+
+    public Date getCreateTime() {
+        return createTime;
+    }
+
+    public void setCreateTime(Date createTime) {
+        this.createTime = createTime;
+    }
+}
@@ -0,0 +1,85 @@
+package com.egzosn.infrastructure.benchmarks;
+
+import com.egzosn.infrastructure.database.jdbc.Column;
+import com.egzosn.infrastructure.database.jdbc.EntityMetadataRegistry;
+import com.egzosn.infrastructure.database.jdbc.SingleTableEntityPersister;
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.reflect.Method;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 单个实体插入参数的取值与绑定开销
+ * <p>
+ * reflect* 为逐列 {@link Method#invoke(Object, Object...)} 取值再 setObject 的原有方式，
+ * accessor* 为 {@link Column} 预先绑定的访问器，int/long/boolean 字段不装箱直接 setInt/setLong/setBoolean；
+ * 绑定使用内存H2数据库的 {@link PreparedStatement}，只设置参数不执行
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+public class EntityBindBenchmark {
+
+    private SingleTableEntityPersister<BenchOrder> persister;
+    private Method[] readMethods;
+    private BenchOrder entity;
+    private Connection connection;
+    private PreparedStatement ps;
+
+    @Setup
+    public void setup() throws SQLException {
+        persister = EntityMetadataRegistry.getPersister(BenchOrder.class);
+        List<String> columnNames = persister.getInsertColumnNames();
+        readMethods = new Method[columnNames.size()];
+        for (int i = 0; i < readMethods.length; i++) {
+            readMethods[i] = persister.getColumns().get(columnNames.get(i)).getReadMethod();
+        }
+        entity = new BenchOrder(42);
+        connection = DriverManager.getConnection("jdbc:h2:mem:bind;MODE=MySQL");
+        connection.createStatement().execute("CREATE TABLE bench_order (id BIGINT AUTO_INCREMENT PRIMARY KEY, order_no VARCHAR(32), user_id BIGINT, "
+                + "status INT, paid BOOLEAN, amount DECIMAL(12,2), subject VARCHAR(64), create_time TIMESTAMP)");
+        ps = connection.prepareStatement(persister.getSqlInsertString());
+    }
+
+    @TearDown
+    public void tearDown() throws SQLException {
+        ps.close();
+        connection.close();
+    }
+
+    @Benchmark
+    public Object[] reflectValues() throws Exception {
+        Object[] values = new Object[readMethods.length];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = readMethods[i].invoke(entity);
+        }
+        return values;
+    }
+
+    @Benchmark
+    public Object[] accessorValues() {
+        return persister.getInsertFieldValues(entity);
+    }
+
+    @Benchmark
+    public PreparedStatement reflectBind() throws Exception {
+        for (int i = 0; i < readMethods.length; i++) {
+            ps.setObject(i + 1, readMethods[i].invoke(entity));
+        }
+        return ps;
+    }
+
+    @Benchmark
+    public PreparedStatement accessorBind() throws SQLException {
+        persister.bindInsertFieldValues(ps, 1, entity);
+        return ps;
+    }
+}
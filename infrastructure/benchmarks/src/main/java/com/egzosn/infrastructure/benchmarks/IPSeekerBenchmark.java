@@ -0,0 +1,148 @@
+package com.egzosn.infrastructure.benchmarks;
+
+import com.egzosn.infrastructure.utils.ip.IPSeeker;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.*;
+import java.lang.reflect.Field;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link IPSeeker} 的查询开销
+ * <p>
+ * 默认按固定种子生成与QQwry.dat格式相同的数据文件，可通过 -Dipseeker.file 指定真实的数据文件；
+ * cached* 在固定的ip集合上查询，命中查询缓存；uncachedCountry 在整个ip空间上随机查询，每轮迭代前清空缓存
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+public class IPSeekerBenchmark {
+
+    /**
+     * 生成的数据文件中ip段的数量
+     */
+    private static final int RANGES = 1 << 16;
+
+    private static final int CACHED_IPS = 1024;
+
+    private static final String[] PROVINCES = {"广东省", "浙江省", "江苏省", "四川省", "北京市", "上海市"};
+
+    private static final String[] CITIES = {"深圳市", "杭州市", "南京市", "成都市", "海淀区", "浦东新区"};
+
+    private File file;
+    private IPSeeker seeker;
+    private Map<?, ?> ipCache;
+    private String[] ips;
+    private int next;
+    private int seed;
+
+    @Setup
+    public void setup() throws Exception {
+        String location = System.getProperty("ipseeker.file");
+        if (null == location) {
+            file = File.createTempFile("qqwry", ".dat");
+            file.deleteOnExit();
+            write(file, new Random(20171215L));
+            location = file.getAbsolutePath();
+        }
+        seeker = IPSeeker.getInstance(location);
+        Field field = IPSeeker.class.getDeclaredField("ipCache");
+        field.setAccessible(true);
+        ipCache = (Map<?, ?>) field.get(seeker);
+
+        Random random = new Random(20171215L);
+        ips = new String[CACHED_IPS];
+        for (int i = 0; i < ips.length; i++) {
+            ips[i] = toString(random.nextInt());
+        }
+        seed = random.nextInt() | 1;
+    }
+
+    @Setup(Level.Iteration)
+    public void clearCache() {
+        ipCache.clear();
+        for (String ip : ips) {
+            seeker.getCountry(ip);
+            seeker.getArea(ip);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        if (null != file) {
+            file.delete();
+        }
+    }
+
+    @Benchmark
+    public String cachedCountry() {
+        return seeker.getCountry(ips[next++ & (CACHED_IPS - 1)]);
+    }
+
+    @Benchmark
+    public String cachedAddress() {
+        return seeker.getAddress(ips[next++ & (CACHED_IPS - 1)]);
+    }
+
+    @Benchmark
+    public String uncachedCountry() {
+        seed ^= seed << 13;
+        seed ^= seed >>> 17;
+        seed ^= seed << 5;
+        return seeker.getCountry(toString(seed));
+    }
+
+    private static String toString(int ip) {
+        return (ip >>> 24) + "." + ((ip >>> 16) & 0xFF) + "." + ((ip >>> 8) & 0xFF) + "." + (ip & 0xFF);
+    }
+
+    /**
+     * 生成QQwry.dat格式的数据文件：文件头、按起始ip排列的记录区、7字节一条的索引区，ip与偏移均为little-endian
+     *
+     * @param file   数据文件
+     * @param random 随机数
+     * @throws IOException 写入异常
+     */
+    private static void write(File file, Random random) throws IOException {
+        long[] starts = new long[RANGES];
+        for (int i = 1; i < RANGES; i++) {
+            starts[i] = random.nextInt() & 0xFFFFFFFFL;
+        }
+        Arrays.sort(starts);
+        Charset gbk = Charset.forName("GBK");
+        ByteArrayOutputStream records = new ByteArrayOutputStream(RANGES * 32);
+        long[] offsets = new long[RANGES];
+        for (int i = 0; i < RANGES; i++) {
+            offsets[i] = 8 + records.size();
+            long end = i + 1 < RANGES ? Math.max(starts[i], starts[i + 1] - 1) : 0xFFFFFFFFL;
+            writeLittleEndian(records, end, 4);
+            records.write((PROVINCES[random.nextInt(PROVINCES.length)] + CITIES[random.nextInt(CITIES.length)]).getBytes(gbk));
+            records.write(0);
+            records.write(("电信" + random.nextInt(100)).getBytes(gbk));
+            records.write(0);
+        }
+        long indexBegin = 8 + records.size();
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(file))) {
+            writeLittleEndian(out, indexBegin, 4);
+            writeLittleEndian(out, indexBegin + (RANGES - 1) * 7L, 4);
+            records.writeTo(out);
+            for (int i = 0; i < RANGES; i++) {
+                writeLittleEndian(out, starts[i], 4);
+                writeLittleEndian(out, offsets[i], 3);
+            }
+        }
+    }
+
+    private static void writeLittleEndian(OutputStream out, long value, int bytes) throws IOException {
+        for (int i = 0; i < bytes; i++) {
+            out.write((int) (value >>> (i * 8)) & 0xFF);
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.egzosn.infrastructure.benchmarks;
+
+import com.egzosn.infrastructure.database.jdbc.BaseJdbcRepository;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.jdbc.core.BeanPropertyRowMapper;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link BaseJdbcRepository#queryEntityList} 的行映射开销，使用内存H2数据库
+ * <p>
+ * beanPropertyRowMapper 为spring {@link BeanPropertyRowMapper} 映射同一结果集的对照
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+public class RowMappingBenchmark {
+
+    private static final int TABLE_ROWS = 1000;
+
+    private static final String SQL = "select * from bench_order order by id limit ?";
+
+    @Param({"1", "100", "1000"})
+    private int rows;
+
+    private SingleConnectionDataSource dataSource;
+    private JdbcTemplate jdbcTemplate;
+    private BenchOrderRepository repository;
+    private BeanPropertyRowMapper<BenchOrder> beanPropertyRowMapper;
+
+    @Setup
+    public void setup() {
+        dataSource = new SingleConnectionDataSource("jdbc:h2:mem:rows;MODE=MySQL", "sa", "", true);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE bench_order (id BIGINT AUTO_INCREMENT PRIMARY KEY, order_no VARCHAR(32), user_id BIGINT, "
+                + "status INT, paid BOOLEAN, amount DECIMAL(12,2), subject VARCHAR(64), create_time TIMESTAMP)");
+        Random random = new Random(20171215L);
+        List<Object[]> args = new ArrayList<>(TABLE_ROWS);
+        for (int i = 0; i < TABLE_ROWS; i++) {
+            args.add(new Object[]{"NO" + (1000000 + i), 10000L + random.nextInt(1000), random.nextInt(5), random.nextBoolean(),
+                    BigDecimal.valueOf(random.nextInt(1000000), 2), "订单" + i, new Timestamp(1513296000000L + i * 1000L)});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO bench_order (order_no, user_id, status, paid, amount, subject, create_time) VALUES (?, ?, ?, ?, ?, ?, ?)", args);
+
+        repository = new BenchOrderRepository();
+        repository.setJdbcTemplate(jdbcTemplate);
+        beanPropertyRowMapper = new BeanPropertyRowMapper<>(BenchOrder.class);
+    }
+
+    @TearDown
+    public void tearDown() {
+        jdbcTemplate.execute("DROP TABLE bench_order");
+        dataSource.destroy();
+    }
+
+    @Benchmark
+    public List<BenchOrder> queryEntityList() {
+        return repository.list(rows);
+    }
+
+    @Benchmark
+    public List<BenchOrder> beanPropertyRowMapper() {
+        return jdbcTemplate.query(SQL, beanPropertyRowMapper, rows);
+    }
+
+    public static class BenchOrderRepository extends BaseJdbcRepository<BenchOrder> {
+
+        public List<BenchOrder> list(int rows) {
+            return queryEntityList(SQL, rows);
+        }
+    }
+}
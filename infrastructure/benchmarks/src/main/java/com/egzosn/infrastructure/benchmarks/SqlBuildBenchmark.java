@@ -0,0 +1,80 @@
+package com.egzosn.infrastructure.benchmarks;
+
+import com.egzosn.infrastructure.database.jdbc.SQLTools;
+import com.egzosn.infrastructure.params.QueryParams;
+import com.egzosn.infrastructure.params.SqlFilter;
+import com.egzosn.infrastructure.params.SqlFilterRequest;
+import com.egzosn.infrastructure.params.Where;
+import com.egzosn.infrastructure.params.enums.Restriction;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 查询条件生成sql的开销：命名参数转换、{@link Where#toSQL()}、{@link QueryParams#builderParas()} 与 {@link SqlFilter#addFilter(SqlFilterRequest)}
+ * <p>
+ * builderParas 与 sqlFilter 每次创建新的条件对象，与一次请求的使用方式一致
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+public class SqlBuildBenchmark {
+
+    private static final String NAMED_SQL = "select * from bench_order o where o.user_id = :userId and o.status in (:status) "
+            + "and o.create_time between :start and :end and o.subject like :subject order by o.id desc";
+
+    private Map<String, Object> attrs;
+    private Where where;
+    private Map<String, String[]> filterParameters;
+
+    @Setup
+    public void setup() {
+        attrs = new HashMap<>();
+        attrs.put("userId", 10042L);
+        attrs.put("status", Arrays.asList(1, 2, 3));
+        attrs.put("start", new Date(1513296000000L));
+        attrs.put("end", new Date(1513382400000L));
+        attrs.put("subject", "%订单%");
+
+        where = newWhere();
+
+        filterParameters = new LinkedHashMap<>();
+        filterParameters.put("QUERY^o#userId^&^EQ^L", new String[]{"10042"});
+        filterParameters.put("QUERY^o#status^&^IN^i", new String[]{"1", "2", "3"});
+        filterParameters.put("QUERY^o#amount^&^BW^bd", new String[]{"10.00", "99.99"});
+        filterParameters.put("QUERY^o#subject^&^LK^S", new String[]{"订单"});
+        filterParameters.put("QUERY^o#paid^|^EQ^b", new String[]{"true"});
+    }
+
+    @Benchmark
+    public String forConverSQL() {
+        return SQLTools.forConverSQL(NAMED_SQL, attrs, new ArrayList<>(8));
+    }
+
+    @Benchmark
+    public String whereToSQL() {
+        return where.toSQL();
+    }
+
+    @Benchmark
+    public String builderParas() {
+        return newWhere().builderParas().getSqlString();
+    }
+
+    @Benchmark
+    public String sqlFilter() {
+        return new SqlFilter(new SqlFilterRequest(filterParameters)).getQueryParams().builderParas().getSqlString();
+    }
+
+    private static Where newWhere() {
+        return new Where("userId", 10042L, "o")
+                .and("status", Arrays.asList(1, 2, 3), Restriction.IN, "o")
+                .and("amount", new Object[]{10, 100}, Restriction.BW, "o")
+                .and("subject", "订单", Restriction.LK, "o")
+                .or("paid", true, "o");
+    }
+}
@@ -0,0 +1,472 @@
+package com.egzosn.infrastructure.database.processor;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.Filer;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.*;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardLocation;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.*;
+
+import static java.util.Locale.ENGLISH;
+
+/**
+ * 编译时为标注 @Table 的实体生成 EntityAccessor
+ * <p>
+ * 生成的类与实体在同一个包，类名为实体的类名加上 _Accessor，直接调用getter/setter取值与设值，
+ * 并包含插入、按主键更新、按主键删除的语句模板；同时生成实体索引 {@link #INDEX_LOCATION}，
+ * 供 EntityMetadataRegistry 启动时预热
+ * <p>
+ * 与运行时 SingleTableEntityPersister 的解析规则一致，以下实体不生成，运行时使用反射:
+ * 抽象类、泛型类、非静态内部类、私有类、没有无参构造方法、没有 @Id 字段、字段缺少public的getter/setter
+ */
+@SupportedAnnotationTypes(EntityAccessorProcessor.TABLE)
+public class EntityAccessorProcessor extends AbstractProcessor {
+
+    static final String ANNOTATIONS = "com.egzosn.infrastructure.database.jdbc.annotations.";
+    static final String TABLE = ANNOTATIONS + "Table";
+    static final String COLUMN = ANNOTATIONS + "Column";
+    static final String ID = ANNOTATIONS + "Id";
+    static final String GENERATED_VALUE = ANNOTATIONS + "GeneratedValue";
+
+    static final String ACCESSOR = "com.egzosn.infrastructure.database.jdbc.EntityAccessor";
+    static final String SUFFIX = "_Accessor";
+
+    /**
+     * 实体索引的位置，与 EntityMetadataRegistry.INDEX_LOCATION 一致
+     */
+    static final String INDEX_LOCATION = "META-INF/egzosn/entities.idx";
+
+    /**
+     * 结果集类型对应的读取方法，其余类型使用 JdbcUtils.getResultSetValue
+     */
+    private static final Map<String, String> RESULT_SET_GETTERS = new HashMap<>();
+
+    static {
+        RESULT_SET_GETTERS.put("java.lang.String", "getString");
+        RESULT_SET_GETTERS.put("java.math.BigDecimal", "getBigDecimal");
+        RESULT_SET_GETTERS.put("java.util.Date", "getTimestamp");
+        RESULT_SET_GETTERS.put("java.sql.Timestamp", "getTimestamp");
+        RESULT_SET_GETTERS.put("java.sql.Date", "getDate");
+        RESULT_SET_GETTERS.put("java.sql.Time", "getTime");
+        RESULT_SET_GETTERS.put("byte[]", "getBytes");
+    }
+
+    /**
+     * 已生成的实体，写入索引
+     */
+    private final SortedSet<String> entities = new TreeSet<>();
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        for (TypeElement annotation : annotations) {
+            for (TypeElement type : ElementFilter.typesIn(roundEnv.getElementsAnnotatedWith(annotation))) {
+                Entity entity = parse(type);
+                if (null != entity) {
+                    write(entity);
+                }
+            }
+        }
+        if (roundEnv.processingOver() && !entities.isEmpty()) {
+            writeIndex();
+        }
+        return false;
+    }
+
+    /**
+     * 解析实体
+     *
+     * @param type 实体类
+     * @return 实体信息，无法生成时返回null
+     */
+    private Entity parse(TypeElement type) {
+        if (ElementKind.CLASS != type.getKind() || type.getModifiers().contains(Modifier.ABSTRACT)) {
+            return skip(type, "不是具体类");
+        }
+        if (!type.getTypeParameters().isEmpty()) {
+            return skip(type, "是泛型类");
+        }
+        for (Element enclosing = type; enclosing instanceof TypeElement; enclosing = enclosing.getEnclosingElement()) {
+            TypeElement enclosingType = (TypeElement) enclosing;
+            if (enclosingType.getModifiers().contains(Modifier.PRIVATE)) {
+                return skip(type, "是私有类");
+            }
+            if (NestingKind.LOCAL == enclosingType.getNestingKind() || NestingKind.ANONYMOUS == enclosingType.getNestingKind()
+                    || NestingKind.MEMBER == enclosingType.getNestingKind() && !enclosingType.getModifiers().contains(Modifier.STATIC)) {
+                return skip(type, "是非静态内部类");
+            }
+        }
+        if (!hasDefaultConstructor(type)) {
+            return skip(type, "没有无参构造方法");
+        }
+
+        Entity entity = new Entity();
+        entity.type = type;
+        entity.packageName = processingEnv.getElementUtils().getPackageOf(type).getQualifiedName().toString();
+        String binaryName = processingEnv.getElementUtils().getBinaryName(type).toString();
+        entity.binaryName = binaryName;
+        entity.accessorSimpleName = (entity.packageName.isEmpty() ? binaryName : binaryName.substring(entity.packageName.length() + 1)) + SUFFIX;
+        String tableName = stringValue(annotation(type, TABLE), "name");
+        entity.tableName = null == tableName || tableName.isEmpty() ? type.getSimpleName().toString() : tableName;
+
+        Map<String, ExecutableElement> methods = publicMethods(type);
+        for (VariableElement element : ElementFilter.fieldsIn(type.getEnclosedElements())) {
+            if (element.getModifiers().contains(Modifier.STATIC)) {
+                continue;
+            }
+            Field field = new Field();
+            field.name = element.getSimpleName().toString();
+            field.type = element.asType();
+            AnnotationMirror column = annotation(element, COLUMN);
+            //与运行时一致，标注 @Column 时使用其name，即使为空
+            field.column = null == column ? field.name : stringValue(column, "name");
+            field.getter = (TypeKind.BOOLEAN == field.type.getKind() ? "is" : "get") + capitalize(field.name);
+            field.setter = "set" + capitalize(field.name);
+            ExecutableElement getter = methods.get(field.getter + "()");
+            ExecutableElement setter = methods.get(field.setter + "(" + erasure(field.type) + ")");
+            if (null == getter || null == setter) {
+                return skip(type, "字段 " + field.name + " 缺少public的 " + field.getter + "() 或 " + field.setter + "(" + erasure(field.type) + ")");
+            }
+            if (null != annotation(element, ID)) {
+                entity.id = field;
+                AnnotationMirror generatedValue = annotation(element, GENERATED_VALUE);
+                if (null != generatedValue) {
+                    String strategy = enumValue(generatedValue, "strategy");
+                    entity.autoGeneratedId = null == strategy || "AUTO".equals(strategy);
+                }
+            }
+            entity.fields.add(field);
+        }
+        if (null == entity.id) {
+            return skip(type, "没有 @Id 字段");
+        }
+        return entity;
+    }
+
+    /**
+     * 生成访问器源码
+     *
+     * @param entity 实体信息
+     */
+    private void write(Entity entity) {
+        String entityType = entity.type.getQualifiedName().toString();
+        List<Field> insertFields = new ArrayList<>();
+        List<Field> updateFields = new ArrayList<>();
+        for (Field field : entity.fields) {
+            if (field != entity.id) {
+                insertFields.add(field);
+                updateFields.add(field);
+            } else if (!entity.autoGeneratedId) {
+                insertFields.add(field);
+            }
+        }
+        updateFields.add(entity.id);
+        String placeholder = "$$" + entity.tableName + "$$";
+
+        StringBuilder source = new StringBuilder();
+        //生成的源码只包含ASCII字符，不依赖编译时的文件编码
+        source.append("// generated by ").append(EntityAccessorProcessor.class.getName()).append(", do not edit\n");
+        if (!entity.packageName.isEmpty()) {
+            source.append("package ").append(entity.packageName).append(";\n\n");
+        }
+        source.append("@SuppressWarnings({\"unchecked\", \"rawtypes\"})\n");
+        source.append("public final class ").append(entity.accessorSimpleName).append(" implements ").append(ACCESSOR).append("<").append(entityType).append("> {\n\n");
+
+        source.append("    private static final String[] FIELD_NAMES = ").append(stringArray(entity.fields, false)).append(";\n");
+        source.append("    private static final String[] INSERT_COLUMN_NAMES = ").append(stringArray(insertFields, true)).append(";\n");
+        source.append("    private static final String[] UPDATE_BY_ROW_ID_COLUMN_NAMES = ").append(stringArray(updateFields, true)).append(";\n\n");
+
+        method(source, "Class<" + entityType + "> getEntityClass()", "return " + entityType + ".class;");
+        method(source, entityType + " newInstance()", "return new " + entityType + "();");
+        method(source, "String[] getFieldNames()", "return FIELD_NAMES.clone();");
+        method(source, "String[] getInsertColumnNames()", "return INSERT_COLUMN_NAMES.clone();");
+        method(source, "String[] getUpdateByRowIdColumnNames()", "return UPDATE_BY_ROW_ID_COLUMN_NAMES.clone();");
+        method(source, "String getInsertSql()", "return " + literal(insertSql(placeholder, insertFields)) + ";");
+        method(source, "String getUpdateByRowIdSql()", "return " + literal(updateSql(placeholder, updateFields)) + ";");
+        method(source, "String getDeleteByRowIdSql()", "return " + literal(String.format("delete from %s  where %s = ?", placeholder, entity.id.column)) + ";");
+        method(source, "Object[] getInsertValues(" + entityType + " entity)", "return new Object[]{" + getters(insertFields) + "};");
+        method(source, "Object[] getUpdateByRowIdValues(" + entityType + " entity)", "return new Object[]{" + getters(updateFields) + "};");
+
+        StringBuilder getValue = new StringBuilder("switch (field) {\n");
+        StringBuilder setValue = new StringBuilder("switch (field) {\n");
+        for (int i = 0; i < entity.fields.size(); i++) {
+            Field field = entity.fields.get(i);
+            getValue.append("            case ").append(i).append(": return entity.").append(field.getter).append("();\n");
+            setValue.append("            case ").append(i).append(": ").append(readColumn(field)).append(" return;\n");
+        }
+        getValue.append("            default: throw new IndexOutOfBoundsException(\"field: \" + field);\n        }");
+        setValue.append("            default: throw new IndexOutOfBoundsException(\"field: \" + field);\n        }");
+        method(source, "Object getValue(" + entityType + " entity, int field)", getValue.toString());
+        method(source, "void setValue(" + entityType + " entity, int field, java.sql.ResultSet rs, int index) throws java.sql.SQLException", setValue.toString());
+        source.append("}\n");
+
+        try {
+            JavaFileObject file = processingEnv.getFiler().createSourceFile(qualifiedName(entity.packageName, entity.accessorSimpleName), entity.type);
+            try (Writer writer = file.openWriter()) {
+                writer.write(source.toString());
+            }
+            entities.add(entity.binaryName);
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "生成 " + entity.accessorSimpleName + " 失败: " + e, entity.type);
+        }
+    }
+
+    /**
+     * 写入实体索引
+     */
+    private void writeIndex() {
+        Filer filer = processingEnv.getFiler();
+        try {
+            FileObject file = filer.createResource(StandardLocation.CLASS_OUTPUT, "", INDEX_LOCATION);
+            try (Writer writer = file.openWriter()) {
+                writer.write("# generated by " + EntityAccessorProcessor.class.getName() + "\n");
+                for (String entity : entities) {
+                    writer.write(entity);
+                    writer.write('\n');
+                }
+            }
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.WARNING, "生成实体索引失败: " + e);
+        }
+    }
+
+    /**
+     * 从结果集读取一列并设值的语句，规则与 JdbcUtils.getResultSetValue 一致，基本类型遇到null值不进行设值
+     *
+     * @param field 字段
+     * @return 语句
+     */
+    private String readColumn(Field field) {
+        TypeMirror type = field.type;
+        if (TypeKind.CHAR == type.getKind()) {
+            return String.format("{ Object value = org.springframework.jdbc.support.JdbcUtils.getResultSetValue(rs, index, char.class); if (null != value) { entity.%s((Character) value); } }", field.setter);
+        }
+        if (type.getKind().isPrimitive()) {
+            String primitive = type.toString();
+            return String.format("{ %s value = rs.get%s(index); if (!rs.wasNull()) { entity.%s(value); } }", primitive, capitalize(primitive), field.setter);
+        }
+        String typeName = erasure(type);
+        String primitive = unboxed(type);
+        if (null != primitive && !"char".equals(primitive)) {
+            return String.format("{ %s value = rs.get%s(index); entity.%s(rs.wasNull() ? null : value); }", primitive, capitalize(primitive), field.setter);
+        }
+        String getter = RESULT_SET_GETTERS.get(typeName);
+        if (null != getter) {
+            return String.format("entity.%s(rs.%s(index));", field.setter, getter);
+        }
+        return String.format("entity.%s((%s) org.springframework.jdbc.support.JdbcUtils.getResultSetValue(rs, index, %s.class));", field.setter, typeName, typeName);
+    }
+
+    /**
+     * 包装类型对应的基本类型
+     *
+     * @param type 类型
+     * @return 基本类型，不是包装类型时返回null
+     */
+    private String unboxed(TypeMirror type) {
+        try {
+            return processingEnv.getTypeUtils().unboxedType(type).toString();
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 插入语句，与 SQLTools.generateInsertString 一致
+     */
+    private static String insertSql(String tableName, List<Field> fields) {
+        StringBuilder sql = new StringBuilder();
+        sql.append("insert into `").append(tableName).append("`(");
+        StringBuilder temp = new StringBuilder(") values(");
+        boolean flag = false;
+        for (Field field : fields) {
+            if (flag) {
+                sql.append(", ");
+                temp.append(", ");
+            }
+            sql.append("`").append(field.column).append("`");
+            temp.append("?");
+            flag = true;
+        }
+        return sql.append(temp).append(")").toString();
+    }
+
+    /**
+     * 按主键更新语句，与 SQLTools.generateUpdateByRowIdString 一致
+     */
+    private static String updateSql(String tableName, List<Field> fields) {
+        StringBuilder sql = new StringBuilder();
+        sql.append("update `").append(tableName).append("` set ");
+        for (int i = 0, size = fields.size() - 1; i < size; i++) {
+            if (i != 0) {
+                sql.append(", ");
+            }
+            sql.append("`").append(fields.get(i).column).append("` = ? ");
+        }
+        sql.append(" where ").append(fields.get(fields.size() - 1).column).append(" = ?");
+        return sql.toString();
+    }
+
+    private static void method(StringBuilder source, String signature, String body) {
+        source.append("    @Override\n    public ").append(signature).append(" {\n        ").append(body).append("\n    }\n\n");
+    }
+
+    private static String getters(List<Field> fields) {
+        StringBuilder getters = new StringBuilder();
+        for (Field field : fields) {
+            if (getters.length() > 0) {
+                getters.append(", ");
+            }
+            getters.append("entity.").append(field.getter).append("()");
+        }
+        return getters.toString();
+    }
+
+    private static String stringArray(List<Field> fields, boolean column) {
+        StringBuilder array = new StringBuilder("{");
+        for (Field field : fields) {
+            if (array.length() > 1) {
+                array.append(", ");
+            }
+            array.append(literal(column ? field.column : field.name));
+        }
+        return array.append("}").toString();
+    }
+
+    private static String literal(String value) {
+        StringBuilder literal = new StringBuilder("\"");
+        for (char c : value.toCharArray()) {
+            if ('"' == c || '\\' == c) {
+                literal.append('\\').append(c);
+            } else if (c < ' ' || c > '~') {
+                literal.append(String.format("\\u%04x", (int) c));
+            } else {
+                literal.append(c);
+            }
+        }
+        return literal.append('"').toString();
+    }
+
+    private static String qualifiedName(String packageName, String simpleName) {
+        return packageName.isEmpty() ? simpleName : packageName + "." + simpleName;
+    }
+
+    private static String capitalize(String name) {
+        if (name == null || name.length() == 0) {
+            return name;
+        }
+        return name.substring(0, 1).toUpperCase(ENGLISH) + name.substring(1);
+    }
+
+    private String erasure(TypeMirror type) {
+        return processingEnv.getTypeUtils().erasure(type).toString();
+    }
+
+    /**
+     * 实体及其父类的public方法，键为 方法名(参数类型)
+     */
+    private Map<String, ExecutableElement> publicMethods(TypeElement type) {
+        Map<String, ExecutableElement> methods = new HashMap<>();
+        for (ExecutableElement method : ElementFilter.methodsIn(processingEnv.getElementUtils().getAllMembers(type))) {
+            if (!method.getModifiers().contains(Modifier.PUBLIC) || method.getModifiers().contains(Modifier.STATIC)) {
+                continue;
+            }
+            StringBuilder key = new StringBuilder(method.getSimpleName()).append("(");
+            for (VariableElement parameter : method.getParameters()) {
+                if (key.charAt(key.length() - 1) != '(') {
+                    key.append(",");
+                }
+                key.append(erasure(parameter.asType()));
+            }
+            methods.put(key.append(")").toString(), method);
+        }
+        return methods;
+    }
+
+    private static boolean hasDefaultConstructor(TypeElement type) {
+        for (ExecutableElement constructor : ElementFilter.constructorsIn(type.getEnclosedElements())) {
+            if (constructor.getParameters().isEmpty() && !constructor.getModifiers().contains(Modifier.PRIVATE)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static AnnotationMirror annotation(Element element, String annotationType) {
+        for (AnnotationMirror mirror : element.getAnnotationMirrors()) {
+            if (((TypeElement) mirror.getAnnotationType().asElement()).getQualifiedName().contentEquals(annotationType)) {
+                return mirror;
+            }
+        }
+        return null;
+    }
+
+    private static String stringValue(AnnotationMirror mirror, String name) {
+        AnnotationValue value = value(mirror, name);
+        return null == value ? "" : (String) value.getValue();
+    }
+
+    private static String enumValue(AnnotationMirror mirror, String name) {
+        AnnotationValue value = value(mirror, name);
+        return null == value ? null : ((VariableElement) value.getValue()).getSimpleName().toString();
+    }
+
+    /**
+     * 注解中显式指定的值，未指定返回null
+     */
+    private static AnnotationValue value(AnnotationMirror mirror, String name) {
+        if (null == mirror) {
+            return null;
+        }
+        for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry : mirror.getElementValues().entrySet()) {
+            if (entry.getKey().getSimpleName().contentEquals(name)) {
+                return entry.getValue();
+            }
+        }
+        return null;
+    }
+
+    private Entity skip(TypeElement type, String reason) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.NOTE, type.getQualifiedName() + reason + "，不生成 " + SUFFIX + "，运行时使用反射", type);
+        return null;
+    }
+
+    /**
+     * 实体信息
+     */
+    private static class Entity {
+        TypeElement type;
+        String packageName;
+        String binaryName;
+        String accessorSimpleName;
+        String tableName;
+        List<Field> fields = new ArrayList<>();
+        Field id;
+        boolean autoGeneratedId;
+    }
+
+    /**
+     * 字段信息
+     */
+    private static class Field {
+        String name;
+        TypeMirror type;
+        String column;
+        String getter;
+        String setter;
+    }
+}
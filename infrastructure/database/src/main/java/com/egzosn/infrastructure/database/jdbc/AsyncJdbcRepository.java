@@ -0,0 +1,163 @@
+package com.egzosn.infrastructure.database.jdbc;
+
+import com.egzosn.infrastructure.utils.common.Page;
+
+import java.io.Serializable;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Supplier;
+
+/**
+ * 仓库的异步操作
+ * <p>
+ * 每个操作提交到有界线程池后立即返回 {@link CompletableFuture}，同一请求中的多个查询可以并发执行；
+ * 线程池饱和时提交的线程阻塞等待，超时后返回以 {@link RejectedExecutionException} 结束的结果
+ * <p>
+ * 异步操作在线程池的线程上获取连接，不参与调用方的事务；调用方的读写分离状态通过 {@link ReplicaRouter#propagate(Supplier)} 传递，
+ * 异步写入后调用方随后的读操作同样使用主库
+ */
+public class AsyncJdbcRepository<T> {
+
+    private final SupportJdbcRepository<T> repository;
+
+    private final Executor executor;
+
+    /**
+     * @param repository 仓库
+     * @param executor   执行操作的线程池，建议使用 {@link BoundedExecutor}
+     */
+    public AsyncJdbcRepository(SupportJdbcRepository<T> repository, Executor executor) {
+        this.repository = repository;
+        this.executor = executor;
+    }
+
+    /**
+     * 在线程池中执行任意操作，用于自定义的查询方法
+     * <code>
+     * async.supply(() -&gt; merchantDao.findByCode(code));
+     * </code>
+     *
+     * @param task 操作
+     * @param <X>  结果类型
+     * @return 操作结果
+     */
+    public <X> CompletableFuture<X> supply(Supplier<X> task) {
+        try {
+            return CompletableFuture.supplyAsync(ReplicaRouter.propagate(task), executor);
+        } catch (RejectedExecutionException e) {
+            CompletableFuture<X> future = new CompletableFuture<>();
+            future.completeExceptionally(e);
+            return future;
+        }
+    }
+
+    /**
+     * 根据id获取ORM实体
+     *
+     * @param id 主键
+     * @return 实体
+     */
+    public CompletableFuture<T> get(Serializable id) {
+        return supply(() -> repository.get(id));
+    }
+
+    /**
+     * 根据id获取ORM实体
+     *
+     * @param ids 主键集合
+     * @return 实体集
+     */
+    public CompletableFuture<Collection<T>> getAll(Collection<Serializable> ids) {
+        return supply(() -> repository.getAll(ids));
+    }
+
+    /**
+     * 保存
+     *
+     * @param entity 实体
+     * @return 主键对应的值
+     */
+    public CompletableFuture<Serializable> save(T entity) {
+        return supply(() -> repository.save(entity));
+    }
+
+    /**
+     * 批量保存
+     *
+     * @param entities 实体集
+     * @return 主键集
+     */
+    public CompletableFuture<List<Serializable>> saveAll(Collection<T> entities) {
+        return supply(() -> repository.saveAll(entities));
+    }
+
+    /**
+     * 更新
+     *
+     * @param entity 实体
+     * @return 成功记录数
+     */
+    public CompletableFuture<Integer> update(T entity) {
+        return supply(() -> repository.update(entity));
+    }
+
+    /**
+     * 根据sql查询进行ORM映射集合
+     *
+     * @param sql    sql
+     * @param values 参数
+     * @return 实体集
+     */
+    public CompletableFuture<List<T>> queryEntityList(String sql, Object... values) {
+        return supply(() -> repository.queryEntityList(sql, values));
+    }
+
+    /**
+     * 根据sql查询进行ORM映射集合
+     *
+     * @param sql    sql
+     * @param values 属性值 以sql中的带":"的参数进行关联
+     * @return 实体集
+     */
+    public CompletableFuture<List<T>> queryEntityList(String sql, Map<String, Object> values) {
+        return supply(() -> repository.queryEntityList(sql, values));
+    }
+
+    /**
+     * 分页查询
+     *
+     * @param sql    sql
+     * @param page   第几页
+     * @param rows   几行
+     * @param params 参数
+     * @return 分页结果
+     */
+    public CompletableFuture<Page<T>> pageQueryEntity(String sql, int page, int rows, Object... params) {
+        return supply(() -> repository.pageQueryEntity(sql, page, rows, params));
+    }
+
+    /**
+     * 分页查询
+     *
+     * @param sql    sql
+     * @param params 属性值 以sql中的带":"的参数进行关联
+     * @param page   第几页
+     * @param rows   几行
+     * @return 分页结果
+     */
+    public CompletableFuture<Page<T>> pageQueryEntity(String sql, Map<String, Object> params, int page, int rows) {
+        return supply(() -> repository.pageQueryEntity(sql, params, page, rows));
+    }
+
+    public SupportJdbcRepository<T> getRepository() {
+        return repository;
+    }
+
+    public Executor getExecutor() {
+        return executor;
+    }
+}
@@ -2,15 +2,21 @@ package com.egzosn.infrastructure.database.jdbc;
 
 
 
+import com.egzosn.infrastructure.database.splittable.RangeTableHandler;
+import com.egzosn.infrastructure.database.splittable.TableHandler;
+import com.egzosn.infrastructure.params.Order;
 import com.egzosn.infrastructure.params.Params;
+import com.egzosn.infrastructure.params.QueryParams;
 import com.egzosn.infrastructure.params.Where;
+import com.egzosn.infrastructure.params.enums.AndOr;
 import com.egzosn.infrastructure.params.enums.Restriction;
 import com.egzosn.infrastructure.utils.common.Page;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.NumberUtils;
 import org.springframework.util.StringUtils;
 
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Map;
+import java.util.*;
+import java.util.function.Function;
 
 /**
  *  JDBC 基础操作
@@ -132,6 +138,37 @@ public class BaseJdbcRepository<T> extends SupportJdbcRepository<T>  {
         return  isPage ? pageQueryEntity(sql,  params.getPage().getPageIndex(), params.getPage().getPageSize(), params.getParas().toArray()) : pageQueryEntity(sql, params.getParas());
     }
 
+    /**
+     *  分页查找
+     * @param params 查询参数集
+     * @param countMode 统计总记录数的方式
+     * @return 当前页
+     */
+    public Page<T> queryPage(Params params, CountMode countMode) {
+        String sql = getSQL("*", params);
+        return pageQueryEntity(countMode, sql, params.getPage().getPageIndex(), params.getPage().getPageSize(), params.getParas().toArray());
+    }
+
+    /**
+     *  键集分页查找, 按参数集中的排序字段从上一页最后一行之后读取, 主键会作为最后的排序字段
+     * @param params 查询参数集, 每页大小取自 {@link Params#getPage()}
+     * @param token 上一页返回的续页标识，第一页为null
+     * @return 当前页, 有下一页时返回续页标识 {@link Page#getNextToken()}
+     */
+    public Page<T> keysetQueryPage(Params params, String token) {
+        QueryParams queryParams = (QueryParams) params;
+        Where where = params instanceof Where ? (Where) params : queryParams.getWhere();
+        List<Object> values = new ArrayList<>();
+        StringBuilder sql = new StringBuilder(SQLTools.getSelectSQL("*", getTable())).append(params.alias());
+        if (null != where) {
+            sql.append(QueryParams.toFormatSQL(where.toSQL(), where.getAttrs(), values));
+        }
+        if (null != queryParams.getGroup()) {
+            sql.append(queryParams.getGroup().toSQL());
+        }
+        return keysetPageQueryEntity(sql.toString(), queryParams.getOrder(), token, params.getPage().getPageSize(), values.toArray());
+    }
+
     /**
      *  分页查找
      * @param params 查询参数集
@@ -143,6 +180,254 @@ public class BaseJdbcRepository<T> extends SupportJdbcRepository<T>  {
         return  isPage ? queryEntityList(sql,  params.getPage().getPageIndex(), params.getPage().getPageSize(), params.getParas().toArray()) : queryEntityList(sql, params.getParas());
     }
 
+    /**
+     *  跨分表查找, 在条件裁剪后的分表上执行相同的条件后按排序归并
+     * @param params 查询参数集
+     * @param isPage 是否分页
+     * @return 归并后的结果
+     */
+    public List<T> scatterQueryList(Params params, boolean isPage) {
+        return scatterQueryList(getSplitTables(params), params, isPage);
+    }
+
+    /**
+     *  跨分表查找, 在指定的分表上执行相同的条件后按排序归并
+     * @param tables 分表
+     * @param params 查询参数集
+     * @param isPage 是否分页
+     * @return 归并后的结果
+     */
+    public List<T> scatterQueryList(Collection<String> tables, Params params, boolean isPage) {
+        List<Object> values = new ArrayList<>();
+        Function<String, String> sql = scatterSQL(params, values);
+        int pageIndex = params.getPage().getPageIndex(), pageSize = params.getPage().getPageSize();
+        return scatterQueryEntityList(tables, sql, getOrder(params), isPage ? (pageIndex - 1) * pageSize : 0, isPage ? pageSize : 0, values.toArray());
+    }
+
+    /**
+     *  跨分表分页查找, 查询条件裁剪后的分表, 总记录数为各分表记录数之和
+     * @param params 查询参数集
+     * @return 当前页
+     */
+    public Page<T> scatterQueryPage(Params params) {
+        return scatterQueryPage(getSplitTables(params), params);
+    }
+
+    /**
+     *  跨分表分页查找, 总记录数为各分表记录数之和
+     * @param tables 分表
+     * @param params 查询参数集
+     * @return 当前页
+     */
+    public Page<T> scatterQueryPage(Collection<String> tables, Params params) {
+        List<Object> values = new ArrayList<>();
+        Function<String, String> sql = scatterSQL(params, values);
+        Object[] paras = values.toArray();
+        long total = scatterCount(tables, sql, paras);
+        if (0 == total) {
+            return new Page<>();
+        }
+        int pageIndex = params.getPage().getPageIndex(), pageSize = params.getPage().getPageSize();
+        List<T> content = scatterQueryEntityList(tables, sql, getOrder(params), (pageIndex - 1) * pageSize, pageSize, paras);
+        return new Page<T>(pageIndex, pageSize, total, content);
+    }
+
+    /**
+     *  根据分表字段上的条件裁剪分表, 条件中存在 or 或分表字段上没有条件时返回所有分表
+     *  <p>
+     *  等于、in 按值计算分表；between、大于、小于由 {@link RangeTableHandler} 列出范围内的分表,
+     *  处理器无法列出开区间且表名有序时按表名比较裁剪; 结果只保留已存在的分表
+     * @param params 查询参数集
+     * @return 需要查询的分表
+     */
+    protected List<String> getSplitTables(Params params) {
+        SplitTableDescriptor descriptor = getEntityPersister().getSplitTableDescriptor();
+        Where where = params instanceof Where ? (Where) params : ((QueryParams) params).getWhere();
+        if (null == descriptor || null == where) {
+            return getSplitTables();
+        }
+        Object[] condition = null;
+        for (Map.Entry<String, Object[]> entry : where.getWheres().entrySet()) {
+            if (AndOr.OR == entry.getValue()[1]) {
+                return getSplitTables();
+            }
+            if (isSplitField(descriptor, entry.getKey())) {
+                condition = entry.getValue();
+            }
+        }
+        if (null == condition) {
+            return getSplitTables();
+        }
+        TableHandler handler = descriptor.getHandler();
+        Object value = condition[0];
+        Class<?> type = splitFieldType(descriptor);
+        switch ((Restriction) condition[2]) {
+            case EQ:
+                return existingTables(Collections.singletonList(handler.handler(descriptor.getPrefix(), descriptor.getField(), toSplitFieldType(value, type))));
+            case IN:
+                Collection<?> values = value instanceof Object[] ? Arrays.asList((Object[]) value) : value instanceof Collection ? (Collection<?>) value : null;
+                if (null == values) {
+                    //基本类型数组或单个值，无法按值裁剪
+                    return getSplitTables();
+                }
+                Set<String> tables = new LinkedHashSet<>();
+                for (Object v : values) {
+                    tables.add(handler.handler(descriptor.getPrefix(), descriptor.getField(), toSplitFieldType(v, type)));
+                }
+                return existingTables(tables);
+            case BW:
+                if (!(value instanceof Object[]) || ((Object[]) value).length < 2) {
+                    return getSplitTables();
+                }
+                Object[] range = (Object[]) value;
+                return rangeTables(descriptor, toSplitFieldType(range[0], type), toSplitFieldType(range[1], type));
+            case GE:
+            case GT:
+                return rangeTables(descriptor, toSplitFieldType(value, type), null);
+            case LE:
+            case LT:
+                return rangeTables(descriptor, null, toSplitFieldType(value, type));
+            default:
+                return getSplitTables();
+        }
+    }
+
+    /**
+     *  条件的字段是否为分表字段, 匹配字段名或列名
+     * @param descriptor 分表描述
+     * @param key 条件的字段
+     * @return 是否为分表字段
+     */
+    private boolean isSplitField(SplitTableDescriptor descriptor, String key) {
+        if (key.equalsIgnoreCase(descriptor.getField())) {
+            return true;
+        }
+        Column column = getEntityPersister().getFields().get(descriptor.getField());
+        return null != column && key.equalsIgnoreCase(column.getName());
+    }
+
+    /**
+     *  分表字段声明的类型
+     * @param descriptor 分表描述
+     * @return 字段类型, 基本类型转换为包装类型, 找不到字段时为null
+     */
+    private Class<?> splitFieldType(SplitTableDescriptor descriptor) {
+        Column column = getEntityPersister().getFields().get(descriptor.getField());
+        return null == column || null == column.getType() ? null : ClassUtils.resolvePrimitiveIfNecessary(column.getType());
+    }
+
+    /**
+     *  条件值转换为分表字段的类型, 保证与保存实体时按相同的值计算分表,
+     *  如字段为Long时 "123"、123、BigInteger 123 都按 Long 123 计算; 无法转换时原样返回
+     * @param value 条件值
+     * @param type 分表字段的类型
+     * @return 转换后的值
+     */
+    @SuppressWarnings("unchecked")
+    private static Object toSplitFieldType(Object value, Class<?> type) {
+        if (null == value || null == type || type.isInstance(value)) {
+            return value;
+        }
+        try {
+            if (Number.class.isAssignableFrom(type)) {
+                if (value instanceof Number) {
+                    return NumberUtils.convertNumberToTargetClass((Number) value, (Class<Number>) type);
+                }
+                if (value instanceof String) {
+                    return NumberUtils.parseNumber(((String) value).trim(), (Class<Number>) type);
+                }
+            } else if (String.class == type && (value instanceof Number || value instanceof Character)) {
+                return value.toString();
+            }
+        } catch (IllegalArgumentException e) {
+            //超出范围或不是数字, 按原值计算
+        }
+        return value;
+    }
+
+    /**
+     *  获取范围内的分表
+     * @param descriptor 分表描述
+     * @param from 起始值(包含)，为null时不限
+     * @param to 结束值(包含)，为null时不限
+     * @return 范围内已存在的分表
+     */
+    private List<String> rangeTables(SplitTableDescriptor descriptor, Object from, Object to) {
+        if (!(descriptor.getHandler() instanceof RangeTableHandler)) {
+            return getSplitTables();
+        }
+        RangeTableHandler handler = (RangeTableHandler) descriptor.getHandler();
+        List<String> tables = handler.handler(descriptor.getPrefix(), descriptor.getField(), from, to);
+        if (null != tables) {
+            return existingTables(tables);
+        }
+        List<String> all = getSplitTables();
+        if (!handler.isOrdered()) {
+            return all;
+        }
+        String lower = null == from ? null : handler.handler(descriptor.getPrefix(), descriptor.getField(), from);
+        String upper = null == to ? null : handler.handler(descriptor.getPrefix(), descriptor.getField(), to);
+        List<String> pruned = new ArrayList<>(all.size());
+        for (String table : all) {
+            if ((null == lower || table.compareToIgnoreCase(lower) >= 0) && (null == upper || table.compareToIgnoreCase(upper) <= 0)) {
+                pruned.add(table);
+            }
+        }
+        return pruned;
+    }
+
+    /**
+     *  只保留已存在的分表, 分表无法列出时原样返回
+     * @param tables 计算出的分表
+     * @return 已存在的分表, 表名以数据库中的为准
+     */
+    private List<String> existingTables(Collection<String> tables) {
+        List<String> all;
+        try {
+            all = getSplitTables();
+        } catch (IllegalStateException e) {
+            return new ArrayList<>(tables);
+        }
+        Map<String, String> existing = new HashMap<>(all.size());
+        for (String table : all) {
+            existing.put(table.toLowerCase(), table);
+        }
+        List<String> result = new ArrayList<>(tables.size());
+        for (String table : tables) {
+            String name = existing.get(table.toLowerCase());
+            if (null != name) {
+                result.add(name);
+            }
+        }
+        return result;
+    }
+
+    /**
+     *  生成每张分表的sql, 不含排序与分页
+     * @param params 查询参数集, 不支持分组
+     * @param values 条件对应的参数
+     * @return 表名对应的sql
+     */
+    private Function<String, String> scatterSQL(Params params, List<Object> values) {
+        QueryParams queryParams = (QueryParams) params;
+        if (null != queryParams.getGroup()) {
+            throw new IllegalArgumentException("跨分表查询不支持分组");
+        }
+        Where where = params instanceof Where ? (Where) params : queryParams.getWhere();
+        String whereSQL = null == where ? "" : QueryParams.toFormatSQL(where.toSQL(), where.getAttrs(), values);
+        String alias = params.alias();
+        return table -> SQLTools.getSQL("*", table, alias, whereSQL);
+    }
+
+    /**
+     *  获取查询参数集中的排序
+     * @param params 查询参数集
+     * @return 排序
+     */
+    private Order getOrder(Params params) {
+        return params instanceof Order ? (Order) params : ((QueryParams) params).getOrder();
+    }
+
     /**
      * @param updateField 需要更新的字段
      * @param params      条件参数
@@ -0,0 +1,156 @@
+package com.egzosn.infrastructure.database.jdbc;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 分批写入的结果，记录每一批的行数、成功记录数与生成的主键
+ */
+public class BatchResult {
+
+    /**
+     * 每一批的结果
+     */
+    private final List<Chunk> chunks = new ArrayList<>();
+
+    /**
+     * 全部生成的主键，与写入顺序一致
+     */
+    private final List<Serializable> keys = new ArrayList<>();
+
+    private long affectedRows = 0;
+
+    private long rows = 0;
+
+    /**
+     * 记录一批的结果
+     *
+     * @param tableName    表名
+     * @param rows         行数
+     * @param affectedRows 成功记录数
+     * @param keys         生成的主键
+     */
+    public void add(String tableName, int rows, int affectedRows, List<Serializable> keys) {
+        synchronized (chunks) {
+            Chunk chunk = new Chunk(chunks.size(), tableName, rows, affectedRows, null == keys ? Collections.<Serializable>emptyList() : keys);
+            chunks.add(chunk);
+            this.keys.addAll(chunk.getKeys());
+            this.rows += rows;
+            this.affectedRows += affectedRows;
+        }
+    }
+
+    /**
+     * 合并另一次写入的结果，批次序号顺延
+     *
+     * @param other 另一次写入的结果
+     */
+    public void addAll(BatchResult other) {
+        for (Chunk chunk : other.getChunks()) {
+            add(chunk.getTableName(), chunk.getRows(), chunk.getAffectedRows(), chunk.getKeys());
+        }
+    }
+
+    public List<Chunk> getChunks() {
+        return chunks;
+    }
+
+    public List<Serializable> getKeys() {
+        return keys;
+    }
+
+    /**
+     * 成功记录数
+     *
+     * @return 成功记录数
+     */
+    public long getAffectedRows() {
+        return affectedRows;
+    }
+
+    /**
+     * 提交的行数
+     *
+     * @return 提交的行数
+     */
+    public long getRows() {
+        return rows;
+    }
+
+    @Override
+    public String toString() {
+        return "BatchResult{" +
+                "chunks=" + chunks.size() +
+                ", rows=" + rows +
+                ", affectedRows=" + affectedRows +
+                ", keys=" + keys.size() +
+                '}';
+    }
+
+    /**
+     * 一批的结果
+     */
+    public static class Chunk {
+        /**
+         * 第几批，从0开始
+         */
+        private final int index;
+        /**
+         * 写入的表
+         */
+        private final String tableName;
+        /**
+         * 行数
+         */
+        private final int rows;
+        /**
+         * 成功记录数
+         */
+        private final int affectedRows;
+        /**
+         * 生成的主键
+         */
+        private final List<Serializable> keys;
+
+        public Chunk(int index, String tableName, int rows, int affectedRows, List<Serializable> keys) {
+            this.index = index;
+            this.tableName = tableName;
+            this.rows = rows;
+            this.affectedRows = affectedRows;
+            this.keys = keys;
+        }
+
+        public int getIndex() {
+            return index;
+        }
+
+        public String getTableName() {
+            return tableName;
+        }
+
+        public int getRows() {
+            return rows;
+        }
+
+        public int getAffectedRows() {
+            return affectedRows;
+        }
+
+        public List<Serializable> getKeys() {
+            return keys;
+        }
+
+        @Override
+        public String toString() {
+            return "Chunk{" +
+                    "index=" + index +
+                    ", tableName='" + tableName + '\'' +
+                    ", rows=" + rows +
+                    ", affectedRows=" + affectedRows +
+                    ", keys=" + keys +
+                    '}';
+        }
+    }
+}
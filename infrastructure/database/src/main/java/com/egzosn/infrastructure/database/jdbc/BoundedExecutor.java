@@ -0,0 +1,179 @@
+package com.egzosn.infrastructure.database.jdbc;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import javax.sql.DataSource;
+import java.lang.reflect.Method;
+import java.util.concurrent.*;
+
+/**
+ * 并发数有界的线程池
+ * <p>
+ * 同时执行与排队的任务总数不超过许可数，许可用尽时提交任务的线程阻塞等待，
+ * 超过等待时间抛出 {@link RejectedExecutionException}，以此对调用方形成背压；
+ * 许可数通常与连接池大小一致，避免线程多于连接后在连接池上排队
+ */
+public class BoundedExecutor implements Executor {
+    private static Logger logger = LoggerFactory.getLogger(BoundedExecutor.class);
+
+    /**
+     * 设置为true且运行在支持虚拟线程的JDK上时使用虚拟线程
+     */
+    public static final String VIRTUAL_THREADS_PROPERTY = "jdbc.async.virtualThreads";
+
+    /**
+     * 连接池最大连接数的获取方法，依次为 HikariCP、tomcat-jdbc/dbcp、dbcp2、c3p0
+     */
+    private static final String[] POOL_SIZE_METHODS = {"getMaximumPoolSize", "getMaxActive", "getMaxTotal", "getMaxPoolSize"};
+
+    private final Executor delegate;
+
+    private final Semaphore permits;
+
+    private final int maxPending;
+
+    /**
+     * 获取许可的最长等待时间，毫秒
+     */
+    private final long timeout;
+
+    /**
+     * @param delegate   实际执行任务的线程池
+     * @param maxPending 同时执行与排队的任务上限
+     * @param timeout    许可用尽时的最长等待时间，毫秒
+     */
+    public BoundedExecutor(Executor delegate, int maxPending, long timeout) {
+        if (maxPending < 1) {
+            throw new IllegalArgumentException("maxPending must be positive: " + maxPending);
+        }
+        this.delegate = delegate;
+        this.permits = new Semaphore(maxPending);
+        this.maxPending = maxPending;
+        this.timeout = timeout;
+    }
+
+    /**
+     * 按连接池大小创建线程，同时执行与排队的任务上限为线程数的三倍；
+     * 使用虚拟线程时每个任务都会立即执行，上限即为连接池大小
+     *
+     * @param name       线程名前缀
+     * @param dataSource 数据源
+     * @param timeout    许可用尽时的最长等待时间，毫秒
+     * @return 并发数有界的线程池
+     */
+    public static BoundedExecutor forDataSource(String name, DataSource dataSource, long timeout) {
+        int threads = poolSize(dataSource);
+        Executor delegate = newDelegate(name, threads);
+        return new BoundedExecutor(delegate, delegate instanceof ThreadPoolExecutor ? threads * 3 : threads, timeout);
+    }
+
+    /**
+     * 创建实际执行任务的线程池，开启 {@link #VIRTUAL_THREADS_PROPERTY} 且JDK支持时每个任务一个虚拟线程
+     *
+     * @param name    线程名前缀
+     * @param threads 线程数
+     * @return 线程池
+     */
+    static Executor newDelegate(String name, int threads) {
+        if (Boolean.getBoolean(VIRTUAL_THREADS_PROPERTY)) {
+            try {
+                return (Executor) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+            } catch (ReflectiveOperationException e) {
+                logger.warn("virtual threads are not supported, fall back to platform threads");
+            }
+        }
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory(name);
+        threadFactory.setDaemon(true);
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), threadFactory);
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    /**
+     * 读取连接池的最大连接数，无法读取时为处理器数量的两倍
+     *
+     * @param dataSource 数据源
+     * @return 最大连接数
+     */
+    public static int poolSize(DataSource dataSource) {
+        while (dataSource instanceof DelegatingDataSource) {
+            dataSource = ((DelegatingDataSource) dataSource).getTargetDataSource();
+        }
+        if (null != dataSource) {
+            for (String name : POOL_SIZE_METHODS) {
+                try {
+                    Method method = dataSource.getClass().getMethod(name);
+                    Object size = method.invoke(dataSource);
+                    if (size instanceof Number && ((Number) size).intValue() > 0) {
+                        return ((Number) size).intValue();
+                    }
+                } catch (ReflectiveOperationException e) {
+                    //尝试下一个
+                }
+            }
+        }
+        return Runtime.getRuntime().availableProcessors() * 2;
+    }
+
+    /**
+     * 提交任务，许可用尽时阻塞等待
+     *
+     * @param command 任务
+     * @throws RejectedExecutionException 等待超时或被中断
+     */
+    @Override
+    public void execute(final Runnable command) {
+        try {
+            if (!permits.tryAcquire(timeout, TimeUnit.MILLISECONDS)) {
+                throw new RejectedExecutionException(String.format("%d tasks pending, waited %d ms", maxPending, timeout));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RejectedExecutionException(e);
+        }
+        try {
+            delegate.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        command.run();
+                    } finally {
+                        permits.release();
+                    }
+                }
+            });
+        } catch (RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * 正在执行与排队的任务数
+     *
+     * @return 任务数
+     */
+    public int getPending() {
+        return maxPending - permits.availablePermits();
+    }
+
+    public int getMaxPending() {
+        return maxPending;
+    }
+
+    public long getTimeout() {
+        return timeout;
+    }
+
+    @Override
+    public String toString() {
+        return "BoundedExecutor{" +
+                "pending=" + getPending() +
+                ", maxPending=" + maxPending +
+                ", timeout=" + timeout +
+                '}';
+    }
+}
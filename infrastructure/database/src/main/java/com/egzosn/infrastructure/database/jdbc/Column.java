@@ -1,7 +1,16 @@
 package com.egzosn.infrastructure.database.jdbc;
 
+import com.egzosn.infrastructure.database.utils.MethodAccessors;
+
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
 
 /**
  * 存储列的信息
@@ -30,6 +39,26 @@ public class Column {
      * 字段对应的可读方法
      */
     private Method readMethod;
+    /**
+     * 字段对应的可写访问器
+     */
+    private BiConsumer<Object, Object> writer;
+    /**
+     * 字段对应的可读访问器
+     */
+    private Function<Object, Object> reader;
+    /**
+     * int字段对应的可读访问器，其他类型为null
+     */
+    private ToIntFunction<Object> intReader;
+    /**
+     * long字段对应的可读访问器，其他类型为null
+     */
+    private ToLongFunction<Object> longReader;
+    /**
+     * boolean字段对应的可读访问器，其他类型为null
+     */
+    private Predicate<Object> booleanReader;
 
     public String getName() {
         return name;
@@ -71,21 +100,78 @@ public class Column {
         this.readMethod = readMethod;
     }
 
+    public BiConsumer<Object, Object> getWriter() {
+        return writer;
+    }
+
+    public void setWriter(BiConsumer<Object, Object> writer) {
+        this.writer = writer;
+    }
+
+    public Function<Object, Object> getReader() {
+        return reader;
+    }
+
+    public void setReader(Function<Object, Object> reader) {
+        this.reader = reader;
+    }
+
+    /**
+     * 根据可读方法生成可读访问器，int、long、boolean字段同时生成不装箱的访问器
+     */
+    public void initReaders() {
+        reader = MethodAccessors.reader(readMethod);
+        intReader = null;
+        longReader = null;
+        booleanReader = null;
+        Class<?> returnType = readMethod.getReturnType();
+        if (int.class == returnType) {
+            intReader = MethodAccessors.intReader(readMethod);
+        } else if (long.class == returnType) {
+            longReader = MethodAccessors.longReader(readMethod);
+        } else if (boolean.class == returnType) {
+            booleanReader = MethodAccessors.booleanReader(readMethod);
+        }
+    }
+
     /**
      * 根据对象获取字段对应的值
      * @param object 对象实例
      * @return 字段值
      */
     public Object getFieldValue(Object object){
-
+        if (null != reader) {
+            return reader.apply(object);
+        }
         try {
             return getReadMethod().invoke(object);
         } catch (IllegalAccessException e) {
-            e.printStackTrace();
+            throw new IllegalStateException("Method is not accessible: " + readMethod, e);
         } catch (InvocationTargetException e) {
-            e.printStackTrace();
+            if (e.getTargetException() instanceof RuntimeException) {
+                throw (RuntimeException) e.getTargetException();
+            }
+            throw new IllegalStateException(e.getTargetException());
+        }
+    }
+
+    /**
+     * 将对象的字段值设置到语句参数，int、long、boolean字段不装箱
+     * @param ps 语句
+     * @param index 参数下标，从1开始
+     * @param object 对象实例
+     * @throws SQLException 设置参数异常
+     */
+    public void bind(PreparedStatement ps, int index, Object object) throws SQLException {
+        if (null != intReader) {
+            ps.setInt(index, intReader.applyAsInt(object));
+        } else if (null != longReader) {
+            ps.setLong(index, longReader.applyAsLong(object));
+        } else if (null != booleanReader) {
+            ps.setBoolean(index, booleanReader.test(object));
+        } else {
+            ps.setObject(index, getFieldValue(object));
         }
-        return null;
     }
 
     public Column() {
@@ -0,0 +1,134 @@
+package com.egzosn.infrastructure.database.jdbc;
+
+import com.egzosn.infrastructure.database.utils.LruCache;
+
+import java.util.Arrays;
+
+/**
+ * 分页统计结果缓存，按sql与参数缓存总记录数，超过有效期后重新统计
+ */
+public class CountCache {
+
+    /**
+     * 默认有效期，毫秒
+     */
+    public static final long DEFAULT_TTL = 60 * 1000;
+    /**
+     * 默认容量
+     */
+    public static final int DEFAULT_CAPACITY = 1024;
+
+    private final LruCache<Key, long[]> cache;
+
+    /**
+     * 有效期，毫秒
+     */
+    private volatile long ttl;
+
+    public CountCache() {
+        this(DEFAULT_CAPACITY, DEFAULT_TTL);
+    }
+
+    /**
+     * @param capacity 容量
+     * @param ttl      有效期，毫秒
+     */
+    public CountCache(int capacity, long ttl) {
+        this.cache = new LruCache<>(capacity);
+        this.ttl = ttl;
+    }
+
+    /**
+     * 获取缓存的总记录数
+     *
+     * @param sql    sql
+     * @param params 参数
+     * @return 总记录数，不存在或已过期返回null
+     */
+    public Long get(String sql, Object[] params) {
+        long[] entry = cache.get(key(sql, params));
+        if (null == entry || entry[1] < System.currentTimeMillis()) {
+            return null;
+        }
+        return entry[0];
+    }
+
+    /**
+     * 缓存总记录数
+     *
+     * @param sql    sql
+     * @param params 参数
+     * @param total  总记录数
+     */
+    public void put(String sql, Object[] params, long total) {
+        cache.put(key(sql, params), new long[]{total, System.currentTimeMillis() + ttl});
+    }
+
+    /**
+     * 清空缓存，数据大量变化后使用
+     */
+    public void clear() {
+        cache.clear();
+    }
+
+    public long getTtl() {
+        return ttl;
+    }
+
+    public void setTtl(long ttl) {
+        this.ttl = ttl;
+    }
+
+    /**
+     * 获取底层缓存，用于查看命中情况
+     *
+     * @return 底层缓存
+     */
+    public LruCache<Key, long[]> getCache() {
+        return cache;
+    }
+
+    private static Key key(String sql, Object[] params) {
+        return new Key(sql, null == params ? new Object[0] : params);
+    }
+
+    /**
+     * 缓存键，按参数的实际值比较，避免字符串化后"1"与1、不同毫秒的时间混为同一个键
+     */
+    public static final class Key {
+
+        private final String sql;
+
+        private final Object[] params;
+
+        private final int hash;
+
+        Key(String sql, Object[] params) {
+            this.sql = sql;
+            this.params = params.clone();
+            this.hash = 31 * sql.hashCode() + Arrays.deepHashCode(this.params);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) o;
+            return hash == key.hash && sql.equals(key.sql) && Arrays.deepEquals(params, key.params);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public String toString() {
+            return sql + Arrays.deepToString(params);
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package com.egzosn.infrastructure.database.jdbc;
+
+/**
+ * 分页查询统计总记录数的方式
+ */
+public enum CountMode {
+    /**
+     * 每次分页先精确统计，总数为0时不再查询当前页
+     */
+    EXACT,
+    /**
+     * 不统计，多读取一行判断是否有下一页，总记录数为估算值
+     */
+    NONE,
+    /**
+     * 按sql与参数缓存统计结果，在有效期内复用
+     */
+    CACHED,
+    /**
+     * 统计与当前页查询在不同连接上并发执行；存在事务时在事务连接上顺序统计，以看到未提交的数据
+     */
+    CONCURRENT
+}
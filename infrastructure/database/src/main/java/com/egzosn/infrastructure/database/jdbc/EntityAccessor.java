@@ -0,0 +1,117 @@
+package com.egzosn.infrastructure.database.jdbc;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * 编译时生成的实体访问器，直接调用实体的getter/setter，不经过反射
+ * <p>
+ * 由 database-processor 模块的注解处理器为标注 {@link com.egzosn.infrastructure.database.jdbc.annotations.Table} 的实体生成，
+ * 类名为实体的类名加上 {@link #SUFFIX}；{@link SingleTableEntityPersister} 初始化时查找，
+ * 列与反射得到的一致时用于取值、行映射与语句，不存在或不一致时使用反射
+ * <p>
+ * 字段下标为字段在实体中声明的顺序，语句中的表名为占位符 $$表名$$
+ */
+public interface EntityAccessor<T> {
+
+    /**
+     * 生成的访问器类名的后缀
+     */
+    String SUFFIX = "_Accessor";
+
+    /**
+     * 获取实体类型
+     *
+     * @return 实体类型
+     */
+    Class<T> getEntityClass();
+
+    /**
+     * 创建实体
+     *
+     * @return 实体
+     */
+    T newInstance();
+
+    /**
+     * 获取字段名，按字段下标排列
+     *
+     * @return 字段名
+     */
+    String[] getFieldNames();
+
+    /**
+     * 获取插入语句对应的列，与 {@link #getInsertValues(Object)} 一一对应
+     *
+     * @return 列名
+     */
+    String[] getInsertColumnNames();
+
+    /**
+     * 获取按主键更新语句对应的列，主键列在最后，与 {@link #getUpdateByRowIdValues(Object)} 一一对应
+     *
+     * @return 列名
+     */
+    String[] getUpdateByRowIdColumnNames();
+
+    /**
+     * 获取插入语句模板
+     *
+     * @return 插入语句模板
+     */
+    String getInsertSql();
+
+    /**
+     * 获取按主键更新语句模板
+     *
+     * @return 按主键更新语句模板
+     */
+    String getUpdateByRowIdSql();
+
+    /**
+     * 获取按主键删除语句模板
+     *
+     * @return 按主键删除语句模板
+     */
+    String getDeleteByRowIdSql();
+
+    /**
+     * 获取插入语句的参数
+     *
+     * @param entity 实体
+     *
+     * @return 参数
+     */
+    Object[] getInsertValues(T entity);
+
+    /**
+     * 获取按主键更新语句的参数，主键在最后
+     *
+     * @param entity 实体
+     *
+     * @return 参数
+     */
+    Object[] getUpdateByRowIdValues(T entity);
+
+    /**
+     * 获取字段值
+     *
+     * @param entity 实体
+     * @param field  字段下标
+     *
+     * @return 字段值
+     */
+    Object getValue(T entity, int field);
+
+    /**
+     * 从结果集读取一列并设置到字段，基本类型字段遇到null值不进行设值
+     *
+     * @param entity 实体
+     * @param field  字段下标
+     * @param rs     结果集
+     * @param index  结果集的列下标，从1开始
+     *
+     * @throws SQLException 读取结果集异常
+     */
+    void setValue(T entity, int field, ResultSet rs, int index) throws SQLException;
+}
@@ -0,0 +1,289 @@
+package com.egzosn.infrastructure.database.jdbc;
+
+import com.egzosn.infrastructure.database.jdbc.id.GenerationType;
+import com.egzosn.infrastructure.database.jdbc.id.IdField;
+import com.egzosn.infrastructure.database.jdbc.id.KeyHolder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.support.JdbcUtils;
+
+import java.io.Serializable;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 分批写入ORM实体
+ * <p>
+ * 按批次大小逐批提交，每批提交后立即释放参数，内存占用与实体总数无关；
+ * 插入时可改写为多行插入 <code>insert into t(a, b) values(?, ?), (?, ?)</code>，
+ * 每批一条语句，MySQL 下接近 rewriteBatchedStatements 的吞吐；
+ * 分表实体先按表名分组，每张表使用各自的语句分批写入
+ */
+public class EntityBatchCallback<T> implements ConnectionCallback<BatchResult> {
+    private static Logger logger = LoggerFactory.getLogger(EntityBatchCallback.class);
+
+    /**
+     * 默认批次大小
+     */
+    public static final int DEFAULT_BATCH_SIZE = 1000;
+
+    private final SingleTableEntityPersister<T> entityPersister;
+
+    /**
+     * 实体集对应的表名，为null时由实体决定
+     */
+    private final String tableName;
+
+    private final Iterable<? extends T> entities;
+
+    private final int batchSize;
+    /**
+     * 是否插入，否则按主键更新
+     */
+    private final boolean isInsert;
+    /**
+     * 是否改写为多行插入
+     */
+    private final boolean multiRow;
+    /**
+     * 是否需要获取数据库生成的主键
+     */
+    private final boolean generatedKeys;
+
+    /**
+     * 当前语句对应的行数，多行插入时行数变化需要重新预编译
+     */
+    private int preparedRows = 0;
+
+    /**
+     * 预编译语句缓存，为null时每次新建
+     */
+    private PreparedStatementCache statementCache;
+
+    /**
+     * @param entityPersister 实体信息
+     * @param entities        实体集
+     * @param batchSize       批次大小
+     * @param isInsert        是否插入，否则按主键更新
+     * @param multiRow        是否改写为多行插入, 只对插入有效
+     */
+    public EntityBatchCallback(SingleTableEntityPersister<T> entityPersister, Iterable<? extends T> entities, int batchSize, boolean isInsert, boolean multiRow) {
+        this(entityPersister, null, entities, batchSize, isInsert, multiRow);
+    }
+
+    /**
+     * @param entityPersister 实体信息
+     * @param tableName       实体集对应的表名，为null时分表实体按表名分组后逐表写入
+     * @param entities        实体集
+     * @param batchSize       批次大小
+     * @param isInsert        是否插入，否则按主键更新
+     * @param multiRow        是否改写为多行插入, 只对插入有效
+     */
+    public EntityBatchCallback(SingleTableEntityPersister<T> entityPersister, String tableName, Iterable<? extends T> entities, int batchSize, boolean isInsert, boolean multiRow) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("batchSize must be positive: " + batchSize);
+        }
+        this.entityPersister = entityPersister;
+        this.tableName = tableName;
+        this.entities = entities;
+        this.batchSize = batchSize;
+        this.isInsert = isInsert;
+        this.multiRow = isInsert && multiRow;
+        IdField idField = entityPersister.getIdField();
+        this.generatedKeys = isInsert && null != idField && idField.autoGeneratedKeys();
+    }
+
+    public PreparedStatementCache getStatementCache() {
+        return statementCache;
+    }
+
+    public void setStatementCache(PreparedStatementCache statementCache) {
+        this.statementCache = statementCache;
+    }
+
+    @Override
+    public BatchResult doInConnection(Connection con) throws SQLException, DataAccessException {
+        BatchResult result = new BatchResult();
+        if (null != tableName) {
+            write(con, tableName, entities.iterator(), result);
+        } else if (entityPersister.isSplitTable()) {
+            for (Map.Entry<String, List<T>> group : entityPersister.groupByTableName(entities).entrySet()) {
+                write(con, group.getKey(), group.getValue().iterator(), result);
+            }
+        } else {
+            write(con, entityPersister.getTableName(), entities.iterator(), result);
+        }
+        return result;
+    }
+
+    /**
+     * 分批写入同一张表
+     *
+     * @param con       连接
+     * @param tableName 表名
+     * @param iterator  实体集
+     * @param result    结果
+     * @throws SQLException 执行异常
+     */
+    private void write(Connection con, String tableName, Iterator<? extends T> iterator, BatchResult result) throws SQLException {
+        if (!iterator.hasNext()) {
+            return;
+        }
+        String sql = isInsert ? entityPersister.getSqlInsertString(tableName) : entityPersister.getSqlUpdateByRowIdString(tableName);
+        List<T> chunk = new ArrayList<>(Math.min(batchSize, 1024));
+        PreparedStatement ps = null;
+        preparedRows = 0;
+        try {
+            while (iterator.hasNext()) {
+                chunk.add(iterator.next());
+                if (chunk.size() == batchSize) {
+                    ps = flush(con, ps, sql, tableName, chunk, result);
+                    chunk.clear();
+                }
+            }
+            if (!chunk.isEmpty()) {
+                ps = flush(con, ps, sql, tableName, chunk, result);
+            }
+        } finally {
+            JdbcUtils.closeStatement(ps);
+        }
+    }
+
+    /**
+     * 提交一批
+     *
+     * @param con       连接
+     * @param ps        上一批使用的语句
+     * @param sql       单行语句
+     * @param tableName 表名
+     * @param chunk     当前批次的实体
+     * @param result    结果
+     * @return 当前批次使用的语句
+     * @throws SQLException 执行异常
+     */
+    private PreparedStatement flush(Connection con, PreparedStatement ps, String sql, String tableName, List<T> chunk, BatchResult result) throws SQLException {
+        if (null == ps || multiRow && chunk.size() != preparedRows) {
+            JdbcUtils.closeStatement(ps);
+            String statementSql = multiRow ? SQLTools.forMultiRowInsert(sql, chunk.size()) : sql;
+            int autoGeneratedKeys = generatedKeys ? Statement.RETURN_GENERATED_KEYS : Statement.NO_GENERATED_KEYS;
+            ps = null == statementCache ? con.prepareStatement(statementSql, autoGeneratedKeys) : statementCache.prepare(con, statementSql, autoGeneratedKeys);
+            preparedRows = chunk.size();
+        }
+        List<Serializable> keys = generatedKeys ? null : preGenerateKeys(chunk);
+        int affectedRows;
+        if (multiRow) {
+            int index = 1;
+            for (T entity : chunk) {
+                index = bindFieldValues(ps, index, entity);
+            }
+            affectedRows = ps.executeUpdate();
+        } else {
+            for (T entity : chunk) {
+                bindFieldValues(ps, 1, entity);
+                ps.addBatch();
+            }
+            affectedRows = sum(ps.executeBatch());
+        }
+        if (affectedRows < chunk.size()) {
+            logger.warn("The number of submitted {}, now successful {} ", chunk.size(), affectedRows);
+        }
+        if (generatedKeys) {
+            keys = assignGeneratedKeys(ps, chunk);
+        }
+        result.add(tableName, chunk.size(), affectedRows, keys);
+        return ps;
+    }
+
+    /**
+     * 设置实体对应的参数
+     *
+     * @param ps     语句
+     * @param index  第一个参数的下标，从1开始
+     * @param entity 实体
+     * @return 下一个参数的下标
+     * @throws SQLException 设置参数异常
+     */
+    private int bindFieldValues(PreparedStatement ps, int index, T entity) throws SQLException {
+        if (!isInsert) {
+            return entityPersister.bindUpdateByRowIdKeyFieldValues(ps, index, entity);
+        }
+        return entityPersister.bindInsertFieldValues(ps, index, entity);
+    }
+
+    /**
+     * 插入前对非数据库生成的主键进行设值，整批只调用一次生成策略
+     *
+     * @param chunk 当前批次的实体
+     * @return 当前批次的主键，与实体顺序一致
+     */
+    private List<Serializable> preGenerateKeys(List<T> chunk) {
+        IdField idField = entityPersister.getIdField();
+        if (!isInsert || null == idField || !idField.isIdGeneratedStrategy()) {
+            return null;
+        }
+        Serializable[] ids = new Serializable[chunk.size()];
+        List<T> pending = new ArrayList<>(chunk.size());
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = (Serializable) idField.getIdValue(chunk.get(i));
+            if (null == ids[i]) {
+                pending.add(chunk.get(i));
+            }
+        }
+        if (!pending.isEmpty()) {
+            List<Serializable> generated = idField.setIdValues(pending, idField.getStrategy().generation(null, pending.size()));
+            for (int i = 0, j = 0; i < ids.length && j < generated.size(); i++) {
+                if (null == ids[i]) {
+                    ids[i] = generated.get(j++);
+                }
+            }
+        }
+        return Arrays.asList(ids);
+    }
+
+    /**
+     * 读取数据库生成的主键并按顺序设值到实体
+     *
+     * @param ps    语句
+     * @param chunk 当前批次的实体
+     * @return 主键集
+     */
+    private List<Serializable> assignGeneratedKeys(PreparedStatement ps, List<T> chunk) {
+        KeyHolder keyHolder = GenerationType.AUTO.generation(ps, chunk.size());
+        if (null == keyHolder) {
+            return new ArrayList<>(0);
+        }
+        if (keyHolder.size() != chunk.size()) {
+            //主键与实体无法一一对应，不进行设值
+            logger.warn("The number of generated keys {} does not match the number of rows {}", keyHolder.size(), chunk.size());
+            return new ArrayList<>(0);
+        }
+        return entityPersister.getIdField().setIdValues(chunk, keyHolder);
+    }
+
+    /**
+     * 统计成功记录数，{@link Statement#SUCCESS_NO_INFO} 按一条计算
+     *
+     * @param counts 每条语句的结果
+     * @return 成功记录数
+     */
+    static int sum(int[] counts) {
+        int sum = 0;
+        for (int count : counts) {
+            if (count > 0) {
+                sum += count;
+            } else if (count == Statement.SUCCESS_NO_INFO) {
+                sum++;
+            }
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,243 @@
+package com.egzosn.infrastructure.database.jdbc;
+
+import com.egzosn.infrastructure.database.utils.LruCache;
+import org.springframework.beans.BeanUtils;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Supplier;
+
+/**
+ * 实体二级缓存，按主键缓存实体，超过容量淘汰最久未访问的实体，超过有效期重新加载
+ * <p>
+ * 失效时递增主键所在分段的版本号，清空时递增全局版本号；加载前记录主键的版本号，
+ * 加载期间该主键(或同一分段的主键)发生过失效则不放入缓存，防止并发更新时把旧数据重新放回缓存，
+ * 其他主键的写入不影响加载
+ */
+public class EntityCache<T> {
+
+    private final LruCache<Object, Entry<T>> cache;
+
+    /**
+     * 有效期，毫秒
+     */
+    private final long ttl;
+
+    /**
+     * 是否返回副本
+     */
+    private final boolean copyOnRead;
+
+    /**
+     * 实体构造器，用于创建副本
+     */
+    private final Supplier<T> instantiator;
+
+    /**
+     * 失效版本号的分段数
+     */
+    private static final int VERSION_STRIPES = 64;
+
+    /**
+     * 清空的版本号
+     */
+    private final AtomicLong version = new AtomicLong();
+
+    /**
+     * 按主键分段的失效版本号
+     */
+    private final AtomicLongArray stripeVersions = new AtomicLongArray(VERSION_STRIPES);
+
+    private final AtomicLong hitCount = new AtomicLong();
+
+    private final AtomicLong missCount = new AtomicLong();
+
+    private final AtomicLong expiredCount = new AtomicLong();
+
+    /**
+     * @param capacity     容量
+     * @param ttl          有效期，毫秒
+     * @param copyOnRead   是否返回副本
+     * @param instantiator 实体构造器
+     */
+    public EntityCache(int capacity, long ttl, boolean copyOnRead, Supplier<T> instantiator) {
+        this.cache = new LruCache<>(capacity);
+        this.ttl = ttl;
+        this.copyOnRead = copyOnRead;
+        this.instantiator = instantiator;
+    }
+
+    /**
+     * 获取缓存的实体
+     *
+     * @param id 主键
+     * @return 实体，不存在或已过期返回null
+     */
+    public T get(Object id) {
+        Object key = key(id);
+        Entry<T> entry = cache.get(key);
+        if (null == entry) {
+            missCount.incrementAndGet();
+            return null;
+        }
+        if (entry.expiresAt < System.currentTimeMillis()) {
+            cache.remove(key);
+            expiredCount.incrementAndGet();
+            missCount.incrementAndGet();
+            return null;
+        }
+        hitCount.incrementAndGet();
+        return copy(entry.value);
+    }
+
+    /**
+     * 主键当前的失效版本号，加载实体前获取
+     *
+     * @param id 主键
+     * @return 失效版本号
+     */
+    public long version(Object id) {
+        //两个版本号都只增不减，和变化即发生过失效
+        return version.get() + stripeVersions.get(stripe(key(id)));
+    }
+
+    /**
+     * 放入加载的实体，加载期间发生过失效则丢弃
+     *
+     * @param id      主键
+     * @param entity  实体
+     * @param version 加载前主键的失效版本号 {@link #version(Object)}
+     * @return 返回给调用方的实体
+     */
+    public T put(Object id, T entity, long version) {
+        if (null == id || null == entity) {
+            return entity;
+        }
+        if (version(id) == version) {
+            cache.put(key(id), new Entry<T>(entity, System.currentTimeMillis() + ttl));
+        }
+        return copy(entity);
+    }
+
+    /**
+     * 失效主键对应的实体
+     *
+     * @param id 主键
+     */
+    public void evict(Object id) {
+        if (null == id) {
+            version.incrementAndGet();
+            return;
+        }
+        Object key = key(id);
+        stripeVersions.incrementAndGet(stripe(key));
+        cache.remove(key);
+    }
+
+    /**
+     * 清空缓存，执行了无法确定影响范围的sql后使用
+     */
+    public void clear() {
+        version.incrementAndGet();
+        cache.clear();
+    }
+
+    public int size() {
+        return cache.size();
+    }
+
+    public int getCapacity() {
+        return cache.getCapacity();
+    }
+
+    public long getTtl() {
+        return ttl;
+    }
+
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    /**
+     * 过期的次数，过期也计入未命中
+     *
+     * @return 过期的次数
+     */
+    public long getExpiredCount() {
+        return expiredCount.get();
+    }
+
+    /**
+     * 超出容量被淘汰的次数
+     *
+     * @return 淘汰的次数
+     */
+    public long getEvictionCount() {
+        return cache.getEvictionCount();
+    }
+
+    /**
+     * 命中率
+     *
+     * @return 命中率，未访问过返回0
+     */
+    public double getHitRatio() {
+        long hits = hitCount.get();
+        long total = hits + missCount.get();
+        return 0 == total ? 0 : (double) hits / total;
+    }
+
+    /**
+     * 整数主键统一为Long，避免 Integer 与 Long 的主键对应不同的缓存
+     *
+     * @param id 主键
+     * @return 缓存的键
+     */
+    static Object key(Object id) {
+        if (id instanceof Integer || id instanceof Short || id instanceof Byte) {
+            return ((Number) id).longValue();
+        }
+        return id;
+    }
+
+    private static int stripe(Object key) {
+        int h = key.hashCode();
+        return (h ^ (h >>> 16)) & (VERSION_STRIPES - 1);
+    }
+
+    private T copy(T entity) {
+        if (!copyOnRead) {
+            return entity;
+        }
+        T target = instantiator.get();
+        BeanUtils.copyProperties(entity, target);
+        return target;
+    }
+
+    @Override
+    public String toString() {
+        return "EntityCache{" +
+                "size=" + size() +
+                ", capacity=" + getCapacity() +
+                ", ttl=" + ttl +
+                ", hitCount=" + hitCount +
+                ", missCount=" + missCount +
+                ", expiredCount=" + expiredCount +
+                ", evictionCount=" + getEvictionCount() +
+                '}';
+    }
+
+    private static final class Entry<T> {
+        final T value;
+        final long expiresAt;
+
+        Entry(T value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -0,0 +1,227 @@
+package com.egzosn.infrastructure.database.jdbc;
+
+import com.egzosn.infrastructure.database.jdbc.annotations.Table;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.context.annotation.ClassPathScanningCandidateComponentProvider;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.core.type.filter.AnnotationTypeFilter;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.StringUtils;
+
+import java.io.*;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * 进程内共享的ORM实体信息注册表，每个实体类只解析一次
+ * <p>
+ * 同一实体的多个仓库共用同一个 {@link SingleTableEntityPersister}，包括其行映射器与二级缓存；
+ * 启动时可按包扫描或按构建时生成的索引 {@link #INDEX_LOCATION} 并行预热，
+ * 索引由 database-processor 模块的注解处理器在编译时生成
+ * <code>
+ *     //启动时预热
+ *     if (EntityMetadataRegistry.warmUpFromIndex(classLoader) == 0) {
+ *         EntityMetadataRegistry.warmUp(classLoader, "com.egzosn.pay");
+ *     }
+ * </code>
+ */
+public final class EntityMetadataRegistry {
+    private static Logger logger = LoggerFactory.getLogger(EntityMetadataRegistry.class);
+
+    /**
+     * 实体索引在类路径中的位置，每行一个实体类名，#开头为注释；
+     * 由 {@link #writeIndex(File, ClassLoader, String...)} 或 database-processor 模块的注解处理器生成
+     */
+    public static final String INDEX_LOCATION = "META-INF/egzosn/entities.idx";
+
+    private static final ConcurrentMap<Class<?>, SingleTableEntityPersister<?>> PERSISTERS = new ConcurrentHashMap<>();
+
+    private EntityMetadataRegistry() {
+    }
+
+    /**
+     * 获取实体信息，首次获取时解析
+     *
+     * @param entityClass 实体类
+     * @param <T>         实体类型
+     *
+     * @return 实体信息
+     */
+    public static <T> SingleTableEntityPersister<T> getPersister(Class<T> entityClass) {
+        SingleTableEntityPersister<?> persister = PERSISTERS.get(entityClass);
+        if (null == persister) {
+            //在映射外解析，避免解析期间占用映射的桶锁，并发解析同一实体时保留先放入的
+            SingleTableEntityPersister<T> created = new SingleTableEntityPersister<>(entityClass);
+            persister = PERSISTERS.putIfAbsent(entityClass, created);
+            if (null == persister) {
+                persister = created;
+            }
+        }
+        return (SingleTableEntityPersister<T>) persister;
+    }
+
+    /**
+     * 是否已解析
+     *
+     * @param entityClass 实体类
+     *
+     * @return 是否已解析
+     */
+    public static boolean contains(Class<?> entityClass) {
+        return PERSISTERS.containsKey(entityClass);
+    }
+
+    /**
+     * 移除实体信息，实体类重新加载后使用
+     *
+     * @param entityClass 实体类
+     */
+    public static void remove(Class<?> entityClass) {
+        PERSISTERS.remove(entityClass);
+    }
+
+    /**
+     * 清空所有实体信息
+     */
+    public static void clear() {
+        PERSISTERS.clear();
+    }
+
+    /**
+     * 并行解析实体类
+     *
+     * @param entityClasses 实体类
+     *
+     * @return 解析的实体数量
+     */
+    public static int warmUp(Collection<Class<?>> entityClasses) {
+        entityClasses.parallelStream().forEach(EntityMetadataRegistry::getPersister);
+        return entityClasses.size();
+    }
+
+    /**
+     * 扫描包下标注 {@link Table} 的实体并行解析
+     *
+     * @param classLoader  类加载器
+     * @param basePackages 扫描的包
+     *
+     * @return 解析的实体数量
+     */
+    public static int warmUp(ClassLoader classLoader, String... basePackages) {
+        return warmUp(loadClasses(classLoader, scan(classLoader, basePackages)));
+    }
+
+    /**
+     * 按类路径中所有的 {@link #INDEX_LOCATION} 索引并行解析，不扫描类路径
+     *
+     * @param classLoader 类加载器
+     *
+     * @return 解析的实体数量，没有索引时返回0
+     */
+    public static int warmUpFromIndex(ClassLoader classLoader) {
+        Set<String> classNames = new LinkedHashSet<>();
+        try {
+            Enumeration<URL> indexes = classLoader.getResources(INDEX_LOCATION);
+            while (indexes.hasMoreElements()) {
+                classNames.addAll(readIndex(indexes.nextElement()));
+            }
+        } catch (IOException e) {
+            logger.warn("读取实体索引失败", e);
+            return 0;
+        }
+        return warmUp(loadClasses(classLoader, classNames));
+    }
+
+    /**
+     * 扫描包下标注 {@link Table} 的实体类名
+     *
+     * @param classLoader  类加载器
+     * @param basePackages 扫描的包
+     *
+     * @return 实体类名，按名称排序
+     */
+    public static SortedSet<String> scan(ClassLoader classLoader, String... basePackages) {
+        ClassPathScanningCandidateComponentProvider provider = new ClassPathScanningCandidateComponentProvider(false);
+        provider.setResourceLoader(new DefaultResourceLoader(classLoader));
+        provider.addIncludeFilter(new AnnotationTypeFilter(Table.class));
+        SortedSet<String> classNames = new TreeSet<>();
+        for (String basePackage : basePackages) {
+            for (BeanDefinition definition : provider.findCandidateComponents(basePackage)) {
+                classNames.add(definition.getBeanClassName());
+            }
+        }
+        return classNames;
+    }
+
+    /**
+     * 扫描包下的实体并写入索引，未使用注解处理器时可在构建中调用
+     *
+     * @param outputDirectory 编译输出目录，索引写入其下的 {@link #INDEX_LOCATION}
+     * @param classLoader     类加载器
+     * @param basePackages    扫描的包
+     *
+     * @return 索引文件
+     * @throws IOException 写入异常
+     */
+    public static File writeIndex(File outputDirectory, ClassLoader classLoader, String... basePackages) throws IOException {
+        File index = new File(outputDirectory, INDEX_LOCATION);
+        if (!index.getParentFile().isDirectory() && !index.getParentFile().mkdirs()) {
+            throw new IOException("无法创建目录: " + index.getParentFile());
+        }
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(index), StandardCharsets.UTF_8)) {
+            writer.write("# generated by " + EntityMetadataRegistry.class.getName() + "\n");
+            for (String className : scan(classLoader, basePackages)) {
+                writer.write(className);
+                writer.write('\n');
+            }
+        }
+        return index;
+    }
+
+    /**
+     * 读取索引中的实体类名
+     *
+     * @param index 索引
+     *
+     * @return 实体类名
+     * @throws IOException 读取异常
+     */
+    private static List<String> readIndex(URL index) throws IOException {
+        List<String> classNames = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(index.openStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while (null != (line = reader.readLine())) {
+                line = line.trim();
+                if (StringUtils.hasLength(line) && !line.startsWith("#")) {
+                    classNames.add(line);
+                }
+            }
+        }
+        return classNames;
+    }
+
+    /**
+     * 加载实体类，找不到的类忽略
+     *
+     * @param classLoader 类加载器
+     * @param classNames  实体类名
+     *
+     * @return 实体类
+     */
+    private static List<Class<?>> loadClasses(ClassLoader classLoader, Collection<String> classNames) {
+        List<Class<?>> classes = new ArrayList<>(classNames.size());
+        for (String className : classNames) {
+            try {
+                classes.add(ClassUtils.forName(className, classLoader));
+            } catch (ClassNotFoundException | LinkageError e) {
+                logger.warn("找不到实体类 {}", className, e);
+            }
+        }
+        return classes;
+    }
+}
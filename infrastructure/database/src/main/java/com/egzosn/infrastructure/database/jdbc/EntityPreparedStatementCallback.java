@@ -81,11 +81,11 @@ public class EntityPreparedStatementCallback<T, P> implements  org.springframewo
 
     public EntityPreparedStatementCallback(SingleTableEntityPersister<P> entityPersister, P entity, boolean isInsert) {
         this.entityPersister = entityPersister;
-        this.entitys = entitys;
+        this.entity = entity;
         isBatch = false;
         this.isInsert = isInsert;
         if (isInsert){
-            if (!entityPersister.getIdField().autoGeneratedKeys()){
+            if (null != entityPersister.getIdField() && !entityPersister.getIdField().autoGeneratedKeys()){
                 id = (T)this.entityPersister.idGenerated(entity, null);
             }
             this.args = entityPersister.getInsertFieldValues(entity);
@@ -101,12 +101,12 @@ public class EntityPreparedStatementCallback<T, P> implements  org.springframewo
         isBatch = true;
         this.isInsert = isInsert;
         if (isInsert){
-            if (!entityPersister.getIdField().autoGeneratedKeys()){
+            if (null != entityPersister.getIdField() && !entityPersister.getIdField().autoGeneratedKeys()){
                 id = (T)this.entityPersister.idGenerated(entitys, null);
             }
             this.args = entityPersister.getInsertFieldValues(entitys);
         }else {
-            this.args = entityPersister.getUpdateByRowIdKeyFieldValues(entity);
+            this.args = entityPersister.getUpdateByRowIdKeyFieldValues(entitys);
         }
 
 
@@ -165,7 +165,7 @@ public class EntityPreparedStatementCallback<T, P> implements  org.springframewo
         }
 
         if (this.isInsert){
-            if (entityPersister.getIdField().autoGeneratedKeys()){
+            if (null != entityPersister.getIdField() && entityPersister.getIdField().autoGeneratedKeys()){
                 id = generated(ps);
             }
             return id;
@@ -0,0 +1,47 @@
+package com.egzosn.infrastructure.database.jdbc;
+
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.ResultSetExtractor;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * ORM实体结果集提取器
+ * <p>
+ * 同一查询语句只读取一次结果集元数据，取得对应列布局的 {@link EntityRowMapper} 后逐行映射
+ */
+public class EntityResultSetExtractor<T> implements ResultSetExtractor<List<T>> {
+
+    private final SingleTableEntityPersister<T> entityPersister;
+    /**
+     * 查询语句，用于缓存行映射器
+     */
+    private final String sql;
+
+    public EntityResultSetExtractor(SingleTableEntityPersister<T> entityPersister) {
+        this(entityPersister, null);
+    }
+
+    /**
+     * @param entityPersister 实体信息
+     * @param sql             查询语句，为null时每次查询读取元数据
+     */
+    public EntityResultSetExtractor(SingleTableEntityPersister<T> entityPersister, String sql) {
+        this.entityPersister = entityPersister;
+        this.sql = sql;
+    }
+
+    @Override
+    public List<T> extractData(ResultSet rs) throws SQLException, DataAccessException {
+        EntityRowMapper<T> rowMapper = null == sql ? entityPersister.getRowMapper(rs.getMetaData()) : entityPersister.getRowMapper(sql, rs);
+        List<T> results = new ArrayList<>();
+        int rowNum = 0;
+        while (rs.next()) {
+            results.add(rowMapper.mapRow(rs, rowNum++));
+        }
+        return results;
+    }
+}
@@ -0,0 +1,120 @@
+package com.egzosn.infrastructure.database.jdbc;
+
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.support.JdbcUtils;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+
+/**
+ * 按列下标映射的实体行映射器
+ * <p>
+ * 对应一种结果集的列布局，由 {@link SingleTableEntityPersister#getRowMapper(java.sql.ResultSetMetaData)} 生成并缓存，
+ * 映射每一行时不再读取元数据、查找列集或反射调用
+ */
+public class EntityRowMapper<T> implements RowMapper<T> {
+
+    /**
+     * 实体构造器
+     */
+    private final Supplier<T> instantiator;
+    /**
+     * 结果集下标(从0开始)对应的列，未映射的列为null
+     */
+    private final Column[] columns;
+    /**
+     * 结果集下标对应的可写访问器
+     */
+    private final BiConsumer<Object, Object>[] writers;
+    /**
+     * 结果集下标对应的字段类型
+     */
+    private final Class<?>[] types;
+    /**
+     * 结果集下标对应的字段是否为基本类型，基本类型遇到null值不进行设值
+     */
+    private final boolean[] primitives;
+    /**
+     * 编译时生成的实体访问器，为null时使用 {@link #writers}
+     */
+    private final EntityAccessor<T> accessor;
+    /**
+     * 结果集下标对应的访问器字段下标，未映射的列为-1
+     */
+    private final int[] fields;
+
+    /**
+     * @param instantiator 实体构造器
+     * @param columns      结果集下标(从0开始)对应的列，未映射的列为null
+     */
+    public EntityRowMapper(Supplier<T> instantiator, Column[] columns) {
+        this.instantiator = instantiator;
+        this.columns = columns;
+        this.accessor = null;
+        this.fields = null;
+        this.writers = new BiConsumer[columns.length];
+        this.types = new Class[columns.length];
+        this.primitives = new boolean[columns.length];
+        for (int i = 0; i < columns.length; i++) {
+            Column column = columns[i];
+            if (null == column) {
+                continue;
+            }
+            writers[i] = column.getWriter();
+            types[i] = column.getType();
+            primitives[i] = column.getType().isPrimitive();
+        }
+    }
+
+    /**
+     * @param accessor 编译时生成的实体访问器
+     * @param columns  结果集下标(从0开始)对应的列，未映射的列为null
+     * @param fields   结果集下标对应的访问器字段下标，未映射的列为-1
+     */
+    public EntityRowMapper(EntityAccessor<T> accessor, Column[] columns, int[] fields) {
+        this.instantiator = accessor::newInstance;
+        this.columns = columns;
+        this.accessor = accessor;
+        this.fields = fields;
+        this.writers = null;
+        this.types = null;
+        this.primitives = null;
+    }
+
+    @Override
+    public T mapRow(ResultSet rs, int rowNum) throws SQLException {
+        if (null != accessor) {
+            T entity = accessor.newInstance();
+            for (int i = 0; i < fields.length; i++) {
+                if (fields[i] >= 0) {
+                    accessor.setValue(entity, fields[i], rs, i + 1);
+                }
+            }
+            return entity;
+        }
+        T mappedObject = instantiator.get();
+        for (int i = 0; i < writers.length; i++) {
+            BiConsumer<Object, Object> writer = writers[i];
+            if (null == writer) {
+                continue;
+            }
+            Object value = JdbcUtils.getResultSetValue(rs, i + 1, types[i]);
+            if (null == value && primitives[i]) {
+                continue;
+            }
+            writer.accept(mappedObject, value);
+        }
+        return mappedObject;
+    }
+
+    /**
+     * 获取结果集下标对应的列
+     *
+     * @return 结果集下标(从0开始)对应的列
+     */
+    public Column[] getColumns() {
+        return columns;
+    }
+}
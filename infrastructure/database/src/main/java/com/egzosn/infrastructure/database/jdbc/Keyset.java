@@ -0,0 +1,130 @@
+package com.egzosn.infrastructure.database.jdbc;
+
+import com.egzosn.infrastructure.params.Order;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 键集(seek)分页描述
+ * <p>
+ * 以排序字段记录上一页最后一行的位置，下一页从该位置之后开始读取，
+ * 代替 <code>limit offset,size</code>，每页的代价与页码无关
+ * <code>
+ * where (created &lt; ?) or (created = ? and id &lt; ?) order by created desc, id desc limit n
+ * </code>
+ * 排序字段必须能唯一确定一行且不为null，因此实体查询会自动追加主键作为最后的排序字段
+ */
+public class Keyset {
+
+    /**
+     * 排序列，不含前缀，用于读取结果中的键值
+     */
+    private final List<String> columns = new ArrayList<>();
+    /**
+     * 排序列，含前缀，用于生成sql
+     */
+    private final List<String> qualifiedColumns = new ArrayList<>();
+    /**
+     * 排序列是否倒序
+     */
+    private final List<Boolean> descs = new ArrayList<>();
+
+    /**
+     * 根据排序生成键集描述
+     *
+     * @param order    排序, 可为null
+     * @param idColumn 唯一列, 排序中未包含时追加到最后, 方向与最后一个排序字段一致, 可为null
+     * @return 键集描述
+     */
+    public static Keyset of(Order order, String idColumn) {
+        Keyset keyset = new Keyset();
+        String lastPrefix = null;
+        boolean lastDesc = false;
+        Map<String, String[]> orders = null == order ? null : order.getOrders();
+        if (null != orders) {
+            for (Map.Entry<String, String[]> entry : orders.entrySet()) {
+                lastDesc = Order.OrderAD.DESC.name().equals(entry.getValue()[0]);
+                lastPrefix = entry.getValue()[1];
+                keyset.add(entry.getKey(), lastPrefix, lastDesc);
+            }
+        }
+        if (null != idColumn && !keyset.columns.contains(idColumn)) {
+            keyset.add(idColumn, lastPrefix, lastDesc);
+        }
+        if (keyset.columns.isEmpty()) {
+            throw new IllegalArgumentException("键集分页需要至少一个排序字段");
+        }
+        return keyset;
+    }
+
+    private void add(String column, String prefix, boolean desc) {
+        columns.add(column);
+        qualifiedColumns.add(null == prefix || prefix.isEmpty() ? column : prefix + "." + column);
+        descs.add(desc);
+    }
+
+    public List<String> getColumns() {
+        return columns;
+    }
+
+    public int size() {
+        return columns.size();
+    }
+
+    /**
+     * 生成位于指定键值之后的条件
+     * <code>(a &lt; ?) or (a = ? and b &lt; ?)</code>
+     * 展开形式对混合排序方向也适用
+     *
+     * @return 条件语句
+     */
+    public String toConditionSQL() {
+        StringBuilder sql = new StringBuilder("(");
+        for (int i = 0; i < qualifiedColumns.size(); i++) {
+            if (i > 0) {
+                sql.append(" or ");
+            }
+            sql.append('(');
+            for (int j = 0; j < i; j++) {
+                sql.append(qualifiedColumns.get(j)).append(" = ? and ");
+            }
+            sql.append(qualifiedColumns.get(i)).append(descs.get(i) ? " < ?" : " > ?");
+            sql.append(')');
+        }
+        return sql.append(')').toString();
+    }
+
+    /**
+     * 展开条件语句对应的参数
+     *
+     * @param keys 上一页最后一行的键值
+     * @return 参数集
+     */
+    public List<Object> toConditionValues(Object[] keys) {
+        List<Object> values = new ArrayList<>(keys.length * (keys.length + 1) / 2);
+        for (int i = 0; i < keys.length; i++) {
+            for (int j = 0; j <= i; j++) {
+                values.add(keys[j]);
+            }
+        }
+        return values;
+    }
+
+    /**
+     * 生成排序部分
+     *
+     * @return 排序语句
+     */
+    public String toOrderSQL() {
+        StringBuilder sql = new StringBuilder(" order by ");
+        for (int i = 0; i < qualifiedColumns.size(); i++) {
+            if (i > 0) {
+                sql.append(", ");
+            }
+            sql.append(qualifiedColumns.get(i)).append(descs.get(i) ? " desc" : " asc");
+        }
+        return sql.toString();
+    }
+}
@@ -0,0 +1,142 @@
+package com.egzosn.infrastructure.database.jdbc;
+
+import org.springframework.dao.InvalidDataAccessApiUsageException;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.Base64;
+import java.util.Date;
+
+/**
+ * 键集分页的续页标识，记录上一页最后一行的排序键值
+ * <p>
+ * 只支持常见的排序键类型，按类型标记逐个写入后进行URL安全的Base64编码，不使用Java序列化，
+ * 客户端传回的标识不会被反序列化成任意对象
+ */
+public final class KeysetToken {
+
+    private static final byte NULL = 0;
+    private static final byte LONG = 1;
+    private static final byte INTEGER = 2;
+    private static final byte STRING = 3;
+    private static final byte DATE = 4;
+    private static final byte SQL_DATE = 5;
+    private static final byte TIMESTAMP = 6;
+    private static final byte DECIMAL = 7;
+    private static final byte BOOLEAN = 8;
+    private static final byte DOUBLE = 9;
+
+    private KeysetToken() {
+    }
+
+    /**
+     * 编码
+     *
+     * @param keys 排序键值
+     * @return 续页标识
+     */
+    public static String encode(Object[] keys) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(keys.length);
+            for (Object key : keys) {
+                write(out, key);
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes.toByteArray());
+    }
+
+    /**
+     * 解码
+     *
+     * @param token 续页标识
+     * @param size  排序键数量
+     * @return 排序键值
+     */
+    public static Object[] decode(String token, int size) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(Base64.getUrlDecoder().decode(token)))) {
+            int length = in.readUnsignedByte();
+            if (length != size) {
+                throw new InvalidDataAccessApiUsageException(String.format("续页标识与排序字段不匹配, 需要%s个, 实际%s个", size, length));
+            }
+            Object[] keys = new Object[length];
+            for (int i = 0; i < length; i++) {
+                keys[i] = read(in);
+            }
+            return keys;
+        } catch (IOException | IllegalArgumentException e) {
+            throw new InvalidDataAccessApiUsageException("无效的续页标识: " + token, e);
+        }
+    }
+
+    private static void write(DataOutputStream out, Object key) throws IOException {
+        if (null == key) {
+            out.writeByte(NULL);
+        } else if (key instanceof Long) {
+            out.writeByte(LONG);
+            out.writeLong((Long) key);
+        } else if (key instanceof Integer || key instanceof Short || key instanceof Byte) {
+            out.writeByte(INTEGER);
+            out.writeInt(((Number) key).intValue());
+        } else if (key instanceof BigDecimal) {
+            out.writeByte(DECIMAL);
+            out.writeUTF(key.toString());
+        } else if (key instanceof Double || key instanceof Float) {
+            out.writeByte(DOUBLE);
+            out.writeDouble(((Number) key).doubleValue());
+        } else if (key instanceof java.sql.Timestamp) {
+            java.sql.Timestamp timestamp = (java.sql.Timestamp) key;
+            out.writeByte(TIMESTAMP);
+            out.writeLong(timestamp.getTime());
+            out.writeInt(timestamp.getNanos());
+        } else if (key instanceof java.sql.Date) {
+            out.writeByte(SQL_DATE);
+            out.writeLong(((Date) key).getTime());
+        } else if (key instanceof Date) {
+            out.writeByte(DATE);
+            out.writeLong(((Date) key).getTime());
+        } else if (key instanceof Boolean) {
+            out.writeByte(BOOLEAN);
+            out.writeBoolean((Boolean) key);
+        } else {
+            out.writeByte(STRING);
+            out.writeUTF(key.toString());
+        }
+    }
+
+    private static Object read(DataInputStream in) throws IOException {
+        byte type = in.readByte();
+        switch (type) {
+            case NULL:
+                return null;
+            case LONG:
+                return in.readLong();
+            case INTEGER:
+                return in.readInt();
+            case DECIMAL:
+                return new BigDecimal(in.readUTF());
+            case DOUBLE:
+                return in.readDouble();
+            case TIMESTAMP:
+                java.sql.Timestamp timestamp = new java.sql.Timestamp(in.readLong());
+                timestamp.setNanos(in.readInt());
+                return timestamp;
+            case SQL_DATE:
+                return new java.sql.Date(in.readLong());
+            case DATE:
+                return new Date(in.readLong());
+            case BOOLEAN:
+                return in.readBoolean();
+            case STRING:
+                return in.readUTF();
+            default:
+                throw new IOException("Unknown key type: " + type);
+        }
+    }
+}
@@ -0,0 +1,422 @@
+package com.egzosn.infrastructure.database.jdbc;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.ConnectionProxy;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 预编译语句缓存
+ * <p>
+ * 按物理连接缓存预编译语句，键为 sql 与是否返回自增主键，每个连接按最近最少使用淘汰；
+ * 返回的语句关闭时只清空参数并放回缓存，同一连接再次执行相同的sql时不再重新解析
+ * <p>
+ * 连接池自身会跟踪并关闭语句时(如 HikariCP)，语句创建在池代理之下的物理连接上；
+ * 缓存的语句引用着所属连接，弱引用的键无法被回收，因此按连接的生命周期定期清理已关闭连接的语句
+ * <p>
+ * MySQL 驱动已开启 cachePrepStmts 时驱动自身会缓存，可以不再使用本缓存
+ */
+public class PreparedStatementCache {
+    private static Logger logger = LoggerFactory.getLogger(PreparedStatementCache.class);
+
+    /**
+     * 每个连接默认缓存的语句数量
+     */
+    public static final int DEFAULT_CAPACITY = 256;
+
+    /**
+     * 每个连接缓存的语句数量
+     */
+    private final int capacity;
+
+    /**
+     * 清理已关闭连接的最小间隔
+     */
+    private static final long PURGE_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(30);
+
+    /**
+     * 物理连接对应的语句，JDBC连接未重写equals，按对象本身区分
+     */
+    private final ConcurrentMap<Connection, Statements> connections = new ConcurrentHashMap<>();
+
+    /**
+     * 上次清理已关闭连接的时间
+     */
+    private final AtomicLong lastPurge = new AtomicLong(System.nanoTime());
+
+    private final AtomicBoolean driverChecked = new AtomicBoolean();
+
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final AtomicLong evictionCount = new AtomicLong();
+    private final AtomicLong prepareNanos = new AtomicLong();
+
+    public PreparedStatementCache() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param capacity 每个连接缓存的语句数量
+     */
+    public PreparedStatementCache(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be positive: " + capacity);
+        }
+        this.capacity = capacity;
+    }
+
+    /**
+     * 获取预编译语句，缓存中没有或正在使用时新建
+     *
+     * @param con               连接
+     * @param sql               sql
+     * @param autoGeneratedKeys <code>Statement.RETURN_GENERATED_KEYS</code> 或 <code>Statement.NO_GENERATED_KEYS</code>
+     * @return 预编译语句，关闭时放回缓存
+     * @throws SQLException 创建语句异常
+     */
+    public PreparedStatement prepare(Connection con, String sql, int autoGeneratedKeys) throws SQLException {
+        Connection physical = physical(con);
+        if (driverChecked.compareAndSet(false, true)) {
+            checkDriverCache(physical);
+        }
+        Statements statements = statements(physical);
+        String key = autoGeneratedKeys + ":" + sql;
+        CachedStatement cached;
+        synchronized (statements) {
+            cached = statements.get(key);
+            if (null != cached && cached.statement.isClosed()) {
+                statements.remove(key);
+                cached = null;
+            }
+            if (null != cached && !cached.inUse) {
+                cached.inUse = true;
+                hitCount.incrementAndGet();
+                return cached.proxy;
+            }
+        }
+        missCount.incrementAndGet();
+        long start = System.nanoTime();
+        PreparedStatement ps = physical.prepareStatement(sql, autoGeneratedKeys);
+        prepareNanos.addAndGet(System.nanoTime() - start);
+        if (null != cached) {
+            //同一条sql正在使用，本次不缓存
+            return ps;
+        }
+        cached = new CachedStatement(statements, key, ps);
+        synchronized (statements) {
+            statements.put(key, cached);
+        }
+        return cached.proxy;
+    }
+
+    /**
+     * 获取池代理之下的物理连接
+     * <p>
+     * Spring 的连接代理(如 <code>JdbcTemplate.execute(ConnectionCallback)</code> 中屏蔽关闭的代理)
+     * unwrap 时返回代理自身，且isClosed始终为false，需要先取出目标连接
+     *
+     * @param con 连接
+     * @return 物理连接
+     */
+    private Connection physical(Connection con) {
+        while (con instanceof ConnectionProxy) {
+            Connection target = ((ConnectionProxy) con).getTargetConnection();
+            if (null == target || target == con) {
+                break;
+            }
+            con = target;
+        }
+        try {
+            Connection physical = con.unwrap(Connection.class);
+            return null == physical ? con : physical;
+        } catch (SQLException e) {
+            return con;
+        }
+    }
+
+    /**
+     * 获取连接对应的语句，命中时不加全局锁；新连接加入或到达清理间隔时清理已关闭的连接
+     *
+     * @param physical 物理连接
+     * @return 语句
+     */
+    private Statements statements(Connection physical) {
+        Statements statements = connections.get(physical);
+        long now = System.nanoTime();
+        long last = lastPurge.get();
+        if ((null == statements || now - last >= PURGE_INTERVAL_NANOS) && lastPurge.compareAndSet(last, now)) {
+            purge();
+        }
+        if (null == statements) {
+            Statements created = new Statements();
+            statements = connections.putIfAbsent(physical, created);
+            if (null == statements) {
+                statements = created;
+            }
+        }
+        return statements;
+    }
+
+    /**
+     * 移除已关闭连接及其语句，连接池回收连接后不再持有
+     */
+    private void purge() {
+        for (Iterator<Map.Entry<Connection, Statements>> it = connections.entrySet().iterator(); it.hasNext(); ) {
+            Map.Entry<Connection, Statements> entry = it.next();
+            if (isClosed(entry.getKey())) {
+                it.remove();
+                entry.getValue().evictAll();
+            }
+        }
+    }
+
+    private static boolean isClosed(Connection con) {
+        try {
+            return con.isClosed();
+        } catch (SQLException e) {
+            return true;
+        }
+    }
+
+    /**
+     * MySQL 驱动未开启预编译缓存时给出提示
+     *
+     * @param con 连接
+     */
+    private void checkDriverCache(Connection con) {
+        try {
+            DatabaseMetaData metaData = con.getMetaData();
+            String url = metaData.getURL();
+            if (null == url || !metaData.getDriverName().toLowerCase().contains("mysql")) {
+                return;
+            }
+            if (url.contains("cachePrepStmts=true")) {
+                logger.info("MySQL driver already caches prepared statements: {}", url);
+            } else if (!url.contains("useServerPrepStmts=true")) {
+                logger.info("MySQL driver prepares statements on the client, add useServerPrepStmts=true&cachePrepStmts=true to skip server side parsing: {}", url);
+            }
+        } catch (SQLException e) {
+            logger.debug("can not read driver settings", e);
+        }
+    }
+
+    /**
+     * 关闭并清空所有缓存的语句
+     */
+    public void clear() {
+        for (Iterator<Statements> it = connections.values().iterator(); it.hasNext(); ) {
+            Statements statements = it.next();
+            it.remove();
+            statements.evictAll();
+        }
+    }
+
+    /**
+     * 缓存的语句数量
+     *
+     * @return 语句数量
+     */
+    public int size() {
+        int size = 0;
+        for (Statements statements : connections.values()) {
+            synchronized (statements) {
+                size += statements.size();
+            }
+        }
+        return size;
+    }
+
+    /**
+     * 缓存了语句的连接数量
+     *
+     * @return 连接数量
+     */
+    public int getConnectionCount() {
+        return connections.size();
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    public long getEvictionCount() {
+        return evictionCount.get();
+    }
+
+    public double getHitRatio() {
+        long hits = hitCount.get();
+        long total = hits + missCount.get();
+        return 0 == total ? 0 : (double) hits / total;
+    }
+
+    /**
+     * 平均每次解析sql的耗时，毫秒
+     *
+     * @return 平均耗时
+     */
+    public double getAvgPrepareMillis() {
+        long misses = missCount.get();
+        return 0 == misses ? 0 : prepareNanos.get() / 1e6 / misses;
+    }
+
+    /**
+     * 估算命中缓存节省的解析耗时，毫秒
+     *
+     * @return 节省的耗时
+     */
+    public double getSavedMillis() {
+        return getAvgPrepareMillis() * hitCount.get();
+    }
+
+    @Override
+    public String toString() {
+        return "PreparedStatementCache{" +
+                "size=" + size() +
+                ", capacity=" + capacity +
+                ", hitCount=" + hitCount +
+                ", missCount=" + missCount +
+                ", evictionCount=" + evictionCount +
+                ", avgPrepareMillis=" + getAvgPrepareMillis() +
+                ", savedMillis=" + getSavedMillis() +
+                '}';
+    }
+
+    /**
+     * 一个连接的语句，按最近最少使用淘汰
+     */
+    private class Statements extends LinkedHashMap<String, CachedStatement> {
+
+        Statements() {
+            super(16, 0.75f, true);
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CachedStatement> eldest) {
+            if (size() <= capacity) {
+                return false;
+            }
+            CachedStatement cached = eldest.getValue();
+            cached.evicted = true;
+            if (!cached.inUse) {
+                cached.closeQuietly();
+            }
+            evictionCount.incrementAndGet();
+            return true;
+        }
+
+        /**
+         * 淘汰全部语句，正在使用的语句放回时关闭
+         */
+        synchronized void evictAll() {
+            for (CachedStatement cached : values()) {
+                cached.evicted = true;
+                if (!cached.inUse) {
+                    cached.closeQuietly();
+                }
+            }
+            clear();
+        }
+    }
+
+    /**
+     * 缓存的语句，对外返回代理，代理关闭时放回缓存
+     */
+    private static class CachedStatement implements InvocationHandler {
+        private final Statements statements;
+        private final String key;
+        private final PreparedStatement statement;
+        private final PreparedStatement proxy;
+        /**
+         * 是否被取出使用，由所属 {@link Statements} 的锁保护
+         */
+        private boolean inUse = true;
+        /**
+         * 是否已被淘汰，放回时直接关闭
+         */
+        private boolean evicted = false;
+
+        CachedStatement(Statements statements, String key, PreparedStatement statement) {
+            this.statements = statements;
+            this.key = key;
+            this.statement = statement;
+            this.proxy = (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(), new Class[]{PreparedStatement.class}, this);
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    release();
+                    return null;
+                case "isClosed":
+                    synchronized (statements) {
+                        return !inUse || statement.isClosed();
+                    }
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                default:
+            }
+            try {
+                return method.invoke(statement, args);
+            } catch (InvocationTargetException e) {
+                throw e.getTargetException();
+            }
+        }
+
+        /**
+         * 清空参数后放回缓存，清空失败或已被淘汰时关闭
+         */
+        private void release() {
+            synchronized (statements) {
+                if (!inUse) {
+                    return;
+                }
+                inUse = false;
+                if (!evicted) {
+                    try {
+                        statement.clearParameters();
+                        statement.clearBatch();
+                        return;
+                    } catch (SQLException e) {
+                        statements.remove(key);
+                    }
+                }
+            }
+            closeQuietly();
+        }
+
+        private void closeQuietly() {
+            try {
+                statement.close();
+            } catch (SQLException e) {
+                logger.debug("close cached statement failed", e);
+            }
+        }
+    }
+}
@@ -37,6 +37,10 @@ public class PreparedStatementCreator implements org.springframework.jdbc.core.P
      * Successful record number
      */
     private int rowCont = 0;
+    /**
+     * 预编译语句缓存，为null时每次新建
+     */
+    private PreparedStatementCache statementCache;
 
     /**
      *
@@ -99,7 +103,7 @@ public class PreparedStatementCreator implements org.springframework.jdbc.core.P
 
     @Override
     public PreparedStatement createPreparedStatement(Connection con) throws SQLException {
-        PreparedStatement ps = con.prepareStatement(this.sql, autoGeneratedKey);
+        PreparedStatement ps = null == statementCache ? con.prepareStatement(this.sql, autoGeneratedKey) : statementCache.prepare(con, this.sql, autoGeneratedKey);
 
         if (null != args){
             SQLTools.fillStatement(ps, args);
@@ -128,4 +132,12 @@ public class PreparedStatementCreator implements org.springframework.jdbc.core.P
     public int getRowCont() {
         return rowCont;
     }
+
+    public PreparedStatementCache getStatementCache() {
+        return statementCache;
+    }
+
+    public void setStatementCache(PreparedStatementCache statementCache) {
+        this.statementCache = statementCache;
+    }
 }
\ No newline at end of file
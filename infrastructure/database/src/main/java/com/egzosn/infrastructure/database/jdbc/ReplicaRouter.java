@@ -0,0 +1,285 @@
+package com.egzosn.infrastructure.database.jdbc;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * 读写分离路由，写操作使用主库，读操作按最少未完成请求数分配到从库
+ * <p>
+ * 以下情况读操作仍然使用主库:
+ * <ul>
+ *     <li>存在事务时，保证事务内读到自身的写入</li>
+ *     <li>当前线程写入后的 {@link #stickyMillis} 毫秒内，避免从库复制延迟导致读不到刚写入的数据</li>
+ *     <li>在 {@link #primary(Supplier)} 内执行时</li>
+ * </ul>
+ * 写入时间按线程记录，多个仓库共用，请求结束时可调用 {@link #reset()} 清除；
+ * 提交到其他线程执行的操作需要通过 {@link #propagate(Supplier)} 包装，才能继承以上状态并把写入带回提交的线程
+ * <code>
+ *     ReplicaRouter router = new ReplicaRouter(new JdbcTemplate(replica1), new JdbcTemplate(replica2));
+ *     repository.setReplicaRouter(router);
+ * </code>
+ */
+public class ReplicaRouter {
+
+    /**
+     * 默认写入后读主库的时间，毫秒
+     */
+    public static final long DEFAULT_STICKY_MILLIS = 1000;
+
+    /**
+     * 当前线程最后一次写入的时间，其他线程执行的操作写入后会更新提交线程的记录
+     */
+    private static final ThreadLocal<AtomicLong> LAST_WRITE = ThreadLocal.withInitial(AtomicLong::new);
+
+    /**
+     * 当前线程强制读主库的嵌套层数
+     */
+    private static final ThreadLocal<int[]> PRIMARY_DEPTH = ThreadLocal.withInitial(() -> new int[1]);
+
+    private final List<JdbcTemplate> replicas;
+
+    /**
+     * 各从库未完成的请求数，下标与从库一致
+     */
+    private final AtomicInteger[] outstanding;
+
+    /**
+     * 请求数相同时轮流选择的起点
+     */
+    private final AtomicInteger next = new AtomicInteger();
+
+    /**
+     * 写入后读主库的时间，毫秒
+     */
+    private final long stickyMillis;
+
+    private final AtomicLong replicaReads = new AtomicLong();
+
+    private final AtomicLong primaryReads = new AtomicLong();
+
+    /**
+     * @param replicas 从库
+     */
+    public ReplicaRouter(JdbcTemplate... replicas) {
+        this(Arrays.asList(replicas), DEFAULT_STICKY_MILLIS);
+    }
+
+    /**
+     * @param replicas     从库
+     * @param stickyMillis 写入后读主库的时间，毫秒，0为写入后立即读从库
+     */
+    public ReplicaRouter(List<JdbcTemplate> replicas, long stickyMillis) {
+        if (stickyMillis < 0) {
+            throw new IllegalArgumentException("stickyMillis must not be negative: " + stickyMillis);
+        }
+        this.replicas = Collections.unmodifiableList(new ArrayList<>(replicas));
+        this.outstanding = new AtomicInteger[this.replicas.size()];
+        for (int i = 0; i < outstanding.length; i++) {
+            outstanding[i] = new AtomicInteger();
+        }
+        this.stickyMillis = stickyMillis;
+    }
+
+    /**
+     * 执行读操作
+     *
+     * @param primary 主库
+     * @param action  读操作
+     * @param <X>     返回的对象类型
+     *
+     * @return 读操作的结果
+     */
+    public <X> X read(JdbcTemplate primary, Function<JdbcTemplate, X> action) {
+        int index = acquire();
+        if (index < 0) {
+            return action.apply(primary);
+        }
+        try {
+            return action.apply(replicas.get(index));
+        } finally {
+            release(index);
+        }
+    }
+
+    /**
+     * 选择读操作使用的从库并计入未完成请求，使用完毕后必须调用 {@link #release(int)}
+     *
+     * @return 从库的下标，应使用主库时返回-1
+     */
+    public int acquire() {
+        if (replicas.isEmpty() || isPrimaryRequired()) {
+            primaryReads.incrementAndGet();
+            return -1;
+        }
+        int size = replicas.size();
+        int start = Math.floorMod(next.getAndIncrement(), size);
+        int index = start;
+        int min = Integer.MAX_VALUE;
+        for (int i = 0; i < size; i++) {
+            int candidate = (start + i) % size;
+            int count = outstanding[candidate].get();
+            if (count < min) {
+                min = count;
+                index = candidate;
+            }
+        }
+        outstanding[index].incrementAndGet();
+        replicaReads.incrementAndGet();
+        return index;
+    }
+
+    /**
+     * 读操作完成，释放 {@link #acquire()} 计入的未完成请求
+     *
+     * @param index 从库的下标，-1时忽略
+     */
+    public void release(int index) {
+        if (index >= 0) {
+            outstanding[index].decrementAndGet();
+        }
+    }
+
+    /**
+     * 获取从库
+     *
+     * @param index 从库的下标
+     *
+     * @return 从库
+     */
+    public JdbcTemplate getReplica(int index) {
+        return replicas.get(index);
+    }
+
+    /**
+     * 当前线程的读操作是否必须使用主库
+     *
+     * @return 是否必须使用主库
+     */
+    public boolean isPrimaryRequired() {
+        if (PRIMARY_DEPTH.get()[0] > 0 || TransactionSynchronizationManager.isActualTransactionActive()) {
+            return true;
+        }
+        long lastWrite = LAST_WRITE.get().get();
+        return lastWrite > 0 && System.currentTimeMillis() - lastWrite < stickyMillis;
+    }
+
+    /**
+     * 记录当前线程的写入，之后的 {@link #stickyMillis} 毫秒内读主库
+     */
+    public static void markWrite() {
+        LAST_WRITE.get().accumulateAndGet(System.currentTimeMillis(), Math::max);
+    }
+
+    /**
+     * 清除当前线程的写入记录，线程池中的线程处理新请求前调用
+     */
+    public static void reset() {
+        LAST_WRITE.remove();
+        PRIMARY_DEPTH.remove();
+    }
+
+    /**
+     * 包装提交到其他线程执行的操作
+     * <p>
+     * 执行时使用当前线程的写入时间与强制读主库状态，执行期间的写入记录回当前线程，
+     * 执行完毕后恢复执行线程原来的状态；事务不会传递，存在事务时应在当前线程执行
+     *
+     * @param action 操作
+     * @param <X>    返回的对象类型
+     *
+     * @return 包装后的操作
+     */
+    public static <X> Supplier<X> propagate(Supplier<X> action) {
+        final AtomicLong callerWrite = LAST_WRITE.get();
+        final long lastWrite = callerWrite.get();
+        final int depth = PRIMARY_DEPTH.get()[0];
+        return () -> {
+            AtomicLong write = LAST_WRITE.get();
+            int[] primaryDepth = PRIMARY_DEPTH.get();
+            long savedWrite = write.get();
+            int savedDepth = primaryDepth[0];
+            if (write != callerWrite) {
+                write.set(lastWrite);
+            }
+            primaryDepth[0] = savedDepth + depth;
+            try {
+                return action.get();
+            } finally {
+                primaryDepth[0] = savedDepth;
+                if (write != callerWrite) {
+                    long written = write.get();
+                    if (written > lastWrite) {
+                        callerWrite.accumulateAndGet(written, Math::max);
+                    }
+                    write.set(savedWrite);
+                }
+            }
+        };
+    }
+
+    /**
+     * 在主库上执行，期间所有读操作都使用主库
+     *
+     * @param action 操作
+     * @param <X>    返回的对象类型
+     *
+     * @return 操作的结果
+     */
+    public static <X> X primary(Supplier<X> action) {
+        int[] depth = PRIMARY_DEPTH.get();
+        depth[0]++;
+        try {
+            return action.get();
+        } finally {
+            depth[0]--;
+        }
+    }
+
+    /**
+     * 获取各从库未完成的请求数
+     *
+     * @return 未完成的请求数，下标与从库一致
+     */
+    public int[] getOutstanding() {
+        int[] counts = new int[outstanding.length];
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = outstanding[i].get();
+        }
+        return counts;
+    }
+
+    /**
+     * 获取使用从库的读操作次数
+     *
+     * @return 次数
+     */
+    public long getReplicaReads() {
+        return replicaReads.get();
+    }
+
+    /**
+     * 获取使用主库的读操作次数
+     *
+     * @return 次数
+     */
+    public long getPrimaryReads() {
+        return primaryReads.get();
+    }
+
+    public List<JdbcTemplate> getReplicas() {
+        return replicas;
+    }
+
+    public long getStickyMillis() {
+        return stickyMillis;
+    }
+}
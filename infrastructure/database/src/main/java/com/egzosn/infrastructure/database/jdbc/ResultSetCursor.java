@@ -0,0 +1,135 @@
+package com.egzosn.infrastructure.database.jdbc;
+
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.jdbc.support.SQLExceptionTranslator;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * 结果集游标，逐行映射，读取完毕或关闭时释放结果集、语句与连接
+ */
+public class ResultSetCursor<T> implements Iterator<T>, AutoCloseable {
+
+    private final DataSource dataSource;
+    private final Connection con;
+    private final PreparedStatement ps;
+    private final ResultSet rs;
+    private final RowMapper<T> rowMapper;
+    private final SQLExceptionTranslator translator;
+    private final String sql;
+
+    private int rowNum = 0;
+    /**
+     * 是否已移动到下一行但未读取
+     */
+    private boolean fetched = false;
+    private boolean hasNext = false;
+    private boolean closed = false;
+    /**
+     * 关闭后执行的操作
+     */
+    private Runnable closeAction;
+
+    /**
+     * 打开游标
+     *
+     * @param dataSource 数据源, 参与当前事务的连接
+     * @param creator    语句创建器
+     * @param rowMapper  行映射器
+     * @param translator 异常转换器
+     * @param <T>        映射的对象类型
+     * @return 游标
+     */
+    public static <T> ResultSetCursor<T> open(DataSource dataSource, StreamingPreparedStatementCreator creator, RowMapper<T> rowMapper, SQLExceptionTranslator translator) {
+        Connection con = DataSourceUtils.getConnection(dataSource);
+        PreparedStatement ps = null;
+        try {
+            ps = creator.createPreparedStatement(con);
+            return new ResultSetCursor<>(dataSource, con, ps, ps.executeQuery(), rowMapper, translator, creator.getSql());
+        } catch (SQLException e) {
+            JdbcUtils.closeStatement(ps);
+            DataSourceUtils.releaseConnection(con, dataSource);
+            throw translator.translate("ResultSetCursor", creator.getSql(), e);
+        }
+    }
+
+    private ResultSetCursor(DataSource dataSource, Connection con, PreparedStatement ps, ResultSet rs, RowMapper<T> rowMapper, SQLExceptionTranslator translator, String sql) {
+        this.dataSource = dataSource;
+        this.con = con;
+        this.ps = ps;
+        this.rs = rs;
+        this.rowMapper = rowMapper;
+        this.translator = translator;
+        this.sql = sql;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (closed) {
+            return false;
+        }
+        if (!fetched) {
+            try {
+                hasNext = rs.next();
+            } catch (SQLException e) {
+                close();
+                throw translator.translate("ResultSetCursor", sql, e);
+            }
+            fetched = true;
+            if (!hasNext) {
+                close();
+            }
+        }
+        return hasNext;
+    }
+
+    @Override
+    public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        fetched = false;
+        try {
+            return rowMapper.mapRow(rs, rowNum++);
+        } catch (SQLException e) {
+            close();
+            throw translator.translate("ResultSetCursor", sql, e);
+        }
+    }
+
+    /**
+     * 设置关闭后执行的操作，读取完毕自动关闭时同样执行
+     *
+     * @param closeAction 关闭后执行的操作
+     * @return 游标
+     */
+    public ResultSetCursor<T> onClose(Runnable closeAction) {
+        this.closeAction = closeAction;
+        return this;
+    }
+
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            JdbcUtils.closeResultSet(rs);
+            JdbcUtils.closeStatement(ps);
+            DataSourceUtils.releaseConnection(con, dataSource);
+        } finally {
+            if (null != closeAction) {
+                closeAction.run();
+            }
+        }
+    }
+}
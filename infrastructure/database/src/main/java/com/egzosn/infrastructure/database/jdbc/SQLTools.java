@@ -4,17 +4,17 @@
 package com.egzosn.infrastructure.database.jdbc;
 
 
+import com.egzosn.infrastructure.params.QueryParams;
 import org.springframework.util.StringUtils;
 
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.Reader;
 import java.sql.*;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 
 /**
@@ -23,7 +23,6 @@ import java.util.regex.Pattern;
  *Wed Nov 162 17:31:32 CST 2015
  */
 public class SQLTools {
-	private  static final Pattern pattern = Pattern.compile(":(\\w+)[, ]?");
 	/**
 	 *  获取统计的sql
 	 * @param sql 原始sql
@@ -150,6 +149,88 @@ public class SQLTools {
 	}
 
 
+	/**
+	 * 为sql追加条件，插入到最外层的 group by、order by 或 limit 之前，
+	 * 最外层已有where时原条件加括号后以and连接 <code>where (原条件) and (条件)</code>，否则添加where；
+	 * 单引号、双引号与反引号中的关键字不作为子句
+	 * @param sql 原始sql
+	 * @param condition 条件
+	 * @return 追加条件后的sql
+	 */
+	public static String addCondition(String sql, String condition) {
+		int where = -1;
+		int end = sql.length();
+		int depth = 0;
+		char quote = 0;
+		for (int i = 0, length = sql.length(); i < length; i++) {
+			char c = sql.charAt(i);
+			if (0 != quote) {
+				if (c == '\\' && quote != '`') {
+					i++;
+				} else if (c == quote) {
+					quote = 0;
+				}
+			} else if (c == '\'' || c == '"' || c == '`') {
+				quote = c;
+			} else if (c == '(') {
+				depth++;
+			} else if (c == ')') {
+				depth--;
+			} else if (depth == 0 && i > 0 && Character.isWhitespace(sql.charAt(i - 1))) {
+				if (-1 == where && isKeyword(sql, i, "WHERE")) {
+					where = i;
+				} else if (isKeyword(sql, i, "GROUP") || isKeyword(sql, i, "ORDER") || isKeyword(sql, i, "LIMIT")) {
+					end = i;
+					break;
+				}
+			}
+		}
+		StringBuilder sb = new StringBuilder(sql.length() + condition.length() + 16);
+		if (-1 == where) {
+			sb.append(sql, 0, end);
+			if (end > 0 && !Character.isWhitespace(sql.charAt(end - 1))) {
+				sb.append(' ');
+			}
+			sb.append("where (").append(condition).append(") ");
+		} else {
+			sb.append(sql, 0, where).append("where (").append(sql.substring(where + "WHERE".length(), end).trim())
+					.append(") and (").append(condition).append(") ");
+		}
+		return sb.append(sql, end, sql.length()).toString();
+	}
+
+	/**
+	 * 指定位置是否为独立的关键字
+	 * @param sql sql
+	 * @param index 位置
+	 * @param keyword 大写关键字
+	 * @return 是否为关键字
+	 */
+	private static boolean isKeyword(String sql, int index, String keyword) {
+		int end = index + keyword.length();
+		return sql.regionMatches(true, index, keyword, 0, keyword.length())
+				&& (end == sql.length() || !Character.isLetterOrDigit(sql.charAt(end)) && sql.charAt(end) != '_');
+	}
+
+	/**
+	 * 拼接分页部分
+	 * @param offset 偏移量
+	 * @param limit 读取行数
+	 * @return 拼装 分页sql
+	 */
+	public static String forOffset(long offset, int limit) {
+		return  String.format(" limit %s,%s", offset, limit);
+	}
+
+	/**
+	 * 拼接分页大小部分
+	 * @param pageSize 每页大小
+	 * @return 拼装 分页sql
+	 */
+	public static String forLimit(int pageSize) {
+		return  String.format(" limit %s", pageSize);
+	}
+
 	/**
 	 * 设置 参数
 	 * @param pst 代替对象
@@ -215,6 +296,27 @@ public class SQLTools {
 
 	}
 
+	/**
+	 * 将单行插入语句改写为多行插入语句
+	 * <code> insert into `t`(`a`, `b`) values(?, ?), (?, ?) </code>
+	 * @param insertSql 单行插入语句
+	 * @param rows 行数
+	 * @return 多行插入语句
+	 */
+	public static String forMultiRowInsert(String insertSql, int rows) {
+		int start = insertSql.lastIndexOf(" values(");
+		if (-1 == start) {
+			throw new IllegalArgumentException("Not an insert statement: " + insertSql);
+		}
+		String row = insertSql.substring(start + " values".length());
+		StringBuilder sql = new StringBuilder(insertSql.length() + (row.length() + 2) * (rows - 1));
+		sql.append(insertSql);
+		for (int i = 1; i < rows; i++) {
+			sql.append(", ").append(row);
+		}
+		return sql.toString();
+	}
+
 	/**
 	 * 生成更新语句
 	 * @param tableName 表名
@@ -329,34 +431,14 @@ public class SQLTools {
 
 
 	/**
-	 * 冒号形式的sql转化为问号形式
+	 * 冒号形式的sql转化为问号形式，解析结果按sql缓存，字符串与注释中的冒号不作为参数
 	 * @param sql 原始sql
 	 * @param attrs 属性
 	 * @param values 转化后的属性集
 	 * @return 转化后的sql
 	 */
 	public static String forConverSQL(String sql, Map<String, Object> attrs, List<Object> values) {
-		Matcher matcher = pattern.matcher(sql);
-		String rexp = null;
-		while (matcher.find()) {
-			String group = matcher.group(1);
-			Object ov = attrs.get(group);
-			if (ov instanceof Collection) {
-				StringBuilder sb = new StringBuilder();
-				Collection vs = (Collection) ov;
-				for (Object v : vs) {
-					sb.append("?,");
-					values.add(v);
-				}
-				sb.deleteCharAt(sb.length() - 1);
-				rexp = sb.toString();
-			} else {
-				values.add(ov);
-				rexp = "?";
-			}
-			sql = sql.replace(String.format(":%s", group), rexp);
-		}
-		return sql;
+		return QueryParams.toFormatSQL(sql, attrs, values);
 	}
 
 	/**
@@ -378,6 +460,65 @@ public class SQLTools {
 		return sb.toString();
 	}
 
+	/**
+	 * in 中最多的参数个数，超出后分批
+	 */
+	public static final int MAX_IN_SIZE = 1000;
+
+	/**
+	 * in 参数个数向上取整到桶大小 1,2,4...512,{@link #MAX_IN_SIZE}，
+	 * 相同桶的参数个数生成相同的sql，便于数据库与驱动缓存预编译语句
+	 *
+	 * @param num 参数个数
+	 *
+	 *            <code> inBucketSize(5)  = 8 </code>
+	 * @return 桶大小
+	 */
+	public static int inBucketSize(int num) {
+		if (num <= 1) {
+			return 1;
+		}
+		return Math.min(Integer.highestOneBit(num - 1) << 1, MAX_IN_SIZE);
+	}
+
+	/**
+	 * in 参数补齐到桶大小，不足的位置重复最后一个值，不影响查询与删除的结果
+	 *
+	 * @param values 参数，个数不超过 {@link #MAX_IN_SIZE}
+	 * @return 补齐后的参数
+	 */
+	public static Object[] padInValues(Collection<?> values) {
+		Object[] padded = new Object[inBucketSize(values.size())];
+		int i = 0;
+		for (Object value : values) {
+			padded[i++] = value;
+		}
+		for (Object last = i > 0 ? padded[i - 1] : null; i < padded.length; i++) {
+			padded[i] = last;
+		}
+		return padded;
+	}
+
+	/**
+	 * in 参数按 {@link #MAX_IN_SIZE} 分批
+	 *
+	 * @param values 参数
+	 * @param <E> 参数类型
+	 * @return 分批后的参数
+	 */
+	public static <E> List<List<E>> partitionIn(Collection<E> values) {
+		List<List<E>> chunks = new ArrayList<>((values.size() + MAX_IN_SIZE - 1) / MAX_IN_SIZE);
+		List<E> chunk = null;
+		for (E value : values) {
+			if (null == chunk || chunk.size() == MAX_IN_SIZE) {
+				chunk = new ArrayList<>(Math.min(MAX_IN_SIZE, values.size()));
+				chunks.add(chunk);
+			}
+			chunk.add(value);
+		}
+		return chunks;
+	}
+
 
 
 }
@@ -0,0 +1,95 @@
+package com.egzosn.infrastructure.database.jdbc;
+
+import java.util.*;
+
+/**
+ * 分表结果归并
+ * <p>
+ * 每张分表的结果已按相同的排序返回，通过小顶堆进行k路归并，
+ * 每取出一行只比较 log(k) 次，读取到 offset + limit 行后停止，不再对全部结果排序
+ */
+public final class ShardMerger {
+
+    private ShardMerger() {
+    }
+
+    /**
+     * 归并多个有序结果
+     *
+     * @param shards     各分表的结果，每个结果按 comparator 有序
+     * @param comparator 排序，为null时按分表顺序依次连接
+     * @param offset     跳过的行数
+     * @param limit      读取的行数，小于1时读取全部
+     * @param <X>        结果类型
+     * @return 归并后的结果
+     */
+    public static <X> List<X> merge(List<List<X>> shards, Comparator<? super X> comparator, int offset, int limit) {
+        int total = 0;
+        for (List<X> shard : shards) {
+            total += shard.size();
+        }
+        int end = limit < 1 ? total : (int) Math.min(total, (long) offset + limit);
+        if (offset >= end) {
+            return new ArrayList<>(0);
+        }
+        List<X> merged = new ArrayList<>(end - offset);
+        if (null == comparator) {
+            int index = 0;
+            for (List<X> shard : shards) {
+                for (X row : shard) {
+                    if (index >= end) {
+                        return merged;
+                    }
+                    if (index++ >= offset) {
+                        merged.add(row);
+                    }
+                }
+            }
+            return merged;
+        }
+        //堆中为各分表的游标，按当前行排序，相同时按分表顺序保证结果稳定
+        PriorityQueue<Cursor<X>> heap = new PriorityQueue<>(Math.max(1, shards.size()), (a, b) -> {
+            int c = comparator.compare(a.current, b.current);
+            return 0 == c ? Integer.compare(a.shard, b.shard) : c;
+        });
+        for (int i = 0; i < shards.size(); i++) {
+            Iterator<X> iterator = shards.get(i).iterator();
+            if (iterator.hasNext()) {
+                heap.add(new Cursor<>(i, iterator));
+            }
+        }
+        for (int index = 0; index < end; index++) {
+            Cursor<X> cursor = heap.poll();
+            if (index >= offset) {
+                merged.add(cursor.current);
+            }
+            if (cursor.advance()) {
+                heap.add(cursor);
+            }
+        }
+        return merged;
+    }
+
+    /**
+     * 分表结果的游标
+     */
+    private static class Cursor<X> {
+        private final int shard;
+        private final Iterator<X> iterator;
+        private X current;
+
+        Cursor(int shard, Iterator<X> iterator) {
+            this.shard = shard;
+            this.iterator = iterator;
+            this.current = iterator.next();
+        }
+
+        boolean advance() {
+            if (iterator.hasNext()) {
+                current = iterator.next();
+                return true;
+            }
+            return false;
+        }
+    }
+}
@@ -1,21 +1,34 @@
 package com.egzosn.infrastructure.database.jdbc;
 
+import com.egzosn.infrastructure.database.jdbc.annotations.Cache;
 import com.egzosn.infrastructure.database.jdbc.annotations.Id;
 import com.egzosn.infrastructure.database.jdbc.annotations.Table;
+import com.egzosn.infrastructure.database.jdbc.annotations.WriteBehind;
 import com.egzosn.infrastructure.database.splittable.SplitTable;
 import com.egzosn.infrastructure.database.jdbc.id.GenerationType;
 import com.egzosn.infrastructure.database.jdbc.id.IdField;
 import com.egzosn.infrastructure.database.jdbc.annotations.GeneratedValue;
 import com.egzosn.infrastructure.database.splittable.SplitTableField;
 import com.egzosn.infrastructure.database.splittable.TableHandler;
+import com.egzosn.infrastructure.database.utils.LruCache;
+import com.egzosn.infrastructure.database.utils.MethodAccessors;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.BeanInstantiationException;
 import org.springframework.beans.BeanUtils;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.util.ClassUtils;
 import org.springframework.util.StringUtils;
 import java.io.Serializable;
 import java.lang.reflect.Field;
 import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
 
 import static com.egzosn.infrastructure.database.utils.FieldToMethod.getReadMethod;
 import static com.egzosn.infrastructure.database.utils.FieldToMethod.getWriteMethod;
@@ -29,6 +42,21 @@ import static com.egzosn.infrastructure.database.utils.FieldToMethod.getWriteMet
 public class SingleTableEntityPersister<T> {
     private static Logger logger = LoggerFactory .getLogger(SingleTableEntityPersister.class);
 
+    /**
+     * 每个实体最多缓存的结果集列布局数量
+     */
+    private static final int MAX_ROW_MAPPERS = 256;
+
+    /**
+     * 每个实体最多缓存的查询语句数量
+     */
+    private static final int MAX_SQL_ROW_MAPPERS = 512;
+
+    /**
+     * 每个实体最多缓存的分表语句数量
+     */
+    private static final int MAX_TABLE_SQLS = 1024;
+
     /**
      * 表名
      */
@@ -62,6 +90,11 @@ public class SingleTableEntityPersister<T> {
      *   {@link #sqlUpdateByRowIdString}
      */
     private List<String>[] columnNames = new  List[2];
+
+    /**
+     * 与 {@link #columnNames} 一一对应的列，取值时不再按列名查找
+     */
+    private Column[][] boundColumns = new Column[2][];
     /**
      * ORM对应的插入语句
      */
@@ -76,6 +109,50 @@ public class SingleTableEntityPersister<T> {
      */
     private String sqlDeleteString;
 
+    /**
+     * 语句模板中表名的占位符
+     */
+    private String tablePlaceholder;
+
+    /**
+     * 表名对应渲染好的语句，命中时直接返回，不再拼接字符串
+     */
+    private final ConcurrentMap<String, TableSql> tableSqls = new ConcurrentHashMap<>();
+
+    /**
+     * 实体构造器
+     */
+    private Supplier<T> instantiator;
+
+    /**
+     * 实体二级缓存配置，实体标注 {@link Cache} 时开启
+     */
+    private Cache cache;
+
+    /**
+     * 异步批量写入配置，实体标注 {@link WriteBehind} 时开启
+     */
+    private WriteBehind writeBehind;
+
+    /**
+     * 结果集列布局对应的行映射器
+     */
+    private final ConcurrentMap<String, EntityRowMapper<T>> rowMappers = new ConcurrentHashMap<>();
+
+    /**
+     * 查询语句对应的行映射器，同一语句的结果集列布局不变，命中后无需再读取元数据
+     */
+    private final LruCache<String, EntityRowMapper<T>> sqlRowMappers = new LruCache<>(MAX_SQL_ROW_MAPPERS);
+
+    /**
+     * 编译时生成的实体访问器，不存在或与实体不一致时为null
+     */
+    private EntityAccessor<T> accessor;
+
+    /**
+     * 字段名对应的访问器字段下标
+     */
+    private Map<String, Integer> accessorFields;
 
 
 
@@ -96,17 +173,74 @@ public class SingleTableEntityPersister<T> {
             tableName = table.name();
         }
         initSplitTable();
+        instantiator = createInstantiator();
+        writeBehind = entityClass.getAnnotation(WriteBehind.class);
+        cache = entityClass.getAnnotation(Cache.class);
         try {
             setColumns();
         } catch (NoSuchMethodException e) {
             logger.error("找不到方法", e);
         }
-        sqlInsertString = SQLTools.generateInsertString(String.format("$$%s$$", tableName), columnNames[0]).toString();
-        sqlUpdateByRowIdString = SQLTools.generateUpdateByRowIdString(String.format("$$%s$$", tableName), columnNames[1], idField.getColumn()).toString();
+        tablePlaceholder = String.format("$$%s$$", tableName);
+        initAccessor();
+        if (null != accessor) {
+            instantiator = accessor::newInstance;
+            sqlInsertString = accessor.getInsertSql();
+            sqlUpdateByRowIdString = accessor.getUpdateByRowIdSql();
+            columnNames[1].add(idField.getColumn());
+        } else {
+            sqlInsertString = SQLTools.generateInsertString(tablePlaceholder, columnNames[0]).toString();
+            sqlUpdateByRowIdString = SQLTools.generateUpdateByRowIdString(tablePlaceholder, columnNames[1], idField.getColumn()).toString();
+        }
+        for (int i = 0; i < columnNames.length; i++) {
+            boundColumns[i] = new Column[columnNames[i].size()];
+            for (int j = 0; j < boundColumns[i].length; j++) {
+                boundColumns[i][j] = columns.get(columnNames[i].get(j));
+            }
+        }
         sqlDeleteString = String.format("delete from %s ", tableName);
+        tableSqls.clear();
     }
 
 
+    /**
+     * 查找编译时生成的实体访问器，列与反射得到的不一致时(例如实体修改后未重新编译)不使用
+     */
+    private void initAccessor() {
+        accessor = null;
+        accessorFields = null;
+        String accessorName = entityClass.getName() + EntityAccessor.SUFFIX;
+        ClassLoader classLoader = entityClass.getClassLoader();
+        if (!ClassUtils.isPresent(accessorName, classLoader)) {
+            return;
+        }
+        EntityAccessor<T> candidate;
+        try {
+            candidate = (EntityAccessor<T>) BeanUtils.instantiateClass(ClassUtils.forName(accessorName, classLoader));
+        } catch (ClassNotFoundException | RuntimeException | LinkageError e) {
+            logger.warn("实体访问器 {} 无法创建，使用反射", accessorName, e);
+            return;
+        }
+        List<String> updateColumnNames = new ArrayList<>(columnNames[1]);
+        if (null != idField) {
+            updateColumnNames.add(idField.getColumn());
+        }
+        if (candidate.getEntityClass() != entityClass
+                || !Arrays.asList(candidate.getInsertColumnNames()).equals(columnNames[0])
+                || !Arrays.asList(candidate.getUpdateByRowIdColumnNames()).equals(updateColumnNames)
+                || !candidate.getInsertSql().contains(tablePlaceholder)) {
+            logger.warn("实体访问器 {} 与实体 {} 不一致，请重新编译，使用反射", accessorName, entityClass.getName());
+            return;
+        }
+        String[] fieldNames = candidate.getFieldNames();
+        Map<String, Integer> indexes = new HashMap<>(fieldNames.length);
+        for (int i = 0; i < fieldNames.length; i++) {
+            indexes.put(fieldNames[i], i);
+        }
+        accessorFields = indexes;
+        accessor = candidate;
+    }
+
     /**
      * 初始化分表信息
      */
@@ -154,6 +288,8 @@ public class SingleTableEntityPersister<T> {
             column.setFieldName(field.getName());
             column.setWriteMethod(getWriteMethod(entityClass, field));
             column.setReadMethod(getReadMethod(entityClass, field));
+            column.setWriter(MethodAccessors.writer(column.getWriteMethod()));
+            column.initReaders();
             column.setType(field.getType());
             columns.put(column.getName(),  column);
             this.fields.put(column.getFieldName(),  column);
@@ -186,9 +322,11 @@ public class SingleTableEntityPersister<T> {
         idField.setType(column.getType());
         idField.setWriteMethod(column.getWriteMethod());
         idField.setReadMethod(column.getReadMethod());
+        idField.setReader(column.getReader());
+        idField.setWriter(column.getWriter());
         GeneratedValue generatedValue =  field.getAnnotation(GeneratedValue.class);
         if (null != generatedValue){
-            idField.setStrategy(generatedValue.strategy());
+            idField.setStrategy(generatedValue.strategy().resolve(StringUtils.isEmpty(generatedValue.generator()) ? tableName : generatedValue.generator()));
             if (GenerationType.AUTO == idField.getStrategy()){
                 columnNames[0].remove(columnNames[0].size() - 1);
             }
@@ -217,7 +355,172 @@ public class SingleTableEntityPersister<T> {
         return idField;
     }
 
+    /**
+     * 创建实体构造器，没有可访问的无参构造方法时退回到 {@link BeanUtils#instantiateClass(Class)}，
+     * 不映射结果集的实体在创建仓库时不因此失败，映射时再抛出异常
+     *
+     * @return 实体构造器
+     */
+    private Supplier<T> createInstantiator() {
+        try {
+            return MethodAccessors.instantiator(entityClass);
+        } catch (BeanInstantiationException e) {
+            logger.debug("{} 没有可访问的无参构造方法，使用反射创建实体", entityClass.getName(), e);
+            return () -> BeanUtils.instantiateClass(entityClass);
+        }
+    }
+
+    /**
+     * 获取实体构造器
+     * @return 实体构造器
+     */
+    public Supplier<T> getInstantiator() {
+        return instantiator;
+    }
+
+    /**
+     * 获取编译时生成的实体访问器
+     * @return 实体访问器，不存在或与实体不一致时返回null
+     */
+    public EntityAccessor<T> getAccessor() {
+        return accessor;
+    }
+
+    /**
+     * 获取查询语句对应的行映射器，同一语句只解析一次结果集元数据
+     * @param sql 查询语句
+     * @param rs 查询语句对应的结果集
+     * @return 行映射器
+     * @throws SQLException 读取元数据异常
+     */
+    public EntityRowMapper<T> getRowMapper(String sql, ResultSet rs) throws SQLException {
+        EntityRowMapper<T> rowMapper = sqlRowMappers.get(sql);
+        if (null == rowMapper) {
+            rowMapper = getRowMapper(rs.getMetaData());
+            sqlRowMappers.put(sql, rowMapper);
+        }
+        return rowMapper;
+    }
+
+    /**
+     * 获取查询语句对应行映射器的缓存，用于查看命中与未命中次数
+     * @return 查询语句对应行映射器的缓存
+     */
+    public LruCache<String, EntityRowMapper<T>> getSqlRowMapperCache() {
+        return sqlRowMappers;
+    }
+
+    /**
+     * 获取结果集列布局对应的行映射器，相同列布局只生成一次
+     * @param rsmd 结果集元数据
+     * @return 行映射器
+     * @throws SQLException 读取元数据异常
+     */
+    public EntityRowMapper<T> getRowMapper(ResultSetMetaData rsmd) throws SQLException {
+        int columnCount = rsmd.getColumnCount();
+        String[] columnNames = new String[columnCount];
+        for (int index = 1; index <= columnCount; index++) {
+            columnNames[index - 1] = JdbcUtils.lookupColumnName(rsmd, index);
+        }
+        String layout = StringUtils.arrayToCommaDelimitedString(columnNames);
+        EntityRowMapper<T> rowMapper = rowMappers.get(layout);
+        if (null != rowMapper) {
+            return rowMapper;
+        }
+        rowMapper = createRowMapper(columnNames);
+        if (rowMappers.size() < MAX_ROW_MAPPERS) {
+            EntityRowMapper<T> existing = rowMappers.putIfAbsent(layout, rowMapper);
+            if (null != existing) {
+                return existing;
+            }
+        }
+        return rowMapper;
+    }
+
+    /**
+     * 根据结果集列名生成行映射器
+     * @param columnNames 结果集列名，按结果集下标排列
+     * @return 行映射器
+     */
+    public EntityRowMapper<T> createRowMapper(String[] columnNames) {
+        Column[] mapped = new Column[columnNames.length];
+        for (int i = 0; i < columnNames.length; i++) {
+            mapped[i] = lookupColumn(columnNames[i]);
+        }
+        if (null != accessor) {
+            int[] indexes = new int[mapped.length];
+            for (int i = 0; i < mapped.length; i++) {
+                Integer index = null == mapped[i] ? null : accessorFields.get(mapped[i].getFieldName());
+                indexes[i] = null == index ? -1 : index;
+            }
+            return new EntityRowMapper<>(accessor, mapped, indexes);
+        }
+        return new EntityRowMapper<>(instantiator, mapped);
+    }
+
+    /**
+     * 根据结果集列名查找对应的列, 依次匹配数据库列名、实体字段名(预防查询结果取别名)，最后忽略大小写匹配
+     * @param columnName 结果集列名
+     * @return 对应的列，找不到返回null
+     */
+    public Column lookupColumn(String columnName) {
+        Column column = columns.get(columnName);
+        if (null != column) {
+            return column;
+        }
+        column = fields.get(columnName);
+        if (null != column) {
+            return column;
+        }
+        for (Column c : columns.values()) {
+            if (c.getName().equalsIgnoreCase(columnName) || c.getFieldName().equalsIgnoreCase(columnName)) {
+                return c;
+            }
+        }
+        return null;
+    }
+
+
+
+    /**
+     * 获取实体对应的表名，分表时由分表处理器决定
+     * @param entity 实体
+     * @return 表名
+     */
+    public String getTableName(T entity) {
+        if (null != splitTableDescriptor){
+            Column column = fields.get(splitTableDescriptor.getField());
+            return splitTableDescriptor.getTableName(column, entity);
+        }
+        return tableName;
+    }
+
+    /**
+     * 是否分表
+     * @return 是否分表
+     */
+    public boolean isSplitTable() {
+        return null != splitTableDescriptor;
+    }
 
+    /**
+     * 按实体对应的表名分组，保持实体在每个分组内的原有顺序，分组按表名首次出现的顺序排列
+     * @param entities 实体集
+     * @return 表名对应的实体集
+     */
+    public Map<String, List<T>> groupByTableName(Iterable<? extends T> entities) {
+        Map<String, List<T>> groups = new LinkedHashMap<>();
+        for (T entity : entities) {
+            String name = getTableName(entity);
+            List<T> group = groups.get(name);
+            if (null == group) {
+                group = new ArrayList<>();
+                groups.put(name, group);
+            }
+            group.add(entity);
+        }
+        return groups;
+    }
 
     /**
      * 获取插入语句
@@ -232,7 +535,7 @@ public class SingleTableEntityPersister<T> {
      * @return 插入语句
      */
     public String getSqlInsertString(String tableName) {
-        return sqlInsertString.replace(String.format("$$%s$$", this.tableName), tableName);
+        return getTableSql(tableName).getInsert();
     }
 
     /**
@@ -260,7 +563,7 @@ public class SingleTableEntityPersister<T> {
      * @return 插入语句
      */
     public String getSqlUpdateByRowIdString(String tableName) {
-        return sqlUpdateByRowIdString.replace(String.format("$$%s$$", this.tableName), tableName);
+        return getTableSql(tableName).getUpdateByRowId();
     }
 
 
@@ -282,11 +585,62 @@ public class SingleTableEntityPersister<T> {
      * @return 删除语句
      */
     public String getSqlDeleteByRowIdString() {
-        return String.format("%s where %s = ?", sqlDeleteString, getIdField().getColumn()) ;
+        return getTableSql(this.tableName).getDeleteByRowId();
+    }
+
+    /**
+     * 获取分表删除语句来自于id
+     * @param tableName 表名
+     * @return 删除语句
+     */
+    public String getSqlDeleteByRowIdString(String tableName) {
+        return getTableSql(tableName).getDeleteByRowId();
+    }
+
+    /**
+     * 获取查询语句来自于id
+     * @return 查询语句
+     */
+    public String getSqlSelectByRowIdString() {
+        return getTableSql(this.tableName).getSelectByRowId();
+    }
+
+    /**
+     * 获取分表查询语句来自于id
+     * @param tableName 表名
+     * @return 查询语句
+     */
+    public String getSqlSelectByRowIdString(String tableName) {
+        return getTableSql(tableName).getSelectByRowId();
+    }
+
+    /**
+     * 获取表名对应渲染好的语句，超出缓存上限的表每次重新渲染
+     * @param tableName 表名
+     * @return 表名对应的语句
+     */
+    public TableSql getTableSql(String tableName) {
+        TableSql tableSql = tableSqls.get(tableName);
+        if (null != tableSql) {
+            return tableSql;
+        }
+        tableSql = new TableSql(tableName,
+                sqlInsertString.replace(tablePlaceholder, tableName),
+                sqlUpdateByRowIdString.replace(tablePlaceholder, tableName),
+                null != accessor ? accessor.getDeleteByRowIdSql().replace(tablePlaceholder, tableName) : String.format("delete from %s  where %s = ?", tableName, idField.getColumn()),
+                String.format("%s where %s = ? ", SQLTools.getSelectSQL("*", tableName), idField.getColumn()));
+        if (tableSqls.size() < MAX_TABLE_SQLS) {
+            TableSql existing = tableSqls.putIfAbsent(tableName, tableSql);
+            if (null != existing) {
+                return existing;
+            }
+        }
+        return tableSql;
     }
 
     /**
      * 获取删除语句来自于多个id
+     * @param num id数量，配合 {@link SQLTools#inBucketSize(int)} 使用可减少不同的语句
      * @return 删除语句
      */
     public String getSqlDeleteByRowIdString(int num) {
@@ -345,18 +699,15 @@ public class SingleTableEntityPersister<T> {
 
     /**
      * 获取字段集对应实体的值
-     * @param columnNames 字段集
+     * @param columns 字段集
      * @param entity 实体
      * @return 字段集对应的值
      */
-    private Object[] getFieldValues(List<String> columnNames, T entity){
+    private Object[] getFieldValues(Column[] columns, T entity){
 
-        Object[] values = new Object[columnNames.size()];
-
-        Map<String, Column> fields = getColumns();
-        for (int i = 0, size = columnNames.size(); i < size; i++){
-            Column column = fields.get(columnNames.get(i));
-            values[i] = column.getFieldValue(entity);
+        Object[] values = new Object[columns.length];
+        for (int i = 0; i < columns.length; i++){
+            values[i] = columns[i].getFieldValue(entity);
         }
 
         return values;
@@ -368,7 +719,10 @@ public class SingleTableEntityPersister<T> {
      * @return 字段集对应的值
      */
     public Object[] getInsertFieldValues(T entity){
-        return getFieldValues(this.getInsertColumnNames(), entity);
+        if (null != accessor) {
+            return accessor.getInsertValues(entity);
+        }
+        return getFieldValues(boundColumns[0], entity);
 
     }
 
@@ -378,8 +732,55 @@ public class SingleTableEntityPersister<T> {
      * @return 字段集对应的值
      */
     public Object[] getUpdateByRowIdKeyFieldValues(T entity){
-        return getFieldValues(this.getUpdateByRowIdKeyColumnNames(), entity);
+        if (null != accessor) {
+            return accessor.getUpdateByRowIdValues(entity);
+        }
+        return getFieldValues(boundColumns[1], entity);
+
+    }
+
+    /**
+     * 将插入字段集对应的值直接设置到语句参数，int、long、boolean字段不装箱
+     * @param ps 语句
+     * @param index 第一个参数的下标，从1开始
+     * @param entity 实体
+     * @return 下一个参数的下标
+     * @throws SQLException 设置参数异常
+     */
+    public int bindInsertFieldValues(PreparedStatement ps, int index, T entity) throws SQLException {
+        if (null != accessor) {
+            return bindValues(ps, index, accessor.getInsertValues(entity));
+        }
+        return bindValues(ps, index, boundColumns[0], entity);
+    }
+
+    /**
+     * 将更新字段集对应的值直接设置到语句参数，int、long、boolean字段不装箱
+     * @param ps 语句
+     * @param index 第一个参数的下标，从1开始
+     * @param entity 实体
+     * @return 下一个参数的下标
+     * @throws SQLException 设置参数异常
+     */
+    public int bindUpdateByRowIdKeyFieldValues(PreparedStatement ps, int index, T entity) throws SQLException {
+        if (null != accessor) {
+            return bindValues(ps, index, accessor.getUpdateByRowIdValues(entity));
+        }
+        return bindValues(ps, index, boundColumns[1], entity);
+    }
+
+    private int bindValues(PreparedStatement ps, int index, Column[] columns, T entity) throws SQLException {
+        for (Column column : columns) {
+            column.bind(ps, index++, entity);
+        }
+        return index;
+    }
 
+    private int bindValues(PreparedStatement ps, int index, Object[] values) throws SQLException {
+        for (Object value : values) {
+            ps.setObject(index++, value);
+        }
+        return index;
     }
 
     /**
@@ -413,6 +814,33 @@ public class SingleTableEntityPersister<T> {
 
     }
 
+    /**
+     * 获取实体二级缓存配置
+     * @return 实体二级缓存配置，未开启返回null
+     */
+    public Cache getCache() {
+        return cache;
+    }
+
+    /**
+     * 按 {@link Cache} 配置创建实体二级缓存，实体信息在所有仓库间共用，缓存由各仓库分别持有
+     * @return 实体二级缓存，未开启返回null
+     */
+    public EntityCache<T> createEntityCache() {
+        if (null == cache) {
+            return null;
+        }
+        return new EntityCache<T>(cache.capacity(), cache.unit().toMillis(cache.ttl()), cache.copyOnRead(), instantiator);
+    }
+
+    /**
+     * 获取异步批量写入配置
+     * @return 异步批量写入配置，未开启返回null
+     */
+    public WriteBehind getWriteBehind() {
+        return writeBehind;
+    }
+
     /**
      * 获取分表描述
      * @return 分表描述
@@ -420,4 +848,51 @@ public class SingleTableEntityPersister<T> {
     public SplitTableDescriptor getSplitTableDescriptor() {
         return splitTableDescriptor;
     }
+
+    /**
+     * 获取语句中的表名占位符 $$表名$$
+     * @return 表名占位符
+     */
+    public String getTablePlaceholder() {
+        return tablePlaceholder;
+    }
+
+    /**
+     * 一张表(主表或分表)渲染好的语句
+     */
+    public static final class TableSql {
+        private final String tableName;
+        private final String insert;
+        private final String updateByRowId;
+        private final String deleteByRowId;
+        private final String selectByRowId;
+
+        TableSql(String tableName, String insert, String updateByRowId, String deleteByRowId, String selectByRowId) {
+            this.tableName = tableName;
+            this.insert = insert;
+            this.updateByRowId = updateByRowId;
+            this.deleteByRowId = deleteByRowId;
+            this.selectByRowId = selectByRowId;
+        }
+
+        public String getTableName() {
+            return tableName;
+        }
+
+        public String getInsert() {
+            return insert;
+        }
+
+        public String getUpdateByRowId() {
+            return updateByRowId;
+        }
+
+        public String getDeleteByRowId() {
+            return deleteByRowId;
+        }
+
+        public String getSelectByRowId() {
+            return selectByRowId;
+        }
+    }
 }
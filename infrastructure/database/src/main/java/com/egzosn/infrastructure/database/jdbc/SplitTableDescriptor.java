@@ -3,7 +3,6 @@ package com.egzosn.infrastructure.database.jdbc;
 import com.egzosn.infrastructure.database.splittable.TableHandler;
 import org.springframework.util.StringUtils;
 
-import java.lang.reflect.InvocationTargetException;
 import java.util.Map;
 
 /**
@@ -63,16 +62,10 @@ public class SplitTableDescriptor {
      */
     public String getTableName(Column column, Object entity) {
 
-        try {
-            Object value = column.getReadMethod().invoke(entity);
-            String tableName = getHandler().handler(getPrefix(), getField(), value);
-            if (!StringUtils.isEmpty(tableName)) {
-                return tableName;
-            }
-        } catch (IllegalAccessException e) {
-            e.printStackTrace();
-        } catch (InvocationTargetException e) {
-            e.printStackTrace();
+        Object value = column.getFieldValue(entity);
+        String tableName = getHandler().handler(getPrefix(), getField(), value);
+        if (!StringUtils.isEmpty(tableName)) {
+            return tableName;
         }
         return "";
     }
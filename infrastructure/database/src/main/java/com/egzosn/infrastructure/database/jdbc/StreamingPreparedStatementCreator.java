@@ -0,0 +1,75 @@
+package com.egzosn.infrastructure.database.jdbc;
+
+import org.springframework.jdbc.core.SqlProvider;
+import org.springframework.util.Assert;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * 流式查询语句创建器，创建只进只读的游标
+ * <p>
+ * MySQL 驱动只有在 fetchSize 为 {@link Integer#MIN_VALUE} 时才逐行读取结果，否则会把整个结果集读入内存；
+ * 其他数据库不接受负数的 fetchSize，此时使用 {@link #DEFAULT_FETCH_SIZE}
+ * <p>
+ * 注意：MySQL 流式读取期间，同一个连接不能再执行其他语句
+ */
+public class StreamingPreparedStatementCreator implements org.springframework.jdbc.core.PreparedStatementCreator, SqlProvider {
+
+    /**
+     * MySQL 逐行读取结果的 fetchSize
+     */
+    public static final int MYSQL_STREAMING_FETCH_SIZE = Integer.MIN_VALUE;
+    /**
+     * 非MySQL数据库默认的 fetchSize
+     */
+    public static final int DEFAULT_FETCH_SIZE = 1000;
+
+    private final String sql;
+
+    private final Object[] args;
+
+    private final int fetchSize;
+
+    /**
+     * @param sql       an SQL statement that may contain one or more '?' IN parameter placeholders
+     * @param fetchSize 每次从数据库读取的行数, {@link #MYSQL_STREAMING_FETCH_SIZE} 表示MySQL逐行读取
+     * @param args      sql  more '?' IN parameter
+     */
+    public StreamingPreparedStatementCreator(String sql, int fetchSize, Object... args) {
+        Assert.notNull(sql, "SQL must not be null");
+        this.sql = sql;
+        this.fetchSize = fetchSize;
+        this.args = args;
+    }
+
+    @Override
+    public PreparedStatement createPreparedStatement(Connection con) throws SQLException {
+        PreparedStatement ps = con.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+        ps.setFetchSize(resolveFetchSize(con));
+        SQLTools.fillStatement(ps, args);
+        return ps;
+    }
+
+    /**
+     * 非MySQL数据库不支持 {@link #MYSQL_STREAMING_FETCH_SIZE}
+     *
+     * @param con 连接
+     * @return 实际使用的 fetchSize
+     * @throws SQLException 读取元数据异常
+     */
+    private int resolveFetchSize(Connection con) throws SQLException {
+        if (MYSQL_STREAMING_FETCH_SIZE != fetchSize) {
+            return fetchSize;
+        }
+        String productName = con.getMetaData().getDatabaseProductName();
+        return null != productName && productName.toLowerCase().contains("mysql") ? fetchSize : DEFAULT_FETCH_SIZE;
+    }
+
+    @Override
+    public String getSql() {
+        return sql;
+    }
+}
@@ -1,8 +1,19 @@
 package com.egzosn.infrastructure.database.jdbc;
 
+import com.egzosn.infrastructure.database.jdbc.annotations.WriteBehind;
 import com.egzosn.infrastructure.database.jdbc.id.GenerationType;
+import com.egzosn.infrastructure.database.jdbc.id.IdField;
+import com.egzosn.infrastructure.database.jdbc.metrics.QueryMetrics;
+import com.egzosn.infrastructure.database.jdbc.metrics.QueryOperation;
+import com.egzosn.infrastructure.database.jdbc.metrics.QueryTag;
+import com.egzosn.infrastructure.database.jdbc.metrics.SlowQueryLog;
+import com.egzosn.infrastructure.database.jdbc.metrics.SqlFingerprint;
+import com.egzosn.infrastructure.database.splittable.RangeTableHandler;
 import com.egzosn.infrastructure.database.utils.ReflectionUtils;
+import com.egzosn.infrastructure.params.Order;
 import com.egzosn.infrastructure.utils.common.Page;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.*;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.dao.DataAccessException;
@@ -10,11 +21,33 @@ import org.springframework.dao.support.DataAccessUtils;
 import org.springframework.jdbc.core.*;
 import org.springframework.jdbc.support.JdbcUtils;
 import org.springframework.jdbc.support.KeyHolder;
-
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.util.StringUtils;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.PreDestroy;
+import javax.sql.DataSource;
+import java.io.File;
 import java.io.Serializable;
-import java.lang.reflect.InvocationTargetException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
 import java.sql.*;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import static com.egzosn.infrastructure.database.utils.ReflectionUtils.getSuperClassGenricType;
 
@@ -26,12 +59,113 @@ import static com.egzosn.infrastructure.database.utils.ReflectionUtils.getSuperC
  * @date 2017/11/25
  */
 public class SupportJdbcRepository<T> {
+    private static Logger logger = LoggerFactory.getLogger(SupportJdbcRepository.class);
+
+    /**
+     * 当前线程嵌套的仓库操作层数，只有最外层的操作记录耗时与输出慢查询日志
+     */
+    private static final ThreadLocal<int[]> MONITOR_DEPTH = ThreadLocal.withInitial(() -> new int[1]);
 
     @Autowired(required = false)
     protected JdbcTemplate jdbcTemplate;
 
     protected SingleTableEntityPersister<T> entityPersister;
 
+    /**
+     * 流式查询每次从数据库读取的行数，默认MySQL逐行读取
+     * {@link StreamingPreparedStatementCreator}
+     */
+    protected int streamFetchSize = StreamingPreparedStatementCreator.MYSQL_STREAMING_FETCH_SIZE;
+
+    /**
+     * 分页查询默认的统计方式
+     */
+    protected CountMode countMode = CountMode.EXACT;
+
+    /**
+     * 分页统计结果缓存 {@link CountMode#CACHED}
+     */
+    protected CountCache countCache = new CountCache();
+
+    /**
+     * 并发统计使用的线程池 {@link CountMode#CONCURRENT}
+     */
+    protected Executor countExecutor;
+
+    /**
+     * 批量写入每批的大小
+     */
+    protected int batchSize = EntityBatchCallback.DEFAULT_BATCH_SIZE;
+
+    /**
+     * 批量保存时是否改写为多行插入
+     */
+    protected boolean multiRowInsert = false;
+
+    /**
+     * 分表实体批量写入时并行写入的连接数，1为在同一连接上逐表写入
+     * 存在事务时始终在事务连接上逐表写入
+     */
+    protected int batchParallelism = 1;
+
+    /**
+     * 分表并行读写使用的线程池
+     */
+    protected Executor batchExecutor;
+
+    /**
+     * 异步操作使用的线程池，为null时使用按连接池大小创建的共享线程池
+     */
+    protected Executor asyncExecutor;
+
+    /**
+     * 从数据库元数据中查找的分表的缓存时间，毫秒
+     */
+    protected static final long SPLIT_TABLES_TTL = 60000;
+
+    /**
+     * 从数据库元数据中查找的分表
+     */
+    private volatile List<String> splitTables;
+
+    private volatile long splitTablesLoadedAt;
+
+    /**
+     * 异步操作，首次使用时创建
+     */
+    private volatile AsyncJdbcRepository<T> async;
+
+    /**
+     * 预编译语句缓存，为null时每次新建语句，多个仓库可共用同一个缓存
+     */
+    protected PreparedStatementCache statementCache;
+
+    /**
+     * 实体二级缓存，实体标注 {@link com.egzosn.infrastructure.database.jdbc.annotations.Cache} 时创建；
+     * 每个仓库单独持有，不同数据源的仓库互不影响，同一数据源的多个仓库可通过 {@link #setEntityCache} 共用
+     */
+    protected EntityCache<T> entityCache;
+
+    /**
+     * 异步批量写入队列，实体标注 {@link WriteBehind} 时首次保存创建
+     */
+    private volatile WriteBehindQueue<T> writeBehindQueue;
+
+    /**
+     * 读写分离路由，为null时读写都使用 {@link #jdbcTemplate}，否则 {@link #jdbcTemplate} 为主库
+     */
+    protected ReplicaRouter replicaRouter;
+
+    /**
+     * 操作耗时的收集，默认为进程内共享的 {@link QueryMetrics#load(ClassLoader)}，为null时不收集
+     */
+    protected QueryMetrics queryMetrics = QueryMetricsHolder.METRICS;
+
+    /**
+     * 慢查询日志，为null时不输出
+     */
+    protected SlowQueryLog slowQueryLog = QueryMetricsHolder.SLOW_QUERY_LOG;
+
 
     /**
      * 构造方法
@@ -39,7 +173,8 @@ public class SupportJdbcRepository<T> {
      * @param entityClass orm实体类型class
      */
     public SupportJdbcRepository(Class<T> entityClass) {
-        entityPersister = new SingleTableEntityPersister<T>(entityClass);
+        entityPersister = EntityMetadataRegistry.getPersister(entityClass);
+        entityCache = entityPersister.createEntityCache();
     }
 
 
@@ -47,7 +182,8 @@ public class SupportJdbcRepository<T> {
      * 构造方法
      */
     public SupportJdbcRepository() {
-        entityPersister = new SingleTableEntityPersister<T>(ReflectionUtils.getSuperClassGenricType(getClass()));
+        entityPersister = EntityMetadataRegistry.getPersister(ReflectionUtils.<T>getSuperClassGenricType(getClass()));
+        entityCache = entityPersister.createEntityCache();
     }
 
 
@@ -60,6 +196,297 @@ public class SupportJdbcRepository<T> {
         this.jdbcTemplate = jdbcTemplate;
     }
 
+    public int getStreamFetchSize() {
+        return streamFetchSize;
+    }
+
+    public void setStreamFetchSize(int streamFetchSize) {
+        this.streamFetchSize = streamFetchSize;
+    }
+
+    public CountMode getCountMode() {
+        return countMode;
+    }
+
+    public void setCountMode(CountMode countMode) {
+        this.countMode = countMode;
+    }
+
+    public CountCache getCountCache() {
+        return countCache;
+    }
+
+    public void setCountCache(CountCache countCache) {
+        this.countCache = countCache;
+    }
+
+    public Executor getCountExecutor() {
+        return null == countExecutor ? CountExecutorHolder.EXECUTOR : countExecutor;
+    }
+
+    public void setCountExecutor(Executor countExecutor) {
+        this.countExecutor = countExecutor;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    public boolean isMultiRowInsert() {
+        return multiRowInsert;
+    }
+
+    public void setMultiRowInsert(boolean multiRowInsert) {
+        this.multiRowInsert = multiRowInsert;
+    }
+
+    public int getBatchParallelism() {
+        return batchParallelism;
+    }
+
+    public void setBatchParallelism(int batchParallelism) {
+        this.batchParallelism = batchParallelism;
+    }
+
+    public Executor getBatchExecutor() {
+        return null == batchExecutor ? BatchExecutorHolder.EXECUTOR : batchExecutor;
+    }
+
+    public void setBatchExecutor(Executor batchExecutor) {
+        this.batchExecutor = batchExecutor;
+    }
+
+    public Executor getAsyncExecutor() {
+        if (null != asyncExecutor) {
+            return asyncExecutor;
+        }
+        return AsyncExecutorHolder.EXECUTORS.computeIfAbsent(jdbcTemplate.getDataSource(), dataSource -> BoundedExecutor.forDataSource("jdbc-async-", dataSource, AsyncExecutorHolder.TIMEOUT));
+    }
+
+    public void setAsyncExecutor(Executor asyncExecutor) {
+        this.asyncExecutor = asyncExecutor;
+        this.async = null;
+    }
+
+    /**
+     * 获取异步操作，在 {@link #getAsyncExecutor()} 上执行并返回 {@link CompletableFuture}
+     *
+     * @return 异步操作
+     */
+    public AsyncJdbcRepository<T> async() {
+        AsyncJdbcRepository<T> async = this.async;
+        if (null == async) {
+            this.async = async = new AsyncJdbcRepository<T>(this, getAsyncExecutor());
+        }
+        return async;
+    }
+
+    /**
+     * 获取实体二级缓存
+     * @return 实体二级缓存，未开启返回null
+     */
+    public EntityCache<T> getEntityCache() {
+        return entityCache;
+    }
+
+    public void setEntityCache(EntityCache<T> entityCache) {
+        this.entityCache = entityCache;
+    }
+
+    public PreparedStatementCache getStatementCache() {
+        return statementCache;
+    }
+
+    public void setStatementCache(PreparedStatementCache statementCache) {
+        this.statementCache = statementCache;
+    }
+
+    public ReplicaRouter getReplicaRouter() {
+        return replicaRouter;
+    }
+
+    public void setReplicaRouter(ReplicaRouter replicaRouter) {
+        this.replicaRouter = replicaRouter;
+    }
+
+    public QueryMetrics getQueryMetrics() {
+        return queryMetrics;
+    }
+
+    public void setQueryMetrics(QueryMetrics queryMetrics) {
+        this.queryMetrics = queryMetrics;
+    }
+
+    public SlowQueryLog getSlowQueryLog() {
+        return slowQueryLog;
+    }
+
+    public void setSlowQueryLog(SlowQueryLog slowQueryLog) {
+        this.slowQueryLog = slowQueryLog;
+    }
+
+    /**
+     * 设置慢查询的阈值
+     *
+     * @param thresholdMillis 阈值，毫秒，小于0时不输出慢查询日志
+     */
+    public void setSlowQueryMillis(long thresholdMillis) {
+        this.slowQueryLog = thresholdMillis < 0 ? null : new SlowQueryLog(thresholdMillis);
+    }
+
+    /**
+     * 执行读操作，配置了 {@link #replicaRouter} 时由其选择从库或主库
+     *
+     * @param action 读操作
+     * @param <X>    返回的对象类型
+     *
+     * @return 读操作的结果
+     */
+    protected <X> X read(Function<JdbcTemplate, X> action) {
+        if (null == replicaRouter) {
+            return action.apply(jdbcTemplate);
+        }
+        return replicaRouter.read(jdbcTemplate, action);
+    }
+
+    /**
+     * 记录写入，配置了 {@link #replicaRouter} 时当前线程随后的读操作在一段时间内使用主库
+     */
+    protected void markWrite() {
+        if (null != replicaRouter) {
+            ReplicaRouter.markWrite();
+        }
+    }
+
+    /**
+     * 包装提交到线程池的操作，配置了 {@link #replicaRouter} 时继承当前线程的读主库状态；
+     * 在 {@link #monitor} 内提交时，操作仍视为嵌套操作，不单独记录耗时
+     *
+     * @param action 操作
+     * @param <X>    返回的对象类型
+     *
+     * @return 包装后的操作
+     */
+    protected <X> Supplier<X> forked(Supplier<X> action) {
+        final int monitorDepth = MONITOR_DEPTH.get()[0];
+        Supplier<X> nested = 0 == monitorDepth ? action : () -> {
+            int[] depth = MONITOR_DEPTH.get();
+            depth[0] += monitorDepth;
+            try {
+                return action.get();
+            } finally {
+                depth[0] -= monitorDepth;
+            }
+        };
+        return null == replicaRouter ? nested : ReplicaRouter.propagate(nested);
+    }
+
+    /**
+     * 执行并计时，按实体、操作与sql指纹记录到 {@link #queryMetrics}，
+     * 耗时达到阈值时由 {@link #slowQueryLog} 输出绑定参数的sql；
+     * 只记录最外层的操作，如分页只记为 PAGE，其中的统计与列表查询不再重复记录
+     *
+     * @param operation 操作
+     * @param sql       sql
+     * @param params    参数，只在输出慢查询时获取，可为null
+     * @param action    操作
+     * @param <X>       返回的对象类型
+     *
+     * @return 操作的结果
+     */
+    protected <X> X monitor(QueryOperation operation, String sql, Supplier<Object[]> params, Supplier<X> action) {
+        QueryMetrics metrics = queryMetrics;
+        SlowQueryLog slowLog = slowQueryLog;
+        if (null == metrics && null == slowLog) {
+            return action.get();
+        }
+        int[] depth = MONITOR_DEPTH.get();
+        if (depth[0] > 0) {
+            //只记录最外层的操作，嵌套的操作耗时已包含在外层中
+            return action.get();
+        }
+        depth[0]++;
+        long start = System.nanoTime();
+        X result = null;
+        boolean success = false;
+        try {
+            result = action.get();
+            success = true;
+            return result;
+        } finally {
+            long elapsed = System.nanoTime() - start;
+            depth[0]--;
+            long rows = success ? rowCount(operation, result) : 0;
+            QueryTag tag = new QueryTag(entityPersister.getEntityClass(), operation, fingerprint(sql));
+            if (null != metrics) {
+                try {
+                    metrics.record(tag, elapsed, rows, success);
+                } catch (RuntimeException e) {
+                    logger.warn("记录操作耗时失败: {}", tag, e);
+                }
+            }
+            if (null != slowLog && slowLog.isSlow(elapsed)) {
+                slowLog.log(tag, sql, null == params ? null : params.get(), elapsed, rows, success);
+            }
+        }
+    }
+
+    /**
+     * sql指纹，分表实体的表名替换为表名占位符，各分表上的同一操作归为一类
+     *
+     * @param sql sql
+     *
+     * @return sql指纹
+     */
+    private String fingerprint(String sql) {
+        SplitTableDescriptor descriptor = entityPersister.getSplitTableDescriptor();
+        if (null == descriptor) {
+            return SqlFingerprint.of(sql);
+        }
+        return SqlFingerprint.of(sql, descriptor.getPrefix(), entityPersister.getTablePlaceholder());
+    }
+
+    /**
+     * 操作返回或影响的行数
+     *
+     * @param operation 操作
+     * @param result    操作的结果
+     *
+     * @return 行数
+     */
+    private static long rowCount(QueryOperation operation, Object result) {
+        if (null == result) {
+            return 0;
+        }
+        if (result instanceof Collection) {
+            return ((Collection) result).size();
+        }
+        if (result instanceof Page) {
+            List<?> content = ((Page) result).getContent();
+            return null == content ? 0 : content.size();
+        }
+        if (result instanceof BatchResult) {
+            return ((BatchResult) result).getAffectedRows();
+        }
+        if (QueryOperation.UPDATE == operation && result instanceof Number) {
+            return ((Number) result).longValue();
+        }
+        return 1;
+    }
+
+
+    /**
+     * 获取ORM实体信息
+     *
+     * @return ORM实体信息
+     */
+    public SingleTableEntityPersister<T> getEntityPersister() {
+        return entityPersister;
+    }
 
     /**
      * 获取表
@@ -88,7 +515,19 @@ public class SupportJdbcRepository<T> {
      * @return
      */
     public T get(Serializable id) {
-        return uniqueQueryEntity(String.format("%s where %s = ? ", SQLTools.getSelectSQL("*", getTable()), getIdColumn()), id);
+        return monitor(QueryOperation.GET, entityPersister.getSqlSelectByRowIdString(), () -> new Object[]{id}, () -> {
+            EntityCache<T> cache = entityCache;
+            if (null == cache) {
+                return uniqueQueryEntity(entityPersister.getSqlSelectByRowIdString(), id);
+            }
+            T entity = cache.get(id);
+            if (null != entity) {
+                return entity;
+            }
+            long version = cache.version(id);
+            //从库可能有复制延迟，缓存的数据从主库加载
+            return cache.put(id, ReplicaRouter.primary(() -> uniqueQueryEntity(entityPersister.getSqlSelectByRowIdString(), id)), version);
+        });
     }
 
     /**
@@ -99,7 +538,166 @@ public class SupportJdbcRepository<T> {
      * @return
      */
     public Collection<T> getAll(Collection<Serializable> ids) {
-        return queryEntityList(String.format("%s where %s in( %s) ", SQLTools.getSelectSQL("*", getTable()), getIdColumn(), SQLTools.forQuestionMarkSQL(ids.size())), ids.toArray());
+        EntityCache<T> cache = entityCache;
+        if (null == cache) {
+            return queryByIds(ids);
+        }
+        //按传入主键的顺序返回，不存在的主键跳过
+        Map<Object, T> entities = new LinkedHashMap<>(ids.size() * 2);
+        List<Serializable> misses = new ArrayList<>();
+        Map<Object, Long> versions = new HashMap<>();
+        for (Serializable id : ids) {
+            Object key = EntityCache.key(id);
+            T entity = cache.get(id);
+            if (null == entity) {
+                misses.add(id);
+                versions.put(key, cache.version(id));
+            }
+            entities.put(key, entity);
+        }
+        if (!misses.isEmpty()) {
+            //只查询未命中的主键，从库可能有复制延迟，缓存的数据从主库加载
+            List<T> loaded = ReplicaRouter.primary(() -> queryByIds(misses));
+            IdField idField = entityPersister.getIdField();
+            for (T entity : loaded) {
+                Object id = idField.getIdValue(entity);
+                Object key = EntityCache.key(id);
+                Long version = versions.get(key);
+                entities.put(key, null == version ? entity : cache.put(id, entity, version));
+            }
+        }
+        List<T> result = new ArrayList<>(entities.size());
+        for (T entity : entities.values()) {
+            if (null != entity) {
+                result.add(entity);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 根据主键集合查询，参数个数补齐到 {@link SQLTools#inBucketSize(int)}，
+     * 超过 {@link SQLTools#MAX_IN_SIZE} 时分批查询后合并；
+     * {@link #batchParallelism} 大于1且不在事务中时各批分散到多个连接并行查询
+     *
+     * @param ids 主键集合
+     *
+     * @return 实体集
+     */
+    protected List<T> queryByIds(Collection<Serializable> ids) {
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        List<List<Serializable>> chunks = SQLTools.partitionIn(ids);
+        if (chunks.size() == 1) {
+            return queryByIdChunk(chunks.get(0));
+        }
+        List<T> entities = new ArrayList<>(ids.size());
+        if (batchParallelism < 2 || TransactionSynchronizationManager.isActualTransactionActive()) {
+            for (List<Serializable> chunk : chunks) {
+                entities.addAll(queryByIdChunk(chunk));
+            }
+            return entities;
+        }
+        //按批轮流分配到各个连接
+        int parallelism = Math.min(batchParallelism, chunks.size());
+        List<List<List<Serializable>>> slots = new ArrayList<>(parallelism);
+        for (int i = 0; i < parallelism; i++) {
+            slots.add(new ArrayList<List<Serializable>>());
+        }
+        int index = 0;
+        for (List<Serializable> chunk : chunks) {
+            slots.get(index++ % parallelism).add(chunk);
+        }
+        List<CompletableFuture<List<T>>> futures = new ArrayList<>(parallelism);
+        for (final List<List<Serializable>> slot : slots) {
+            futures.add(CompletableFuture.supplyAsync(forked(() -> {
+                List<T> loaded = new ArrayList<>();
+                for (List<Serializable> chunk : slot) {
+                    loaded.addAll(queryByIdChunk(chunk));
+                }
+                return loaded;
+            }), getBatchExecutor()));
+        }
+        try {
+            for (CompletableFuture<List<T>> future : futures) {
+                entities.addAll(future.join());
+            }
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+        return entities;
+    }
+
+    /**
+     * 查询一批主键，参数个数补齐到桶大小
+     *
+     * @param ids 主键，个数不超过 {@link SQLTools#MAX_IN_SIZE}
+     *
+     * @return 实体集
+     */
+    private List<T> queryByIdChunk(Collection<Serializable> ids) {
+        String sql = String.format("%s where %s in( %s) ", SQLTools.getSelectSQL("*", getTable()), getIdColumn(), SQLTools.forQuestionMarkSQL(SQLTools.inBucketSize(ids.size())));
+        return queryEntityList(sql, SQLTools.padInValues(ids));
+    }
+
+    /**
+     * 失效主键对应的缓存实体，存在事务时提交或回滚后再失效一次，
+     * 防止事务提交前其他线程读到旧数据并放回缓存
+     *
+     * @param id 主键
+     */
+    protected void evictCache(final Object id) {
+        final EntityCache<T> cache = entityCache;
+        if (null == cache) {
+            return;
+        }
+        cache.evict(id);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCompletion(int status) {
+                    cache.evict(id);
+                }
+            });
+        }
+    }
+
+    /**
+     * 清空缓存，执行了无法确定影响范围的sql后使用
+     */
+    protected void clearCache() {
+        final EntityCache<T> cache = entityCache;
+        if (null == cache) {
+            return;
+        }
+        cache.clear();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCompletion(int status) {
+                    cache.clear();
+                }
+            });
+        }
+    }
+
+    /**
+     * 失效实体集对应的缓存
+     *
+     * @param entities 实体集
+     */
+    private void evictCache(Iterable<? extends T> entities) {
+        if (null == entityCache || null == entityPersister.getIdField()) {
+            return;
+        }
+        IdField idField = entityPersister.getIdField();
+        for (T entity : entities) {
+            evictCache(idField.getIdValue(entity));
+        }
     }
 
 
@@ -113,9 +711,9 @@ public class SupportJdbcRepository<T> {
      * @return 主键对应的值
      */
     protected Serializable insert(String sql, boolean autoGeneratedKey, Object... params) {
-
         PreparedStatementCreator psc = new PreparedStatementCreator(sql, autoGeneratedKey, params);
-        return jdbcTemplate.execute(psc, new PreparedStatementCallback<Serializable>() {
+        psc.setStatementCache(statementCache);
+        Serializable result = jdbcTemplate.execute(psc, new PreparedStatementCallback<Serializable>() {
             @Override
             public Serializable doInPreparedStatement(PreparedStatement ps) throws SQLException, DataAccessException {
                 if (autoGeneratedKey) {
@@ -127,6 +725,9 @@ public class SupportJdbcRepository<T> {
                 return psc.getRowCont();
             }
         });
+        markWrite();
+        clearCache();
+        return result;
     }
 
     /**
@@ -153,7 +754,10 @@ public class SupportJdbcRepository<T> {
      * @return 主键对应的值
      */
     protected int update(String sql, Object... params) {
-        return jdbcTemplate.update(sql, params);
+        int rows = monitor(QueryOperation.UPDATE, sql, () -> params, () -> jdbcTemplate.update(sql, params));
+        markWrite();
+        clearCache();
+        return rows;
     }
 
     /**
@@ -180,7 +784,78 @@ public class SupportJdbcRepository<T> {
         if (null == entity) {
             return null;
         }
-        return jdbcTemplate.execute(new PreparedStatementCreator(entityPersister.getSqlInsertString(entity)), new EntityPreparedStatementCallback<Serializable, T>(entityPersister, entity));
+        if (null != entityPersister.getWriteBehind()) {
+            return saveBehind(entity);
+        }
+        boolean autoGeneratedKeys = null != entityPersister.getIdField() && entityPersister.getIdField().autoGeneratedKeys();
+        String sql = entityPersister.getSqlInsertString(entity);
+        Serializable id = monitor(QueryOperation.SAVE, sql, () -> entityPersister.getInsertFieldValues(entity), () -> {
+            PreparedStatementCreator psc = new PreparedStatementCreator(sql, autoGeneratedKeys, (Object[]) null);
+            psc.setStatementCache(statementCache);
+            return jdbcTemplate.execute(psc, new EntityPreparedStatementCallback<Serializable, T>(entityPersister, entity));
+        });
+        markWrite();
+        evictCache(id);
+        return id;
+    }
+
+    /**
+     * 放入异步批量写入队列，非数据库生成的主键在入队前生成并返回
+     *
+     * @param entity 实体
+     *
+     * @return 主键对应的值, 数据库生成的主键返回null
+     * @throws IllegalStateException 队列已满且实体被丢弃或未能写入溢出文件
+     */
+    protected Serializable saveBehind(T entity) {
+        IdField idField = entityPersister.getIdField();
+        Serializable id = null;
+        if (null != idField) {
+            id = (Serializable) idField.getIdValue(entity);
+            if (null == id && !idField.autoGeneratedKeys()) {
+                id = entityPersister.idGenerated(entity, null);
+            }
+        }
+        if (!getWriteBehindQueue().offer(entity)) {
+            throw new IllegalStateException("WriteBehindQueue of " + entityPersister.getTableName() + " is full, entity not persisted: " + entity);
+        }
+        return id;
+    }
+
+    /**
+     * 获取异步批量写入队列
+     *
+     * @return 异步批量写入队列，实体未标注 {@link WriteBehind} 返回null
+     */
+    public WriteBehindQueue<T> getWriteBehindQueue() {
+        final WriteBehind config = entityPersister.getWriteBehind();
+        if (null == config || null != writeBehindQueue) {
+            return writeBehindQueue;
+        }
+        synchronized (this) {
+            if (null == writeBehindQueue) {
+                String tableName = entityPersister.getTableName();
+                File spillFile = StringUtils.isEmpty(config.spillFile()) ? new File(System.getProperty("java.io.tmpdir"), "write-behind-" + tableName + ".spill") : new File(config.spillFile());
+                final WriteBehindQueue<T> queue = new WriteBehindQueue<T>(tableName, config.capacity(), config.batchSize(), config.flushInterval(), config.overflow(), spillFile,
+                        entities -> executeBatch(entities, config.batchSize(), true, multiRowInsert));
+                if (config.flushOnShutdown()) {
+                    Runtime.getRuntime().addShutdownHook(new Thread(queue::close, "write-behind-shutdown-" + tableName));
+                }
+                writeBehindQueue = queue;
+            }
+        }
+        return writeBehindQueue;
+    }
+
+    /**
+     * 停止异步批量写入并写入队列中剩余的实体，容器销毁时调用
+     */
+    @PreDestroy
+    public void closeWriteBehind() {
+        WriteBehindQueue<T> queue = writeBehindQueue;
+        if (null != queue) {
+            queue.close();
+        }
     }
 
     /**
@@ -194,7 +869,20 @@ public class SupportJdbcRepository<T> {
         if (null == entity || entity.isEmpty()) {
             return null;
         }
-        return jdbcTemplate.execute(new PreparedStatementCreator(entityPersister.getSqlInsertString(entity.iterator().next())), new EntityPreparedStatementCallback<List<Serializable>, T>(entityPersister, entity));
+        return monitor(QueryOperation.SAVE_ALL, entityPersister.getSqlInsertString(), null, () -> saveBatch(entity, batchSize, multiRowInsert)).getKeys();
+    }
+
+    /**
+     * 分批保存，每批提交一次，内存占用与实体总数无关
+     *
+     * @param entities  实体集
+     * @param batchSize 每批的大小
+     * @param multiRow  是否改写为多行插入 <code>insert into t(a, b) values(?, ?), (?, ?)</code>
+     *
+     * @return 每批的成功记录数与生成的主键
+     */
+    public BatchResult saveBatch(Iterable<? extends T> entities, int batchSize, boolean multiRow) {
+        return executeBatch(entities, batchSize, true, multiRow);
     }
 
 
@@ -206,8 +894,17 @@ public class SupportJdbcRepository<T> {
      * @return 成功记录数
      */
     public int update(T entity) {
-
-        return jdbcTemplate.execute(new PreparedStatementCreator(entityPersister.getSqlUpdateByRowIdString(entity)), new EntityPreparedStatementCallback<Integer, T>(entityPersister, entity, false));
+        String sql = entityPersister.getSqlUpdateByRowIdString(entity);
+        int rows = monitor(QueryOperation.UPDATE, sql, () -> entityPersister.getUpdateByRowIdKeyFieldValues(entity), () -> {
+            PreparedStatementCreator psc = new PreparedStatementCreator(sql);
+            psc.setStatementCache(statementCache);
+            return jdbcTemplate.execute(psc, new EntityPreparedStatementCallback<Integer, T>(entityPersister, entity, false));
+        });
+        markWrite();
+        if (null != entityPersister.getIdField()) {
+            evictCache(entityPersister.getIdField().getIdValue(entity));
+        }
+        return rows;
     }
 
     /**
@@ -218,9 +915,118 @@ public class SupportJdbcRepository<T> {
      * @return 成功记录数
      */
     public int update(Collection<T> entity) {
+        if (null == entity || entity.isEmpty()) {
+            return 0;
+        }
+        return (int) monitor(QueryOperation.UPDATE, entityPersister.getSqlUpdateByRowIdString(), null, () -> updateBatch(entity, batchSize)).getAffectedRows();
+    }
 
-        return jdbcTemplate.execute(new PreparedStatementCreator(entityPersister.getSqlUpdateByRowIdString(entity.iterator().next())), new EntityPreparedStatementCallback<Integer, T>(entityPersister, entity, false));
+    /**
+     * 分批更新，每批提交一次
+     *
+     * @param entities  实体集
+     * @param batchSize 每批的大小
+     *
+     * @return 每批的成功记录数
+     */
+    public BatchResult updateBatch(Iterable<? extends T> entities, int batchSize) {
+        return executeBatch(entities, batchSize, false, false);
+    }
 
+    /**
+     * 分批写入
+     * 分表实体按表名分组，每张表一组语句；{@link #batchParallelism} 大于1且不在事务中时，
+     * 各表分散到多个连接并行写入，此时主键按表的顺序返回
+     *
+     * @param entities  实体集
+     * @param batchSize 每批的大小
+     * @param isInsert  是否插入，否则按主键更新
+     * @param multiRow  是否改写为多行插入
+     *
+     * @return 每批的成功记录数与生成的主键
+     */
+    protected BatchResult executeBatch(Iterable<? extends T> entities, int batchSize, boolean isInsert, boolean multiRow) {
+        if (null == entities) {
+            return new BatchResult();
+        }
+        BatchResult result = writeBatch(entities, batchSize, isInsert, multiRow);
+        markWrite();
+        if (!isInsert) {
+            evictCache(entities);
+        }
+        return result;
+    }
+
+    /**
+     * 分批写入，分表实体按表名分组后按需并行
+     *
+     * @param entities  实体集
+     * @param batchSize 每批的大小
+     * @param isInsert  是否插入，否则按主键更新
+     * @param multiRow  是否改写为多行插入
+     *
+     * @return 每批的成功记录数与生成的主键
+     */
+    private BatchResult writeBatch(Iterable<? extends T> entities, int batchSize, boolean isInsert, boolean multiRow) {
+        if (batchParallelism < 2 || !entityPersister.isSplitTable() || TransactionSynchronizationManager.isActualTransactionActive()) {
+            return jdbcTemplate.execute(batchCallback(null, entities, batchSize, isInsert, multiRow));
+        }
+        Map<String, List<T>> groups = entityPersister.groupByTableName(entities);
+        if (groups.size() < 2) {
+            return jdbcTemplate.execute(batchCallback(null, entities, batchSize, isInsert, multiRow));
+        }
+        //按表轮流分配到各个连接
+        int parallelism = Math.min(batchParallelism, groups.size());
+        List<List<Map.Entry<String, List<T>>>> slots = new ArrayList<>(parallelism);
+        for (int i = 0; i < parallelism; i++) {
+            slots.add(new ArrayList<Map.Entry<String, List<T>>>());
+        }
+        int index = 0;
+        for (Map.Entry<String, List<T>> group : groups.entrySet()) {
+            slots.get(index++ % parallelism).add(group);
+        }
+        List<CompletableFuture<BatchResult>> futures = new ArrayList<>(parallelism);
+        for (final List<Map.Entry<String, List<T>>> slot : slots) {
+            futures.add(CompletableFuture.supplyAsync(forked(() -> jdbcTemplate.execute(new ConnectionCallback<BatchResult>() {
+                @Override
+                public BatchResult doInConnection(Connection con) throws SQLException, DataAccessException {
+                    BatchResult result = new BatchResult();
+                    for (Map.Entry<String, List<T>> group : slot) {
+                        result.addAll(batchCallback(group.getKey(), group.getValue(), batchSize, isInsert, multiRow).doInConnection(con));
+                    }
+                    return result;
+                }
+            })), getBatchExecutor()));
+        }
+        BatchResult result = new BatchResult();
+        try {
+            for (CompletableFuture<BatchResult> future : futures) {
+                result.addAll(future.join());
+            }
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+        return result;
+    }
+
+    /**
+     * 创建分批写入回调
+     *
+     * @param tableName 表名，为null时按实体分表
+     * @param entities  实体集
+     * @param batchSize 每批的大小
+     * @param isInsert  是否插入，否则按主键更新
+     * @param multiRow  是否改写为多行插入
+     *
+     * @return 分批写入回调
+     */
+    private EntityBatchCallback<T> batchCallback(String tableName, Iterable<? extends T> entities, int batchSize, boolean isInsert, boolean multiRow) {
+        EntityBatchCallback<T> callback = new EntityBatchCallback<T>(entityPersister, tableName, entities, batchSize, isInsert, multiRow);
+        callback.setStatementCache(statementCache);
+        return callback;
     }
 
 
@@ -233,7 +1039,10 @@ public class SupportJdbcRepository<T> {
      * @return 成功记录数
      */
     protected int delete(String sql, Object... params) {
-        return jdbcTemplate.update(sql, params);
+        int rows = jdbcTemplate.update(sql, params);
+        markWrite();
+        clearCache();
+        return rows;
 
     }
 
@@ -259,7 +1068,10 @@ public class SupportJdbcRepository<T> {
      * @return 成功记录数
      */
     public int delete(Serializable id) {
-        return delete(entityPersister.getSqlDeleteByRowIdString(), id);
+        int rows = jdbcTemplate.update(entityPersister.getSqlDeleteByRowIdString(), id);
+        markWrite();
+        evictCache(id);
+        return rows;
 
     }
 
@@ -271,7 +1083,16 @@ public class SupportJdbcRepository<T> {
      * @return 成功记录数
      */
     public int delete(Collection<Serializable> ids) {
-        return delete(entityPersister.getSqlDeleteByRowIdString(ids.size()), ids.toArray());
+        int rows = 0;
+        //参数个数补齐到桶大小，超出上限分批删除
+        for (List<Serializable> chunk : SQLTools.partitionIn(ids)) {
+            rows += jdbcTemplate.update(entityPersister.getSqlDeleteByRowIdString(SQLTools.inBucketSize(chunk.size())), SQLTools.padInValues(chunk));
+        }
+        markWrite();
+        for (Serializable id : ids) {
+            evictCache(id);
+        }
+        return rows;
     }
 
 
@@ -306,69 +1127,194 @@ public class SupportJdbcRepository<T> {
      */
     protected List<T> queryEntityList(String sql, Object... values) {
 
-        List<T> results = jdbcTemplate.query(sql, values, new RowMapper<T>() {
-            /**
-             * Extract the values for all columns in the current row.
-             * <p>Utilizes public setters and result set metadata.
-             * @see java.sql.ResultSetMetaData
-             */
+        return monitor(QueryOperation.QUERY, sql, () -> values, () -> read(template -> template.query(sql, values, new EntityResultSetExtractor<T>(entityPersister, sql))));
+    }
+
+
+    /**
+     * 分页查询
+     *
+     * @param sql    sql
+     * @param params 参数
+     * @param page   第几页
+     * @param rows   几行
+     *
+     * @return 返回的对象类型
+     */
+    protected List<T> queryEntityList(final String sql, int page, int rows, Object... params) {
+
+        // TODO 2016/9/21 14:25 author: egan 获取对应结果集
+        List<T> list = queryEntityList(sql + SQLTools.forPaginate(page, rows), params);
+        return list;
+    }
+
+
+    /**
+     * 获取ORM实体的行映射器，首行时根据查询语句取得缓存的 {@link EntityRowMapper}
+     *
+     * @param sql 查询语句
+     *
+     * @return 行映射器
+     */
+    protected RowMapper<T> entityRowMapper(final String sql) {
+        return new RowMapper<T>() {
+            private EntityRowMapper<T> rowMapper;
+
             @Override
             public T mapRow(ResultSet rs, int rowNum) throws SQLException {
-                T mappedObject = BeanUtils.instantiateClass(SupportJdbcRepository.this.entityPersister.getEntityClass());
-
-                ResultSetMetaData rsmd = rs.getMetaData();
-                int columnCount = rsmd.getColumnCount();
-                Map<String, Column> columns = entityPersister.getColumns();
-                Map<String, Column> fields = entityPersister.getFields();
-                //用于标记是否用数据库列充当key
-                boolean flag = true;
-                to:
-                for (int index = 1; index <= columnCount; index++) {
-                    String columnName = JdbcUtils.lookupColumnName(rsmd, index);
-                    Column column = null;
-                    if (flag) {
-                        column = columns.get(columnName);
-                        if (null == column) {
-                            flag = false;
-                            break to;
-                        }
-                    } else {
-                        column = fields.get(columnName);
-                    }
-                    if (null == column) {
-                        continue;
-                    }
-                    try {
-                        column.getWriteMethod().invoke(mappedObject, rs.getObject(index, column.getType()));
-                    } catch (IllegalAccessException e) {
-                        e.printStackTrace();
-                    } catch (InvocationTargetException e) {
-                        e.printStackTrace();
-                    }
+                if (null == rowMapper) {
+                    rowMapper = entityPersister.getRowMapper(sql, rs);
+                }
+                return rowMapper.mapRow(rs, rowNum);
+            }
+        };
+    }
 
+    /**
+     * 流式遍历查询结果，只进游标逐行映射，内存占用与结果集大小无关
+     *
+     * @param sql       sql
+     * @param rowMapper 行映射器
+     * @param consumer  每行的处理
+     * @param values    数量可变的参数,按顺序绑定.
+     * @param <X>       返回的对象类型
+     */
+    protected <X> void forEach(String sql, final RowMapper<X> rowMapper, final Consumer<? super X> consumer, Object... values) {
+        read(template -> template.execute(new StreamingPreparedStatementCreator(sql, streamFetchSize, values), new PreparedStatementCallback<Object>() {
+            @Override
+            public Object doInPreparedStatement(PreparedStatement ps) throws SQLException, DataAccessException {
+                ResultSet rs = ps.executeQuery();
+                try {
+                    int rowNum = 0;
+                    while (rs.next()) {
+                        consumer.accept(rowMapper.mapRow(rs, rowNum++));
+                    }
+                } finally {
+                    JdbcUtils.closeResultSet(rs);
                 }
-                return mappedObject;
+                return null;
+            }
+        }));
+    }
+
+    /**
+     * 流式遍历ORM实体
+     *
+     * @param sql      sql
+     * @param consumer 每个实体的处理
+     * @param values   数量可变的参数,按顺序绑定.
+     */
+    protected void forEach(String sql, Consumer<? super T> consumer, Object... values) {
+        forEach(sql, entityRowMapper(sql), consumer, values);
+    }
+
+    /**
+     * 流式遍历ORM实体
+     *
+     * @param sql      sql
+     * @param values   属性值 以sql中的带":"的参数进行关联 {@link SQLTools}
+     * @param consumer 每个实体的处理
+     */
+    protected void forEach(String sql, Map<String, Object> values, Consumer<? super T> consumer) {
+        List<Object> paras = new ArrayList<>();
+        sql = SQLTools.forConverSQL(sql, values, paras);
+        forEach(sql, consumer, paras.toArray());
+    }
+
+    /**
+     * 流式遍历Map结果
+     *
+     * @param sql      sql
+     * @param consumer 每行的处理
+     * @param values   数量可变的参数,按顺序绑定.
+     */
+    public void forEachMap(String sql, Consumer<? super Map<String, Object>> consumer, Object... values) {
+        forEach(sql, new ColumnMapRowMapper(), consumer, values);
+    }
+
+    /**
+     * 流式查询，返回延迟读取的 {@link Stream}，读取完毕时自动释放连接
+     * <p>
+     * 未读取完毕时必须关闭，建议使用 try-with-resources
+     * <code>
+     *     try (Stream&lt;X&gt; stream = stream(sql, rowMapper)) { ... }
+     * </code>
+     *
+     * @param sql       sql
+     * @param rowMapper 行映射器
+     * @param values    数量可变的参数,按顺序绑定.
+     * @param <X>       返回的对象类型
+     *
+     * @return 延迟读取的流
+     */
+    protected <X> Stream<X> stream(String sql, RowMapper<X> rowMapper, Object... values) {
+        //游标关闭前一直占用所选的从库
+        final int replica = null == replicaRouter ? -1 : replicaRouter.acquire();
+        JdbcTemplate template = replica < 0 ? jdbcTemplate : replicaRouter.getReplica(replica);
+        final ResultSetCursor<X> cursor;
+        try {
+            cursor = ResultSetCursor.open(template.getDataSource(), new StreamingPreparedStatementCreator(sql, streamFetchSize, values), rowMapper, template.getExceptionTranslator());
+        } catch (RuntimeException e) {
+            releaseReplica(replica);
+            throw e;
+        }
+        //读取完毕自动关闭或关闭流时释放，只释放一次
+        final AtomicBoolean released = new AtomicBoolean();
+        cursor.onClose(() -> {
+            if (released.compareAndSet(false, true)) {
+                releaseReplica(replica);
             }
         });
-        return results;
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(cursor, Spliterator.ORDERED), false).onClose(cursor::close);
+    }
+
+    /**
+     * 释放流式查询占用的从库
+     *
+     * @param replica 从库的下标，-1为主库
+     */
+    private void releaseReplica(int replica) {
+        if (null != replicaRouter) {
+            replicaRouter.release(replica);
+        }
     }
 
+    /**
+     * 流式查询ORM实体
+     *
+     * @param sql    sql
+     * @param values 数量可变的参数,按顺序绑定.
+     *
+     * @return 延迟读取的流
+     */
+    protected Stream<T> stream(String sql, Object... values) {
+        return stream(sql, entityRowMapper(sql), values);
+    }
 
     /**
-     * 分页查询
+     * 流式查询ORM实体
      *
      * @param sql    sql
-     * @param params 参数
-     * @param page   第几页
-     * @param rows   几行
+     * @param values 属性值 以sql中的带":"的参数进行关联 {@link SQLTools}
+     *
+     * @return 延迟读取的流
+     */
+    protected Stream<T> stream(String sql, Map<String, Object> values) {
+        List<Object> paras = new ArrayList<>();
+        sql = SQLTools.forConverSQL(sql, values, paras);
+        return stream(sql, paras.toArray());
+    }
+
+    /**
+     * 流式查询Map结果
+     *
+     * @param sql    sql
+     * @param values 数量可变的参数,按顺序绑定.
      *
-     * @return 返回的对象类型
+     * @return 延迟读取的流
      */
-    protected List<T> queryEntityList(final String sql, int page, int rows, Object... params) {
-
-        // TODO 2016/9/21 14:25 author: egan 获取对应结果集
-        List<T> list = queryEntityList(sql + SQLTools.forPaginate(page, rows), params);
-        return list;
+    public Stream<Map<String, Object>> streamMap(String sql, Object... values) {
+        return stream(sql, new ColumnMapRowMapper(), values);
     }
 
 
@@ -384,9 +1330,9 @@ public class SupportJdbcRepository<T> {
     public <X> List<X> queryList(String sql, Class<X> resultClass, Object... values) {
         String pageName = resultClass.getPackage().getName();
         if (pageName.contains("java.")) {
-            return jdbcTemplate.queryForList(sql, values, resultClass);
+            return read(template -> template.queryForList(sql, values, resultClass));
         }
-        return jdbcTemplate.query(sql, values, new BeanPropertyRowMapper<X>(resultClass));
+        return read(template -> template.query(sql, values, new BeanPropertyRowMapper<X>(resultClass)));
     }
 
 
@@ -437,7 +1383,7 @@ public class SupportJdbcRepository<T> {
      * @return {@link List}
      */
     public List<Map<String, Object>> queryMapList(String sql, Object... values) {
-        return jdbcTemplate.queryForList(sql, values);
+        return read(template -> template.queryForList(sql, values));
     }
 
 
@@ -561,7 +1507,7 @@ public class SupportJdbcRepository<T> {
      */
     public long count(CreateQuery createQuery) {
         createQuery.setIsCount(true);
-        Object object = createQuery.uniqueResult();
+        Object object = monitor(QueryOperation.COUNT, createQuery.toSQL(), createQuery::getParas, createQuery::uniqueResult);
         if (!(object instanceof Number)) {
             return 0;
         }
@@ -620,14 +1566,22 @@ public class SupportJdbcRepository<T> {
      * @return 返回的对象类型
      */
     protected Page<T> pageQueryEntity(final String sql, int page, int rows, Object... params) {
-        long lo = countSQL(sql, params);
-        if (0 == lo) {
-            return new Page<>();
-        }
+        return pageQueryEntity(countMode, sql, page, rows, params);
+    }
 
-        // TODO 2016/9/21 14:25 author: egan 获取对应结果集
-        List<T> list = queryEntityList(sql, page, rows, params);
-        return new Page<T>(page, list.size(), lo, list);
+    /**
+     * 分页查询
+     *
+     * @param countMode 统计总记录数的方式
+     * @param sql       sql
+     * @param page      第几页
+     * @param rows      几行
+     * @param params    参数
+     *
+     * @return 返回的对象类型
+     */
+    protected Page<T> pageQueryEntity(CountMode countMode, final String sql, int page, int rows, Object... params) {
+        return monitor(QueryOperation.PAGE, sql, () -> params, () -> pageQuery(sql, entityPersister.getEntityClass(), true, page, rows, countMode, params));
     }
 
     /**
@@ -653,14 +1607,16 @@ public class SupportJdbcRepository<T> {
      * @return 返回的对象类型
      */
     protected Page<T> pageQueryEntity(final String sql, Object... params) {
-        long lo = countSQL(sql, params);
-        if (0 == lo) {
-            return new Page<>();
-        }
+        return monitor(QueryOperation.PAGE, sql, () -> params, () -> {
+            long lo = countSQL(sql, params);
+            if (0 == lo) {
+                return new Page<T>();
+            }
 
-        // TODO 2016/9/21 14:25 author: egan 获取对应结果集
-        List<T> list = queryEntityList(sql, params);
-        return new Page<T>(1, list.size(), lo, list);
+            // TODO 2016/9/21 14:25 author: egan 获取对应结果集
+            List<T> list = queryEntityList(sql, params);
+            return new Page<T>(1, list.size(), lo, list);
+        });
     }
 
 
@@ -692,12 +1648,106 @@ public class SupportJdbcRepository<T> {
      * @return
      */
     protected <X> Page<X> pageQuerySQL(final String sql, Class<X> resultClass, int page, int rows, Object... params) {
-        long lo = countSQL(sql, params);
-        if (0 == lo){ return new Page<>();}
+        return pageQuerySQL(countMode, sql, resultClass, page, rows, params);
+    }
 
-        // TODO 2016/9/21 14:25 author: egan 获取对应结果集
-        List<X> list = queryList(sql, resultClass, page, rows, params);
-        return new Page<X>(page, list.size(), lo, list);
+    /**
+     * 分页查询
+     * @param countMode 统计总记录数的方式
+     * @param sql
+     * @param resultClass 映射的对应类
+     * @param page 第几页
+     * @param rows 几行
+     * @param params 参数
+     * @param <X> 返回的对象类型
+     * @return
+     */
+    protected <X> Page<X> pageQuerySQL(CountMode countMode, final String sql, Class<X> resultClass, int page, int rows, Object... params) {
+        return pageQuery(sql, resultClass, resultClass == entityPersister.getEntityClass(), page, rows, countMode, params);
+    }
+
+    /**
+     * 分页查询
+     *
+     * @param sql         sql
+     * @param resultClass 映射的对应类
+     * @param isEntity    是否映射为ORM实体
+     * @param page        第几页
+     * @param rows        几行
+     * @param countMode   统计总记录数的方式
+     * @param params      参数
+     * @param <X>         返回的对象类型
+     *
+     * @return 当前页, {@link Page#getTotalType()} 标明总记录数的来源
+     */
+    protected <X> Page<X> pageQuery(final String sql, Class<X> resultClass, boolean isEntity, int page, int rows, CountMode countMode, final Object... params) {
+        if (page < 1) {
+            page = 1;
+        }
+        long offset = (long) rows * (page - 1);
+        Page<X> result;
+        switch (countMode) {
+            case NONE:
+                List<X> list = new CreateQuery<X>(sql + SQLTools.forOffset(offset, rows + 1), params).setResultClass(resultClass, isEntity).list();
+                boolean hasNext = list.size() > rows;
+                if (hasNext) {
+                    list.remove(rows);
+                }
+                result = new Page<X>(page, rows, offset + list.size() + (hasNext ? 1 : 0), list);
+                result.setHasNext(hasNext);
+                result.setTotalType(hasNext || list.isEmpty() && page > 1 ? Page.TotalType.ESTIMATED : Page.TotalType.EXACT);
+                return result;
+            case CACHED:
+                Long total = countCache.get(sql, params);
+                if (null == total) {
+                    total = countSQL(sql, params);
+                    countCache.put(sql, params, total);
+                    result = pageQueryWithTotal(sql, resultClass, isEntity, page, rows, total, params);
+                } else {
+                    result = pageQueryWithTotal(sql, resultClass, isEntity, page, rows, total, params);
+                    result.setTotalType(Page.TotalType.CACHED);
+                }
+                return result;
+            case CONCURRENT:
+                if (TransactionSynchronizationManager.isActualTransactionActive()) {
+                    //事务中统计需要看到未提交的数据，在事务连接上顺序统计
+                    return pageQueryWithTotal(sql, resultClass, isEntity, page, rows, countSQL(sql, params), params);
+                }
+                CompletableFuture<Long> count = CompletableFuture.supplyAsync(forked(() -> countSQL(sql, params)), getCountExecutor());
+                List<X> content = new CreateQuery<X>(sql + SQLTools.forPaginate(page, rows), params).setResultClass(resultClass, isEntity).list();
+                try {
+                    return new Page<X>(page, rows, count.join(), content);
+                } catch (CompletionException e) {
+                    if (e.getCause() instanceof RuntimeException) {
+                        throw (RuntimeException) e.getCause();
+                    }
+                    throw e;
+                }
+            default:
+                return pageQueryWithTotal(sql, resultClass, isEntity, page, rows, countSQL(sql, params), params);
+        }
+    }
+
+    /**
+     * 根据已知的总记录数分页查询，总记录数为0时不查询当前页
+     *
+     * @param sql         sql
+     * @param resultClass 映射的对应类
+     * @param isEntity    是否映射为ORM实体
+     * @param page        第几页
+     * @param rows        几行
+     * @param total       总记录数
+     * @param params      参数
+     * @param <X>         返回的对象类型
+     *
+     * @return 当前页
+     */
+    private <X> Page<X> pageQueryWithTotal(final String sql, Class<X> resultClass, boolean isEntity, int page, int rows, long total, Object... params) {
+        if (0 == total) {
+            return new Page<>();
+        }
+        List<X> list = new CreateQuery<X>(sql + SQLTools.forPaginate(page, rows), params).setResultClass(resultClass, isEntity).list();
+        return new Page<X>(page, rows, total, list);
     }
 
 
@@ -737,6 +1787,435 @@ public class SupportJdbcRepository<T> {
 
 
 
+    /**
+     * 键集(seek)分页查询，按排序字段从上一页最后一行之后读取，每页代价与页码无关
+     * <p>
+     * 多读取一行用于判断是否有下一页，有则在 {@link Page#getNextToken()} 返回续页标识, 不统计总记录数
+     *
+     * @param sql         不含排序与分页的sql, group by 之后不能再有参数
+     * @param keyset      键集描述
+     * @param resultClass 映射的对应类
+     * @param isEntity    是否映射为ORM实体
+     * @param token       上一页返回的续页标识，第一页为null
+     * @param rows        几行，必须大于0
+     * @param params      参数
+     * @param <X>         返回的对象类型
+     *
+     * @return 当前页
+     */
+    protected <X> Page<X> keysetPageQuery(String sql, Keyset keyset, Class<X> resultClass, boolean isEntity, String token, int rows, Object... params) {
+        if (rows < 1) {
+            throw new IllegalArgumentException("rows must be positive: " + rows);
+        }
+        List<Object> values = new ArrayList<>();
+        if (null != params) {
+            values.addAll(Arrays.asList(params));
+        }
+        if (null != token) {
+            sql = SQLTools.addCondition(sql, keyset.toConditionSQL());
+            values.addAll(keyset.toConditionValues(KeysetToken.decode(token, keyset.size())));
+        }
+        sql = sql + keyset.toOrderSQL() + SQLTools.forLimit(rows + 1);
+        List<X> list = new CreateQuery<X>(sql, values.toArray()).setResultClass(resultClass, isEntity).list();
+        Page<X> page = new Page<X>(1, rows, 0, list);
+        page.setTotalType(Page.TotalType.NONE);
+        if (list.size() > rows) {
+            list.remove(rows);
+            page.setHasNext(true);
+            page.setNextToken(KeysetToken.encode(getKeysetValues(list.get(rows - 1), keyset)));
+        }
+        return page;
+    }
+
+    /**
+     * 键集分页查询ORM实体，主键会作为最后的排序字段
+     *
+     * @param sql    不含排序与分页的sql
+     * @param order  排序
+     * @param token  上一页返回的续页标识，第一页为null
+     * @param rows   几行
+     * @param params 参数
+     *
+     * @return 当前页
+     */
+    protected Page<T> keysetPageQueryEntity(final String sql, Order order, String token, int rows, Object... params) {
+        return keysetPageQuery(sql, Keyset.of(order, getIdColumn()), entityPersister.getEntityClass(), true, token, rows, params);
+    }
+
+    /**
+     * 键集分页查询ORM实体，主键会作为最后的排序字段
+     *
+     * @param sql    不含排序与分页的sql
+     * @param params 参数
+     * @param order  排序
+     * @param token  上一页返回的续页标识，第一页为null
+     * @param rows   几行
+     *
+     * @return 当前页
+     */
+    protected Page<T> keysetPageQueryEntity(final String sql, Map<String, Object> params, Order order, String token, int rows) {
+        List<Object> values = new ArrayList<>();
+        return keysetPageQueryEntity(SQLTools.forConverSQL(sql, params, values), order, token, rows, values.toArray());
+    }
+
+    /**
+     * 键集分页查询，排序字段必须能唯一确定一行
+     *
+     * @param sql         不含排序与分页的sql
+     * @param resultClass 映射的对应类
+     * @param order       排序
+     * @param token       上一页返回的续页标识，第一页为null
+     * @param rows        几行
+     * @param params      参数
+     * @param <X>         返回的对象类型
+     *
+     * @return 当前页
+     */
+    protected <X> Page<X> keysetPageQuerySQL(final String sql, Class<X> resultClass, Order order, String token, int rows, Object... params) {
+        boolean isEntity = resultClass == entityPersister.getEntityClass();
+        return keysetPageQuery(sql, Keyset.of(order, isEntity ? getIdColumn() : null), resultClass, isEntity, token, rows, params);
+    }
+
+    /**
+     * 键集分页查询，排序字段必须能唯一确定一行
+     *
+     * @param sql         不含排序与分页的sql
+     * @param resultClass 映射的对应类
+     * @param params      参数
+     * @param order       排序
+     * @param token       上一页返回的续页标识，第一页为null
+     * @param rows        几行
+     * @param <X>         返回的对象类型
+     *
+     * @return 当前页
+     */
+    protected <X> Page<X> keysetPageQuerySQL(final String sql, Class<X> resultClass, Map<String, Object> params, Order order, String token, int rows) {
+        List<Object> values = new ArrayList<>();
+        return keysetPageQuerySQL(SQLTools.forConverSQL(sql, params, values), resultClass, order, token, rows, values.toArray());
+    }
+
+    /**
+     * 获取一行结果对应的排序键值
+     *
+     * @param row    一行结果, ORM实体、Map或者普通对象
+     * @param keyset 键集描述
+     *
+     * @return 排序键值
+     */
+    protected Object[] getKeysetValues(Object row, Keyset keyset) {
+        List<String> columns = keyset.getColumns();
+        Object[] keys = new Object[columns.size()];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = getColumnValue(row, columns.get(i));
+        }
+        return keys;
+    }
+
+    /**
+     * 获取一行结果中列对应的值
+     *
+     * @param row    一行结果, ORM实体、Map或者普通对象
+     * @param column 列名
+     *
+     * @return 列对应的值
+     */
+    protected Object getColumnValue(Object row, String column) {
+        if (row instanceof Map) {
+            return ((Map) row).get(column);
+        }
+        Column c = entityPersister.getEntityClass().isInstance(row) ? entityPersister.lookupColumn(column) : null;
+        return null == c ? new BeanWrapperImpl(row).getPropertyValue(JdbcUtils.convertUnderscoreNameToPropertyName(column)) : c.getFieldValue(row);
+    }
+
+    /**
+     * 获取所有分表，非分表实体返回 {@link #getTable()}
+     * <p>
+     * 分表处理器为 {@link RangeTableHandler} 且能列出全部分表时使用处理器的结果，
+     * 否则从数据库元数据中查找以分表前缀开头的表，结果缓存 {@link #SPLIT_TABLES_TTL} 毫秒
+     *
+     * @return 分表表名
+     */
+    public List<String> getSplitTables() {
+        SplitTableDescriptor descriptor = entityPersister.getSplitTableDescriptor();
+        if (null == descriptor) {
+            return Collections.singletonList(getTable());
+        }
+        if (descriptor.getHandler() instanceof RangeTableHandler) {
+            List<String> tables = ((RangeTableHandler) descriptor.getHandler()).handler(descriptor.getPrefix(), descriptor.getField(), null, null);
+            if (null != tables) {
+                return tables;
+            }
+        }
+        List<String> tables = splitTables;
+        if (null == tables || System.currentTimeMillis() - splitTablesLoadedAt > SPLIT_TABLES_TTL) {
+            tables = discoverTables(descriptor.getPrefix());
+            splitTablesLoadedAt = System.currentTimeMillis();
+            splitTables = tables;
+        }
+        return tables;
+    }
+
+    /**
+     * 从数据库元数据中查找以前缀开头的表
+     *
+     * @param prefix 表名前缀
+     *
+     * @return 表名，按名称排序
+     */
+    protected List<String> discoverTables(final String prefix) {
+        if (StringUtils.isEmpty(prefix)) {
+            throw new IllegalStateException(String.format("分表 %s 没有前缀，无法查找全部分表，请使用 RangeTableHandler 或指定分表", getTable()));
+        }
+        return jdbcTemplate.execute(new ConnectionCallback<List<String>>() {
+            @Override
+            public List<String> doInConnection(Connection con) throws SQLException, DataAccessException {
+                DatabaseMetaData metaData = con.getMetaData();
+                String escape = metaData.getSearchStringEscape();
+                String pattern = null == escape ? prefix : prefix.replace("_", escape + "_").replace("%", escape + "%");
+                List<String> tables = new ArrayList<>();
+                for (String candidate : new String[]{pattern, pattern.toUpperCase()}) {
+                    try (ResultSet rs = metaData.getTables(con.getCatalog(), null, candidate + "%", new String[]{"TABLE"})) {
+                        while (rs.next()) {
+                            String table = rs.getString("TABLE_NAME");
+                            if (table.regionMatches(true, 0, prefix, 0, prefix.length()) && !tables.contains(table)) {
+                                tables.add(table);
+                            }
+                        }
+                    }
+                }
+                Collections.sort(tables);
+                return tables;
+            }
+        });
+    }
+
+    /**
+     * 跨分表查询，同一条sql在每张分表上执行，按排序进行k路归并
+     * <p>
+     * 每张分表最多读取 offset + limit 行；不在事务中且分表多于一张时分散到多个连接并行查询
+     *
+     * @param tables 分表
+     * @param sql    表名对应的sql，不含排序与分页
+     * @param order  排序，为null时按分表顺序连接
+     * @param offset 跳过的行数
+     * @param limit  读取的行数，小于1时读取全部
+     * @param params 参数
+     *
+     * @return 归并后的结果
+     */
+    protected List<T> scatterQueryEntityList(Collection<String> tables, final Function<String, String> sql, Order order, final int offset, final int limit, final Object... params) {
+        final String orderSQL = null == order ? "" : order.toSQL();
+        final String limitSQL = limit < 1 ? "" : SQLTools.forLimit(offset + limit);
+        List<List<T>> shards = scatter(tables, table -> queryEntityList(sql.apply(table) + orderSQL + limitSQL, params));
+        return ShardMerger.merge(shards, orderComparator(order), offset, limit);
+    }
+
+    /**
+     * 跨分表统计总记录数
+     *
+     * @param tables 分表
+     * @param sql    表名对应的sql
+     * @param params 参数
+     *
+     * @return 各分表记录数之和
+     */
+    protected long scatterCount(Collection<String> tables, final Function<String, String> sql, final Object... params) {
+        long total = 0;
+        for (Long count : scatter(tables, table -> countSQL(sql.apply(table), params))) {
+            total += count;
+        }
+        return total;
+    }
+
+    /**
+     * 在每张分表上执行查询，结果与分表顺序一致
+     *
+     * @param tables 分表
+     * @param query  表名对应的查询
+     * @param <X>    结果类型
+     *
+     * @return 各分表的结果
+     */
+    private <X> List<X> scatter(Collection<String> tables, Function<String, X> query) {
+        List<X> results = new ArrayList<>(tables.size());
+        if (tables.size() < 2 || TransactionSynchronizationManager.isActualTransactionActive()) {
+            for (String table : tables) {
+                results.add(query.apply(table));
+            }
+            return results;
+        }
+        List<CompletableFuture<X>> futures = new ArrayList<>(tables.size());
+        for (String table : tables) {
+            futures.add(CompletableFuture.supplyAsync(forked(() -> query.apply(table)), getBatchExecutor()));
+        }
+        try {
+            for (CompletableFuture<X> future : futures) {
+                results.add(future.join());
+            }
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+        return results;
+    }
+
+    /**
+     * 根据排序生成比较器，null 视为最小值，值的比较见 {@link #compareColumnValue(String, Object, Object)}
+     *
+     * @param order 排序
+     *
+     * @return 比较器，没有排序字段时返回null
+     */
+    protected Comparator<Object> orderComparator(Order order) {
+        Map<String, String[]> orders = null == order ? null : order.getOrders();
+        if (null == orders || orders.isEmpty()) {
+            return null;
+        }
+        final String[] columns = orders.keySet().toArray(new String[orders.size()]);
+        final boolean[] descs = new boolean[columns.length];
+        for (int i = 0; i < columns.length; i++) {
+            descs[i] = Order.OrderAD.DESC.name().equals(orders.get(columns[i])[0]);
+        }
+        return (a, b) -> {
+            for (int i = 0; i < columns.length; i++) {
+                Object x = getColumnValue(a, columns[i]);
+                Object y = getColumnValue(b, columns[i]);
+                int c = x == y ? 0 : null == x ? -1 : null == y ? 1 : compareColumnValue(columns[i], x, y);
+                if (0 != c) {
+                    return descs[i] ? -c : c;
+                }
+            }
+            return 0;
+        };
+    }
+
+    /**
+     * 按MySQL默认排序规则比较同一排序字段的两个非null值，使归并结果与单表order by一致
+     * <p>
+     * 字符串按不区分大小写并忽略尾部空格比较(对应 *_general_ci)，不同类型的数字按数值比较；
+     * 字段使用区分大小写或重音的排序规则(如 *_bin)时需重写此方法
+     *
+     * @param column 排序字段
+     * @param x      值
+     * @param y      值
+     *
+     * @return 比较结果
+     */
+    protected int compareColumnValue(String column, Object x, Object y) {
+        if (x instanceof CharSequence && y instanceof CharSequence) {
+            return String.CASE_INSENSITIVE_ORDER.compare(trimTrailing(x.toString()), trimTrailing(y.toString()));
+        }
+        if (x instanceof Number && y instanceof Number) {
+            return compareNumber((Number) x, (Number) y);
+        }
+        if (x instanceof Comparable && (x.getClass().isInstance(y) || y.getClass().isInstance(x))) {
+            return ((Comparable) x).compareTo(y);
+        }
+        throw new IllegalArgumentException(String.format("order column %s of %s can not compare %s with %s", column, entityPersister.getEntityClass().getName(), x.getClass().getName(), y.getClass().getName()));
+    }
+
+    private static String trimTrailing(String value) {
+        int end = value.length();
+        while (end > 0 && value.charAt(end - 1) == ' ') {
+            end--;
+        }
+        return value.substring(0, end);
+    }
+
+    private static boolean isIntegral(Number number) {
+        return number instanceof Long || number instanceof Integer || number instanceof Short || number instanceof Byte;
+    }
+
+    private static int compareNumber(Number x, Number y) {
+        if (isIntegral(x) && isIntegral(y)) {
+            return Long.compare(x.longValue(), y.longValue());
+        }
+        BigDecimal a = toBigDecimal(x);
+        BigDecimal b = toBigDecimal(y);
+        if (null == a || null == b) {
+            return Double.compare(x.doubleValue(), y.doubleValue());
+        }
+        return a.compareTo(b);
+    }
+
+    /**
+     * @param number 数字
+     * @return 精确的十进制值，NaN与无穷大返回null
+     */
+    private static BigDecimal toBigDecimal(Number number) {
+        if (number instanceof BigDecimal) {
+            return (BigDecimal) number;
+        }
+        if (number instanceof BigInteger) {
+            return new BigDecimal((BigInteger) number);
+        }
+        if (isIntegral(number)) {
+            return BigDecimal.valueOf(number.longValue());
+        }
+        double value = number.doubleValue();
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            return null;
+        }
+        return number instanceof Float ? new BigDecimal(number.toString()) : BigDecimal.valueOf(value);
+    }
+
+
+
+    /**
+     * 默认的操作耗时收集与慢查询日志，所有仓库共用
+     */
+    private static class QueryMetricsHolder {
+        static final QueryMetrics METRICS = QueryMetrics.load(SupportJdbcRepository.class.getClassLoader());
+
+        static final SlowQueryLog SLOW_QUERY_LOG = new SlowQueryLog();
+    }
+
+    /**
+     * 默认的并发统计线程池，线程数有界，队列满时由调用线程执行统计
+     */
+    private static class CountExecutorHolder {
+        static final Executor EXECUTOR;
+
+        static {
+            int threads = Runtime.getRuntime().availableProcessors() * 2;
+            CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("jdbc-count-");
+            threadFactory.setDaemon(true);
+            ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(1024), threadFactory, new ThreadPoolExecutor.CallerRunsPolicy());
+            executor.allowCoreThreadTimeOut(true);
+            EXECUTOR = executor;
+        }
+    }
+
+    /**
+     * 默认的异步操作线程池，每个数据源一个，线程数与连接池大小一致
+     */
+    private static class AsyncExecutorHolder {
+        /**
+         * 线程池饱和时提交操作的最长等待时间，毫秒
+         */
+        static final long TIMEOUT = 10000;
+
+        static final ConcurrentMap<DataSource, Executor> EXECUTORS = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * 默认的分表并行写入线程池，线程数有界，队列满时由调用线程写入
+     */
+    private static class BatchExecutorHolder {
+        static final Executor EXECUTOR;
+
+        static {
+            int threads = Runtime.getRuntime().availableProcessors();
+            CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("jdbc-batch-");
+            threadFactory.setDaemon(true);
+            ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(256), threadFactory, new ThreadPoolExecutor.CallerRunsPolicy());
+            executor.allowCoreThreadTimeOut(true);
+            EXECUTOR = executor;
+        }
+    }
+
     /**
      * 创建查询记录集
      */
@@ -785,24 +2264,64 @@ public class SupportJdbcRepository<T> {
         }
 
         public List<X> list() {
+            return monitor(QueryOperation.LIST, sql, this::getParas, () -> {
+                if (isEntity) {
+                    return (List<X>) SupportJdbcRepository.this.queryEntityList(sql, paras);
+                }
+                if (null == resultClass || resultClass.isAssignableFrom(Map.class)) {
+                    return (List<X>) SupportJdbcRepository.this.queryMapList(sql, paras);
+                }
+                return SupportJdbcRepository.this.queryList(sql, resultClass, paras);
+            });
+        }
+
+        /**
+         * 获取结果集对应的行映射器
+         *
+         * @return 行映射器
+         */
+        protected RowMapper<X> rowMapper() {
             if (isEntity) {
-                return (List<X>) SupportJdbcRepository.this.queryEntityList(sql, paras);
+                return (RowMapper<X>) entityRowMapper(sql);
             }
             if (null == resultClass || resultClass.isAssignableFrom(Map.class)) {
-                return (List<X>) SupportJdbcRepository.this.queryMapList(sql, paras);
+                return (RowMapper<X>) new ColumnMapRowMapper();
             }
-            return SupportJdbcRepository.this.queryList(sql, resultClass, paras);
+            if (resultClass.getPackage().getName().contains("java.")) {
+                return new SingleColumnRowMapper<X>(resultClass);
+            }
+            return new BeanPropertyRowMapper<X>(resultClass);
         }
 
-        public X uniqueResult() {
+        /**
+         * 流式遍历结果集
+         *
+         * @param consumer 每行的处理
+         */
+        public void forEach(Consumer<? super X> consumer) {
+            SupportJdbcRepository.this.forEach(sql, rowMapper(), consumer, paras);
+        }
 
-            if (isCount) {
-                return jdbcTemplate.queryForObject(SQLTools.getCountSQL(sql), paras, null == resultClass ? (Class<X>) Long.class : resultClass);
-            }
-            if (!sql.toUpperCase().contains(" LIMIT ")) {
-                sql += " limit 1";
-            }
-            return DataAccessUtils.singleResult(list());
+        /**
+         * 流式查询，返回延迟读取的 {@link Stream}，未读取完毕时必须关闭
+         *
+         * @return 延迟读取的流
+         */
+        public Stream<X> stream() {
+            return SupportJdbcRepository.this.stream(sql, rowMapper(), paras);
+        }
+
+        public X uniqueResult() {
+            return monitor(QueryOperation.UNIQUE, sql, this::getParas, () -> {
+                if (isCount) {
+                    Class<X> countClass = null == resultClass ? (Class<X>) Long.class : resultClass;
+                    return read(template -> template.queryForObject(SQLTools.getCountSQL(sql), paras, countClass));
+                }
+                if (!sql.toUpperCase().contains(" LIMIT ")) {
+                    sql += " limit 1";
+                }
+                return DataAccessUtils.singleResult(list());
+            });
         }
 
 
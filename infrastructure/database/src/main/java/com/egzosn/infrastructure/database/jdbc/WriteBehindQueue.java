@@ -0,0 +1,421 @@
+package com.egzosn.infrastructure.database.jdbc;
+
+import com.egzosn.infrastructure.database.jdbc.annotations.WriteBehind;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * 异步批量写入队列
+ * <p>
+ * 多生产者单消费者的有界环形队列：生产者通过CAS占位后写入，不加锁；
+ * 后台线程按批次大小或时间间隔取出实体交给写入器，写入失败的批次转存到溢出文件
+ */
+public class WriteBehindQueue<T> implements Closeable {
+    private static Logger logger = LoggerFactory.getLogger(WriteBehindQueue.class);
+
+    private final String name;
+
+    private final AtomicReferenceArray<Object> buffer;
+
+    private final int mask;
+
+    private final int batchSize;
+
+    private final long flushIntervalNanos;
+
+    private final WriteBehind.Overflow overflow;
+
+    private final File spillFile;
+
+    /**
+     * 批量写入器
+     */
+    private final Consumer<List<T>> writer;
+
+    /**
+     * 生产者占用的位置
+     */
+    private final AtomicLong tail = new AtomicLong();
+
+    /**
+     * 消费者读取的位置，只有后台线程修改
+     */
+    private volatile long head = 0;
+
+    private final AtomicBoolean running = new AtomicBoolean(true);
+
+    /**
+     * 正在放入的生产者数量，关闭时等待其归零后再做最后一次写入，避免关闭前占位的实体丢失
+     */
+    private final AtomicInteger activeProducers = new AtomicInteger();
+
+    private final Thread flusher;
+
+    private final AtomicLong enqueuedCount = new AtomicLong();
+    private final AtomicLong writtenCount = new AtomicLong();
+    private final AtomicLong droppedCount = new AtomicLong();
+    private final AtomicLong spilledCount = new AtomicLong();
+    private final AtomicLong failedCount = new AtomicLong();
+    private final AtomicLong flushCount = new AtomicLong();
+    private final AtomicLong flushNanos = new AtomicLong();
+    private final AtomicLong maxFlushNanos = new AtomicLong();
+
+    /**
+     * @param name          名称，用于线程名与日志
+     * @param capacity      队列容量，向上取整为2的幂
+     * @param batchSize     每批写入的数量
+     * @param flushInterval 最长等待时间，毫秒
+     * @param overflow      队列满时的处理方式
+     * @param spillFile     溢出文件，为null时写入失败的批次只记录日志
+     * @param writer        批量写入器
+     */
+    public WriteBehindQueue(String name, int capacity, int batchSize, long flushInterval, WriteBehind.Overflow overflow, File spillFile, Consumer<List<T>> writer) {
+        if (capacity < 1 || batchSize < 1) {
+            throw new IllegalArgumentException(String.format("capacity and batchSize must be positive: %d, %d", capacity, batchSize));
+        }
+        int size = capacity == 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+        this.name = name;
+        this.buffer = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+        this.batchSize = batchSize;
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(flushInterval);
+        this.overflow = overflow;
+        this.spillFile = spillFile;
+        this.writer = writer;
+        this.flusher = new Thread(this::run, "write-behind-" + name);
+        this.flusher.setDaemon(true);
+        this.flusher.start();
+        replaySpill();
+    }
+
+    /**
+     * 放入队列，队列满时按 {@link WriteBehind.Overflow} 处理
+     *
+     * @param entity 实体
+     * @return 是否放入队列或溢出文件
+     */
+    public boolean offer(T entity) {
+        return offer(entity, overflow);
+    }
+
+    /**
+     * 放入队列
+     *
+     * @param entity   实体
+     * @param overflow 队列满时的处理方式
+     * @return 是否放入队列或溢出文件
+     */
+    private boolean offer(T entity, WriteBehind.Overflow overflow) {
+        activeProducers.incrementAndGet();
+        try {
+            if (!running.get()) {
+                throw new IllegalStateException("WriteBehindQueue " + name + " is closed");
+            }
+            while (!tryOffer(entity)) {
+                switch (overflow) {
+                    case DROP:
+                        droppedCount.incrementAndGet();
+                        return false;
+                    case SPILL:
+                        return spill(entity);
+                    default:
+                        LockSupport.unpark(flusher);
+                        LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(100));
+                        if (!running.get() || !flusher.isAlive()) {
+                            throw new IllegalStateException("WriteBehindQueue " + name + " is closed");
+                        }
+                }
+            }
+            enqueuedCount.incrementAndGet();
+        } finally {
+            activeProducers.decrementAndGet();
+        }
+        if (size() >= batchSize) {
+            LockSupport.unpark(flusher);
+        }
+        return true;
+    }
+
+    private boolean tryOffer(T entity) {
+        for (;;) {
+            long t = tail.get();
+            if (t - head > mask) {
+                return false;
+            }
+            if (tail.compareAndSet(t, t + 1)) {
+                buffer.lazySet((int) (t & mask), entity);
+                return true;
+            }
+        }
+    }
+
+    /**
+     * 取出一个实体，只由消费者调用
+     *
+     * @return 实体，队列为空或生产者尚未写入时返回null
+     */
+    private T poll() {
+        long h = head;
+        if (h >= tail.get()) {
+            return null;
+        }
+        int index = (int) (h & mask);
+        Object entity = buffer.get(index);
+        if (null == entity) {
+            return null;
+        }
+        buffer.lazySet(index, null);
+        head = h + 1;
+        return (T) entity;
+    }
+
+    /**
+     * 后台线程，攒够一批或到达时间间隔后写入
+     */
+    private void run() {
+        List<T> batch = new ArrayList<>(batchSize);
+        long deadline = System.nanoTime() + flushIntervalNanos;
+        while (running.get()) {
+            T entity;
+            while (batch.size() < batchSize && null != (entity = poll())) {
+                batch.add(entity);
+            }
+            long now = System.nanoTime();
+            if (batch.size() >= batchSize || (!batch.isEmpty() && now - deadline >= 0)) {
+                write(batch);
+                deadline = System.nanoTime() + flushIntervalNanos;
+            } else if (batch.isEmpty()) {
+                deadline = now + flushIntervalNanos;
+                LockSupport.parkNanos(this, flushIntervalNanos);
+            } else {
+                LockSupport.parkNanos(this, deadline - now);
+            }
+        }
+        //关闭后等待已进入的生产者完成，再写入剩余的实体
+        T entity;
+        while (activeProducers.get() > 0 || tail.get() > head) {
+            if (null == (entity = poll())) {
+                Thread.yield();
+                continue;
+            }
+            batch.add(entity);
+            if (batch.size() >= batchSize) {
+                write(batch);
+            }
+        }
+        write(batch);
+    }
+
+    /**
+     * 写入一批，失败时转存到溢出文件
+     *
+     * @param batch 实体集，写入后清空
+     */
+    private void write(List<T> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            writer.accept(batch);
+            writtenCount.addAndGet(batch.size());
+        } catch (Throwable e) {
+            //捕获Error，避免后台线程退出后生产者一直阻塞
+            failedCount.addAndGet(batch.size());
+            logger.error("WriteBehindQueue {} write {} rows failed", name, batch.size(), e);
+            for (T entity : batch) {
+                spill(entity);
+            }
+        } finally {
+            long elapsed = System.nanoTime() - start;
+            flushCount.incrementAndGet();
+            flushNanos.addAndGet(elapsed);
+            long max;
+            while (elapsed > (max = maxFlushNanos.get()) && !maxFlushNanos.compareAndSet(max, elapsed)) {
+                //重试
+            }
+            batch.clear();
+        }
+    }
+
+    /**
+     * 写入溢出文件，记录格式为 长度 + java序列化字节
+     *
+     * @param entity 实体
+     * @return 是否写入成功
+     */
+    private boolean spill(T entity) {
+        if (null == spillFile || !(entity instanceof Serializable)) {
+            droppedCount.incrementAndGet();
+            logger.warn("WriteBehindQueue {} drop {}, spill file is absent or entity is not Serializable", name, entity);
+            return false;
+        }
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+            try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+                out.writeObject(entity);
+            }
+            synchronized (spillFile) {
+                try (DataOutputStream out = new DataOutputStream(new FileOutputStream(spillFile, true))) {
+                    out.writeInt(bytes.size());
+                    bytes.writeTo(out);
+                }
+            }
+            spilledCount.incrementAndGet();
+            return true;
+        } catch (IOException e) {
+            droppedCount.incrementAndGet();
+            logger.error("WriteBehindQueue {} spill failed: {}", name, entity, e);
+            return false;
+        }
+    }
+
+    /**
+     * 把上次遗留在溢出文件中的实体重新放入队列
+     */
+    public void replaySpill() {
+        if (null == spillFile) {
+            return;
+        }
+        File replaying;
+        synchronized (spillFile) {
+            if (!spillFile.exists() || spillFile.length() == 0) {
+                return;
+            }
+            replaying = new File(spillFile.getPath() + "." + System.currentTimeMillis());
+            if (!spillFile.renameTo(replaying)) {
+                logger.warn("WriteBehindQueue {} can not replay spill file {}", name, spillFile);
+                return;
+            }
+        }
+        int count = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(replaying)))) {
+            for (;;) {
+                int length;
+                try {
+                    length = in.readInt();
+                } catch (EOFException e) {
+                    break;
+                }
+                byte[] bytes = new byte[length];
+                in.readFully(bytes);
+                try (ObjectInputStream objectIn = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+                    //重放时阻塞等待，避免再次溢出
+                    offer((T) objectIn.readObject(), WriteBehind.Overflow.BLOCK);
+                    count++;
+                }
+            }
+        } catch (IOException | ClassNotFoundException e) {
+            logger.error("WriteBehindQueue {} replay spill file {} failed after {} rows", name, replaying, count, e);
+            return;
+        }
+        if (!replaying.delete()) {
+            logger.warn("WriteBehindQueue {} can not delete {}", name, replaying);
+        }
+        logger.info("WriteBehindQueue {} replayed {} rows from {}", name, count, spillFile);
+    }
+
+    /**
+     * 停止接收并写入队列中剩余的实体
+     */
+    @Override
+    public void close() {
+        if (!running.compareAndSet(true, false)) {
+            return;
+        }
+        LockSupport.unpark(flusher);
+        try {
+            flusher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * 队列中等待写入的数量
+     *
+     * @return 队列深度
+     */
+    public int size() {
+        return (int) Math.max(0, tail.get() - head);
+    }
+
+    public int getCapacity() {
+        return mask + 1;
+    }
+
+    public boolean isRunning() {
+        return running.get();
+    }
+
+    public long getEnqueuedCount() {
+        return enqueuedCount.get();
+    }
+
+    public long getWrittenCount() {
+        return writtenCount.get();
+    }
+
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    public long getSpilledCount() {
+        return spilledCount.get();
+    }
+
+    public long getFailedCount() {
+        return failedCount.get();
+    }
+
+    public long getFlushCount() {
+        return flushCount.get();
+    }
+
+    /**
+     * 平均每批写入耗时，毫秒
+     *
+     * @return 平均耗时
+     */
+    public double getAvgFlushMillis() {
+        long count = flushCount.get();
+        return 0 == count ? 0 : flushNanos.get() / 1e6 / count;
+    }
+
+    /**
+     * 最长一批写入耗时，毫秒
+     *
+     * @return 最长耗时
+     */
+    public double getMaxFlushMillis() {
+        return maxFlushNanos.get() / 1e6;
+    }
+
+    @Override
+    public String toString() {
+        return "WriteBehindQueue{" +
+                "name='" + name + '\'' +
+                ", size=" + size() +
+                ", capacity=" + getCapacity() +
+                ", enqueued=" + enqueuedCount +
+                ", written=" + writtenCount +
+                ", dropped=" + droppedCount +
+                ", spilled=" + spilledCount +
+                ", failed=" + failedCount +
+                ", flushCount=" + flushCount +
+                ", avgFlushMillis=" + getAvgFlushMillis() +
+                ", maxFlushMillis=" + getMaxFlushMillis() +
+                '}';
+    }
+}
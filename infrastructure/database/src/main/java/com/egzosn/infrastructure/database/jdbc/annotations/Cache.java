@@ -0,0 +1,45 @@
+package com.egzosn.infrastructure.database.jdbc.annotations;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+import java.util.concurrent.TimeUnit;
+
+import static java.lang.annotation.ElementType.TYPE;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+/**
+ * 实体二级缓存，与 {@link Table} 一起标注在实体上
+ * <p>
+ * 开启后 get/getAll 优先读取缓存，同一仓库的 save/update/delete 自动失效对应的缓存，
+ * 适用于读多写少的配置类数据
+ */
+@Target(TYPE)
+@Retention(RUNTIME)
+@Documented
+public @interface Cache {
+
+    /**
+     * 最多缓存的实体数量，超出后淘汰最久未访问的实体
+     * @return 最多缓存的实体数量
+     */
+    int capacity() default 1024;
+
+    /**
+     * 有效期
+     * @return 有效期
+     */
+    long ttl() default 300;
+
+    /**
+     * 有效期的单位
+     * @return 有效期的单位
+     */
+    TimeUnit unit() default TimeUnit.SECONDS;
+
+    /**
+     * 是否返回缓存实体的副本，防止调用方修改实体后污染缓存
+     * @return 是否返回副本
+     */
+    boolean copyOnRead() default true;
+}
@@ -20,4 +20,10 @@ public @interface GeneratedValue {
 
     GenerationType strategy() default GenerationType.AUTO;
 
+    /**
+     * 序列名称，{@link GenerationType#SEGMENT} 使用，默认为表名
+     * @return 序列名称
+     */
+    String generator() default "";
+
 }
@@ -0,0 +1,74 @@
+package com.egzosn.infrastructure.database.jdbc.annotations;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+import static java.lang.annotation.ElementType.TYPE;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+/**
+ * 只追加的实体(日志、流水等)开启异步批量写入
+ * <p>
+ * save 只把实体放入有界队列后立即返回，由后台线程按批次大小或时间间隔分批插入；
+ * 使用数据库自增主键时 save 返回null，需要主键请使用 SNOWFLAKE/SEGMENT 等生成策略
+ */
+@Target(TYPE)
+@Retention(RUNTIME)
+@Documented
+public @interface WriteBehind {
+
+    /**
+     * 队列容量，会向上取整为2的幂
+     * @return 队列容量
+     */
+    int capacity() default 8192;
+
+    /**
+     * 每批插入的数量，队列中达到该数量立即写入
+     * @return 每批插入的数量
+     */
+    int batchSize() default 500;
+
+    /**
+     * 最长等待时间，毫秒，不足一批时到时间也会写入
+     * @return 最长等待时间
+     */
+    long flushInterval() default 200;
+
+    /**
+     * 队列满时的处理方式
+     * @return 队列满时的处理方式
+     */
+    Overflow overflow() default Overflow.BLOCK;
+
+    /**
+     * 溢出文件，{@link Overflow#SPILL} 或写入失败时使用，默认为临时目录下的 write-behind-表名.spill
+     * @return 溢出文件
+     */
+    String spillFile() default "";
+
+    /**
+     * JVM退出时是否写入队列中剩余的实体
+     * @return 是否写入剩余的实体
+     */
+    boolean flushOnShutdown() default true;
+
+    /**
+     * 队列满时的处理方式
+     */
+    enum Overflow {
+        /**
+         * 阻塞直到队列有空位
+         */
+        BLOCK,
+        /**
+         * 丢弃并计数，{@link com.egzosn.infrastructure.database.jdbc.SupportJdbcRepository#save} 抛出 {@link IllegalStateException}
+         */
+        DROP,
+        /**
+         * 写入本地溢出文件，下次启动时重新写入数据库，实体需要实现 {@link java.io.Serializable}
+         */
+        SPILL
+    }
+}
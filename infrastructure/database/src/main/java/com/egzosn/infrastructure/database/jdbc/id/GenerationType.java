@@ -6,8 +6,9 @@ import org.springframework.jdbc.core.RowMapperResultSetExtractor;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Types;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 
@@ -35,6 +36,13 @@ public enum  GenerationType implements IdGeneratedStrategy{
             try (  ResultSet rs = ps.getGeneratedKeys();){
 
                 if (rs != null && rs.getMetaData().getColumnCount() == 1) {
+                    if (isIntegral(rs.getMetaData().getColumnType(1))) {
+                        LongKeyHolder keyHolder = new LongKeyHolder(num);
+                        while (rs.next()) {
+                            keyHolder.add(rs.getLong(1));
+                        }
+                        return keyHolder;
+                    }
                     RowMapperResultSetExtractor<Map<String, Object>> rse = new RowMapperResultSetExtractor<Map<String, Object>>( new ColumnMapRowMapper(), 1);
                     return new GeneratedKeyHolder(rse.extractData(rs));
                 }
@@ -56,14 +64,81 @@ public enum  GenerationType implements IdGeneratedStrategy{
             List<Map<String, Object>>  keyList = new ArrayList<>(num);
             KeyHolder keyHolder = new GeneratedKeyHolder(keyList);
             for (int i = 0; i < num; i++){
-                HashMap<String, Object> keys = new HashMap<>();
-                keys.put("key", java.util.UUID.randomUUID().toString().replace("-", ""));
-                keyList.add(keys);
+                keyList.add(Collections.<String, Object>singletonMap("key", java.util.UUID.randomUUID().toString().replace("-", "")));
             }
 
             return keyHolder;
         }
+    },SNOWFLAKE {
+        /**
+         * 雪花算法生成按时间递增的64位主键，见 {@link SnowflakeIdGenerator}
+         * 每次生成时才获取当前的生成器，实体初始化后修改机器id同样生效
+         * @param ps  An object that represents a precompiled SQL statement.
+         *            {@link PreparedStatement}
+         * @param num 生成数量
+         * @return 主键
+         */
+        @Override
+        public KeyHolder generation(PreparedStatement ps, int num) {
+            return IdGenerators.snowflake().generation(ps, num);
+        }
+    },SEGMENT {
+        /**
+         * 号段生成器需要序列名称，由 {@link #resolve(String)} 获取实际的生成器
+         * @param ps  An object that represents a precompiled SQL statement.
+         *            {@link PreparedStatement}
+         * @param num 生成数量
+         * @return 主键
+         */
+        @Override
+        public KeyHolder generation(PreparedStatement ps, int num) {
+            throw new IdentifierGenerationException("SEGMENT需要序列名称，请使用GenerationType.SEGMENT.resolve(name)");
+        }
+
+        @Override
+        public IdGeneratedStrategy resolve(String name) {
+            return new LazySegmentStrategy(name);
+        }
     };
 
+    /**
+     * 是否为整数类型的列
+     * @param sqlType {@link Types}
+     * @return 是否为整数类型
+     */
+    static boolean isIntegral(int sqlType) {
+        return Types.BIGINT == sqlType || Types.INTEGER == sqlType || Types.SMALLINT == sqlType || Types.TINYINT == sqlType;
+    }
+
+    /**
+     * 获取实际使用的生成策略
+     * @param name 序列名称, 默认为表名
+     * @return 生成策略
+     */
+    public IdGeneratedStrategy resolve(String name) {
+        return this;
+    }
+
+    /**
+     * 首次生成时才获取号段生成器，实体初始化时数据源可以尚未配置
+     */
+    private static class LazySegmentStrategy implements IdGeneratedStrategy {
+        private final String name;
+
+        LazySegmentStrategy(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public KeyHolder generation(PreparedStatement ps, int num) {
+            return IdGenerators.segment(name).generation(ps, num);
+        }
+
+        @Override
+        public String toString() {
+            return "SEGMENT(" + name + ")";
+        }
+    }
+
 
 }
@@ -1,14 +1,20 @@
 package com.egzosn.infrastructure.database.jdbc.id;
 
 
+import org.springframework.util.ClassUtils;
+import org.springframework.util.NumberUtils;
+
 import java.io.Serializable;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.sql.PreparedStatement;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
 
 /**
  * 储存id的一些信息
@@ -44,6 +50,16 @@ public class IdField {
      */
     private IdGeneratedStrategy strategy;
 
+    /**
+     * id字段对应的可读访问器，为null时使用 {@link #readMethod}
+     */
+    private Function<Object, Object> reader;
+
+    /**
+     * id字段对应的可写访问器，为null时使用 {@link #writeMethod}
+     */
+    private BiConsumer<Object, Object> writer;
+
 
     /**
      * 对应实体id字段进行设值
@@ -51,23 +67,16 @@ public class IdField {
      * @param ps 数据库操作对象
      */
     public <T>Serializable idGenerated(T entity, PreparedStatement ps){
-            try {
-                Object result = getReadMethod().invoke(entity);
-                if (null != result){
-                    throw new IdentifierGenerationException(String.format("id生成失败，该对象{%s}的id已有值:", entity, result));
-                }
-                KeyHolder keyHolder = getStrategy().generation(ps, 1);
-                Serializable key = keyHolder.key();
-                if (null != key) {
-                    getWriteMethod().invoke(entity, key);
-                }
-                return key;
-            } catch (IllegalAccessException e) {
-                e.printStackTrace();
-            } catch (InvocationTargetException e) {
-                e.printStackTrace();
-            }
-        return null;
+        Object result = getIdValue(entity);
+        if (null != result){
+            throw new IdentifierGenerationException(String.format("id生成失败，该对象{%s}的id已有值:%s", entity, result));
+        }
+        KeyHolder keyHolder = getStrategy().generation(ps, 1);
+        Serializable key = keyHolder.key();
+        if (null != key) {
+            key = setIdValue(entity, key);
+        }
+        return key;
     }
     /**
      * 对应实体id字段进行设值
@@ -75,40 +84,123 @@ public class IdField {
      * @param ps 数据库操作对象
      */
     public <T>List<Serializable> idGenerated(Collection<T> entitys, PreparedStatement ps){
-        List<Serializable> ids = new ArrayList<>();
-            try {
-                List<Map<String, Object>> keyList = null;
-                int i = 0;
-                for (T entity : entitys) {
-                    Object result = getReadMethod().invoke(entity);
-                    if (null != result) {
-                        throw new IdentifierGenerationException(String.format("id生成失败，该对象{%s}的id已有值:", entitys, result));
-                    }
-                    if (null == keyList ){
-                        KeyHolder keyHolder = getStrategy().generation(ps, entitys.size());
-                        if (null == keyHolder){
-                            return null;
-                        }
-                         keyList = keyHolder.getKeyList();
-                    }
-                    for (Object id :  keyList.get(i++).values()){
-                        if (null != id) {
-                            getWriteMethod().invoke(entitys, new Object[]{id});
-                            ids.add((Serializable) id);
-                        }
-                        break;
-                    }
+        for (T entity : entitys) {
+            Object result = getIdValue(entity);
+            if (null != result) {
+                throw new IdentifierGenerationException(String.format("id生成失败，该对象{%s}的id已有值:%s", entity, result));
+            }
+        }
+        KeyHolder keyHolder = getStrategy().generation(ps, entitys.size());
+        if (null == keyHolder){
+            return null;
+        }
+        return setIdValues(entitys, keyHolder);
+    }
 
+    /**
+     * 按顺序将主键写回实体，{@link LongKeyHolder} 不经过 Map 直接写回
+     * @param entities 实体集，与主键一一对应
+     * @param keyHolder 主键
+     * @return 转换后的主键集
+     */
+    public List<Serializable> setIdValues(Iterable<?> entities, KeyHolder keyHolder) {
+        int size = keyHolder.size();
+        List<Serializable> ids = new ArrayList<>(size);
+        int i = 0;
+        if (keyHolder instanceof LongKeyHolder) {
+            LongKeyHolder longKeyHolder = (LongKeyHolder) keyHolder;
+            for (Object entity : entities) {
+                if (i >= size) {
+                    break;
                 }
-                return ids;
-            } catch (IllegalAccessException e) {
-                e.printStackTrace();
-            } catch (InvocationTargetException e) {
-                e.printStackTrace();
+                ids.add(setIdValue(entity, longKeyHolder.get(i++)));
+            }
+            return ids;
+        }
+        List<Map<String, Object>> keyList = keyHolder.getKeyList();
+        for (Object entity : entities) {
+            if (i >= size) {
+                break;
             }
+            Iterator<Object> values = keyList.get(i++).values().iterator();
+            if (values.hasNext()) {
+                ids.add(setIdValue(entity, values.next()));
+            }
+        }
         return ids;
     }
 
+    /**
+     * 对实体的id进行设值，按id字段的类型装箱
+     * @param entity 实体
+     * @param key 主键
+     * @return 转换后的主键
+     */
+    public Serializable setIdValue(Object entity, long key) {
+        Class<?> idType = ClassUtils.resolvePrimitiveIfNecessary(type);
+        Object value;
+        if (Long.class == idType) {
+            value = key;
+        } else if (Integer.class == idType) {
+            value = Math.toIntExact(key);
+        } else if (String.class == idType) {
+            value = Long.toString(key);
+        } else {
+            return setIdValue(entity, (Object) key);
+        }
+        writeId(entity, value);
+        return (Serializable) value;
+    }
+
+    /**
+     * 获取实体的id值
+     * @param entity 实体
+     * @return id值
+     */
+    public Object getIdValue(Object entity) {
+        if (null != reader) {
+            return reader.apply(entity);
+        }
+        try {
+            return getReadMethod().invoke(entity);
+        } catch (IllegalAccessException | InvocationTargetException e) {
+            throw new IdentifierGenerationException(String.format("获取id失败: %s", entity), e);
+        }
+    }
+
+    /**
+     * 对实体的id进行设值，数字类型的主键会转换为id字段的类型，字符串类型的id字段转换为字符串
+     * @param entity 实体
+     * @param key 主键
+     * @return 转换后的主键
+     */
+    public Serializable setIdValue(Object entity, Object key) {
+        if (key instanceof Number && Number.class.isAssignableFrom(ClassUtils.resolvePrimitiveIfNecessary(type))) {
+            key = NumberUtils.convertNumberToTargetClass((Number) key, (Class<Number>) ClassUtils.resolvePrimitiveIfNecessary(type));
+        } else if (null != key && String.class == type && !(key instanceof String)) {
+            key = key.toString();
+        }
+        writeId(entity, key);
+        return (Serializable) key;
+    }
+
+    /**
+     * 对实体的id进行设值
+     * @param entity 实体
+     * @param value 已转换为id字段类型的值
+     */
+    private void writeId(Object entity, Object value) {
+        try {
+            if (null != writer) {
+                writer.accept(entity, value);
+            } else {
+                getWriteMethod().invoke(entity, value);
+            }
+        } catch (IllegalAccessException | InvocationTargetException | RuntimeException e) {
+            throw new IdentifierGenerationException(String.format("id设值失败: %s, %s", entity, value), e);
+        }
+    }
+
     /**
      * 是否有id生成策略
      * @return  是否有id生成策略
@@ -134,6 +226,22 @@ public class IdField {
         this.readMethod = readMethod;
     }
 
+    public Function<Object, Object> getReader() {
+        return reader;
+    }
+
+    public void setReader(Function<Object, Object> reader) {
+        this.reader = reader;
+    }
+
+    public BiConsumer<Object, Object> getWriter() {
+        return writer;
+    }
+
+    public void setWriter(BiConsumer<Object, Object> writer) {
+        this.writer = writer;
+    }
+
     public String getColumn() {
         return column;
     }
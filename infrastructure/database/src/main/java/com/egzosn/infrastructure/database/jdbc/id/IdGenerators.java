@@ -0,0 +1,101 @@
+package com.egzosn.infrastructure.database.jdbc.id;
+
+import org.springframework.util.Assert;
+
+import javax.sql.DataSource;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * {@link GenerationType#SNOWFLAKE} 与 {@link GenerationType#SEGMENT} 使用的主键生成器配置
+ * <p>
+ * 雪花算法的机器id默认取系统属性 <code>jdbc.id.worker</code>，未配置为0；
+ * 号段生成器需要先通过 {@link #setDataSource(DataSource)} 指定序列表所在的数据源，
+ * 每个序列名称对应一个生成器
+ */
+public final class IdGenerators {
+
+    /**
+     * 机器id对应的系统属性
+     */
+    public static final String WORKER_ID_PROPERTY = "jdbc.id.worker";
+
+    private static volatile SnowflakeIdGenerator snowflake = new SnowflakeIdGenerator(Long.getLong(WORKER_ID_PROPERTY, 0L));
+
+    private static volatile DataSource dataSource;
+
+    private static volatile String segmentTable = SegmentIdGenerator.DEFAULT_TABLE;
+
+    private static volatile int segmentStep = SegmentIdGenerator.DEFAULT_STEP;
+
+    private static final ConcurrentMap<String, SegmentIdGenerator> SEGMENTS = new ConcurrentHashMap<>();
+
+    private IdGenerators() {
+    }
+
+    /**
+     * 获取雪花算法主键生成器
+     *
+     * @return 雪花算法主键生成器
+     */
+    public static SnowflakeIdGenerator snowflake() {
+        return snowflake;
+    }
+
+    /**
+     * 设置机器id，同一个库的多个实例必须不同
+     *
+     * @param workerId 机器id 0~1023
+     */
+    public static void setWorkerId(long workerId) {
+        snowflake = new SnowflakeIdGenerator(workerId);
+    }
+
+    /**
+     * 获取序列名称对应的号段生成器
+     *
+     * @param name 序列名称
+     * @return 号段生成器
+     */
+    public static SegmentIdGenerator segment(String name) {
+        SegmentIdGenerator generator = SEGMENTS.get(name);
+        if (null != generator) {
+            return generator;
+        }
+        if (null == dataSource) {
+            throw new IdentifierGenerationException(String.format("号段生成器未配置数据源: %s, 请调用IdGenerators.setDataSource", name));
+        }
+        generator = new SegmentIdGenerator(dataSource, segmentTable, name, segmentStep);
+        SegmentIdGenerator existing = SEGMENTS.putIfAbsent(name, generator);
+        return null == existing ? generator : existing;
+    }
+
+    /**
+     * 设置号段序列表所在的数据源，已创建的号段生成器会被丢弃
+     *
+     * @param dataSource 数据源
+     */
+    public static void setDataSource(DataSource dataSource) {
+        Assert.notNull(dataSource, "dataSource must not be null");
+        IdGenerators.dataSource = dataSource;
+        SEGMENTS.clear();
+    }
+
+    /**
+     * 设置号段序列表，对之后创建的号段生成器生效
+     *
+     * @param table 序列表
+     */
+    public static void setSegmentTable(String table) {
+        segmentTable = table;
+    }
+
+    /**
+     * 设置号段大小，对之后新建的序列生效
+     *
+     * @param step 号段大小
+     */
+    public static void setSegmentStep(int step) {
+        segmentStep = step;
+    }
+}
@@ -17,4 +17,14 @@ public class IdentifierGenerationException extends RuntimeException {
     public IdentifierGenerationException(String message) {
         super(message);
     }
+
+    /**
+     * Constructs a new runtime exception with the specified detail message and cause.
+     *
+     * @param message the detail message
+     * @param cause   the cause
+     */
+    public IdentifierGenerationException(String message, Throwable cause) {
+        super(message, cause);
+    }
 }
@@ -46,6 +46,15 @@ public interface KeyHolder extends org.springframework.jdbc.support.KeyHolder {
 
 	Serializable key() throws InvalidDataAccessApiUsageException;
 
+	/**
+	 * 主键的行数
+	 * @return 主键的行数
+	 */
+	default int size() {
+		List<Map<String, Object>> keyList = getKeyList();
+		return null == keyList ? 0 : keyList.size();
+	}
+
 
 
 }
@@ -0,0 +1,111 @@
+package com.egzosn.infrastructure.database.jdbc.id;
+
+import org.springframework.dao.InvalidDataAccessApiUsageException;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 数字主键的容器，以 long[] 保存每一行的主键
+ * <p>
+ * 批量插入时不再为每一行创建 Map，主键通过 {@link IdField#setIdValues(Iterable, KeyHolder)} 直接写回实体；
+ * {@link #getKeyList()} 只为兼容保留，调用时才创建 Map
+ */
+public class LongKeyHolder implements KeyHolder {
+
+    private long[] keys;
+
+    private int size = 0;
+
+    public LongKeyHolder() {
+        this(16);
+    }
+
+    /**
+     * @param capacity 初始容量
+     */
+    public LongKeyHolder(int capacity) {
+        this.keys = new long[Math.max(capacity, 1)];
+    }
+
+    /**
+     * 添加一行的主键
+     *
+     * @param key 主键
+     */
+    public void add(long key) {
+        if (size == keys.length) {
+            keys = Arrays.copyOf(keys, size << 1);
+        }
+        keys[size++] = key;
+    }
+
+    /**
+     * 获取第几行的主键
+     *
+     * @param index 行下标，从0开始
+     * @return 主键
+     */
+    public long get(int index) {
+        if (index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        return keys[index];
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * 主键数组
+     *
+     * @return 主键数组
+     */
+    public long[] toArray() {
+        return Arrays.copyOf(keys, size);
+    }
+
+    @Override
+    public Number getKey() throws InvalidDataAccessApiUsageException {
+        return (Number) key();
+    }
+
+    @Override
+    public Serializable key() throws InvalidDataAccessApiUsageException {
+        if (0 == size) {
+            return null;
+        }
+        if (size > 1) {
+            throw new InvalidDataAccessApiUsageException(
+                    "The getKey method should only be used when a single key is returned.  " +
+                            "The current key list contains keys for multiple rows: " + size);
+        }
+        return keys[0];
+    }
+
+    @Override
+    public Map<String, Object> getKeys() throws InvalidDataAccessApiUsageException {
+        Serializable key = key();
+        return null == key ? null : Collections.<String, Object>singletonMap("key", key);
+    }
+
+    @Override
+    public List<Map<String, Object>> getKeyList() {
+        List<Map<String, Object>> keyList = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            keyList.add(Collections.<String, Object>singletonMap("key", keys[i]));
+        }
+        return keyList;
+    }
+
+    @Override
+    public String toString() {
+        return "LongKeyHolder" + Arrays.toString(toArray());
+    }
+}
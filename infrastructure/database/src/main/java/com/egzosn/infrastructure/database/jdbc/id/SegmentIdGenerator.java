@@ -0,0 +1,195 @@
+package com.egzosn.infrastructure.database.jdbc.id;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.PreparedStatement;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 号段主键生成器(hi-lo)
+ * <p>
+ * 每次从序列表中预占一段主键 (max_id - step, max_id]，在内存中分配；
+ * 分配只做一次CAS，号段用尽时才访问数据库，预占在独立事务中提交，不受业务事务回滚影响
+ * <p>
+ * 序列表结构：
+ * <pre>
+ * create table id_segment (
+ *   name varchar(64) not null primary key,
+ *   max_id bigint not null,
+ *   step int not null
+ * );
+ * </pre>
+ */
+public class SegmentIdGenerator implements IdGeneratedStrategy {
+    private static Logger logger = LoggerFactory.getLogger(SegmentIdGenerator.class);
+
+    /**
+     * 默认的序列表
+     */
+    public static final String DEFAULT_TABLE = "id_segment";
+
+    /**
+     * 默认的号段大小
+     */
+    public static final int DEFAULT_STEP = 1000;
+
+    /**
+     * 序列名称
+     */
+    private final String name;
+
+    private final int step;
+
+    private final String updateSql;
+
+    private final String selectSql;
+
+    private final String insertSql;
+
+    private transient final JdbcTemplate jdbcTemplate;
+
+    private transient final TransactionTemplate transactionTemplate;
+
+    /**
+     * 当前号段，用尽时整体替换
+     */
+    private transient volatile Segment segment = new Segment(1, 0);
+
+    /**
+     * @param dataSource 序列表所在的数据源
+     * @param name       序列名称
+     */
+    public SegmentIdGenerator(DataSource dataSource, String name) {
+        this(dataSource, DEFAULT_TABLE, name, DEFAULT_STEP);
+    }
+
+    /**
+     * @param dataSource 序列表所在的数据源
+     * @param table      序列表
+     * @param name       序列名称
+     * @param step       号段大小，首次创建序列时使用，之后以序列表中的step为准
+     */
+    public SegmentIdGenerator(DataSource dataSource, String table, String name, int step) {
+        if (step < 1) {
+            throw new IllegalArgumentException("step must be positive: " + step);
+        }
+        this.name = name;
+        this.step = step;
+        this.updateSql = String.format("update %s set max_id = max_id + step where name = ?", table);
+        this.selectSql = String.format("select max_id, step from %s where name = ?", table);
+        this.insertSql = String.format("insert into %s(name, max_id, step) values(?, ?, ?)", table);
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /**
+     * 生成下一个主键
+     *
+     * @return 主键
+     */
+    public long nextId() {
+        for (;;) {
+            Segment current = segment;
+            long id = current.cursor.getAndIncrement();
+            if (id <= current.max) {
+                return id;
+            }
+            allocate(current);
+        }
+    }
+
+    /**
+     * 当前号段用尽后从数据库预占下一个号段，只有一个线程会进行预占
+     *
+     * @param exhausted 已用尽的号段
+     */
+    private synchronized void allocate(Segment exhausted) {
+        if (segment != exhausted) {
+            return;
+        }
+        long[] range = transactionTemplate.execute(status -> reserve());
+        segment = new Segment(range[0], range[1]);
+        if (logger.isDebugEnabled()) {
+            logger.debug("Segment {} allocated [{}, {}]", name, range[0], range[1]);
+        }
+    }
+
+    /**
+     * 预占号段
+     *
+     * @return 号段的起止值
+     */
+    private long[] reserve() {
+        if (0 == jdbcTemplate.update(updateSql, name)) {
+            try {
+                jdbcTemplate.update(insertSql, name, step, step);
+                return new long[]{1, step};
+            } catch (DuplicateKeyException e) {
+                //其他实例已创建序列
+                jdbcTemplate.update(updateSql, name);
+            }
+        }
+        Map<String, Object> row = jdbcTemplate.queryForMap(selectSql, name);
+        long max = ((Number) row.get("max_id")).longValue();
+        long size = ((Number) row.get("step")).longValue();
+        return new long[]{max - size + 1, max};
+    }
+
+    /**
+     * @param ps  An object that represents a precompiled SQL statement.
+     *            {@link PreparedStatement}
+     * @param num 生成数量
+     * @return 主键
+     */
+    @Override
+    public KeyHolder generation(PreparedStatement ps, int num) {
+        LongKeyHolder keyHolder = new LongKeyHolder(num);
+        try {
+            for (int i = 0; i < num; i++) {
+                keyHolder.add(nextId());
+            }
+        } catch (DataAccessException e) {
+            throw new IdentifierGenerationException(String.format("号段预占失败: %s", name), e);
+        }
+        return keyHolder;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getStep() {
+        return step;
+    }
+
+    @Override
+    public String toString() {
+        return "SegmentIdGenerator{" +
+                "name='" + name + '\'' +
+                ", step=" + step +
+                '}';
+    }
+
+    /**
+     * 号段 [cursor, max]
+     */
+    private static final class Segment {
+        final AtomicLong cursor;
+        final long max;
+
+        Segment(long start, long max) {
+            this.cursor = new AtomicLong(start);
+            this.max = max;
+        }
+    }
+}
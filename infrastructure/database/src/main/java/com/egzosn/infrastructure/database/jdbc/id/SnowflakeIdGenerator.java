@@ -0,0 +1,106 @@
+package com.egzosn.infrastructure.database.jdbc.id;
+
+import java.sql.PreparedStatement;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 雪花算法主键生成器，生成按时间递增的64位主键
+ * <p>
+ * 结构： 1位符号位 | 41位毫秒时间戳(相对 {@link #DEFAULT_EPOCH}) | 10位机器id | 12位序列号
+ * <p>
+ * 时间戳与序列号合并为一个 {@link AtomicLong} 通过CAS推进，不加锁；
+ * 同一毫秒内序列号用尽或时钟回拨时借用后续的毫秒继续递增，保证单调不重复
+ */
+public class SnowflakeIdGenerator implements IdGeneratedStrategy {
+
+    /**
+     * 默认的起始时间 2017-12-01 00:00:00 GMT+8
+     */
+    public static final long DEFAULT_EPOCH = 1512057600000L;
+
+    private static final int WORKER_ID_BITS = 10;
+
+    private static final int SEQUENCE_BITS = 12;
+
+    /**
+     * 最大的机器id
+     */
+    public static final long MAX_WORKER_ID = ~(-1L << WORKER_ID_BITS);
+
+    private static final long SEQUENCE_MASK = ~(-1L << SEQUENCE_BITS);
+
+    private final long workerId;
+
+    private final long epoch;
+
+    /**
+     * 最后一次生成时的 时间戳 &lt;&lt; 12 | 序列号
+     */
+    private final AtomicLong state = new AtomicLong();
+
+    /**
+     * @param workerId 机器id 0~1023，同一个库的多个实例必须不同
+     */
+    public SnowflakeIdGenerator(long workerId) {
+        this(workerId, DEFAULT_EPOCH);
+    }
+
+    /**
+     * @param workerId 机器id 0~1023，同一个库的多个实例必须不同
+     * @param epoch    起始时间
+     */
+    public SnowflakeIdGenerator(long workerId, long epoch) {
+        if (workerId < 0 || workerId > MAX_WORKER_ID) {
+            throw new IllegalArgumentException(String.format("workerId must be between 0 and %d: %d", MAX_WORKER_ID, workerId));
+        }
+        this.workerId = workerId;
+        this.epoch = epoch;
+    }
+
+    /**
+     * 生成下一个主键
+     *
+     * @return 主键
+     */
+    public long nextId() {
+        for (;;) {
+            long prev = state.get();
+            long now = System.currentTimeMillis() - epoch;
+            long next = now > (prev >>> SEQUENCE_BITS) ? now << SEQUENCE_BITS : prev + 1;
+            if (state.compareAndSet(prev, next)) {
+                return (next >>> SEQUENCE_BITS) << (WORKER_ID_BITS + SEQUENCE_BITS) | workerId << SEQUENCE_BITS | (next & SEQUENCE_MASK);
+            }
+        }
+    }
+
+    /**
+     * @param ps  An object that represents a precompiled SQL statement.
+     *            {@link PreparedStatement}
+     * @param num 生成数量
+     * @return 主键
+     */
+    @Override
+    public KeyHolder generation(PreparedStatement ps, int num) {
+        LongKeyHolder keyHolder = new LongKeyHolder(num);
+        for (int i = 0; i < num; i++) {
+            keyHolder.add(nextId());
+        }
+        return keyHolder;
+    }
+
+    public long getWorkerId() {
+        return workerId;
+    }
+
+    public long getEpoch() {
+        return epoch;
+    }
+
+    @Override
+    public String toString() {
+        return "SnowflakeIdGenerator{" +
+                "workerId=" + workerId +
+                ", epoch=" + epoch +
+                '}';
+    }
+}
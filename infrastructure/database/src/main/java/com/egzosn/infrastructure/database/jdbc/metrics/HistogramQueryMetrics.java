@@ -0,0 +1,97 @@
+package com.egzosn.infrastructure.database.jdbc.metrics;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * 按标签记录到 {@link LatencyHistogram} 的默认实现
+ * <p>
+ * 标签数量超过 {@link #maxTimers} 后，新的sql指纹合并到 {@link QueryTag#OTHER_FINGERPRINT}，避免拼接常量的sql撑满内存
+ */
+public class HistogramQueryMetrics implements QueryMetrics {
+
+    /**
+     * 默认的计时器数量上限
+     */
+    public static final int DEFAULT_MAX_TIMERS = 1024;
+
+    private final ConcurrentMap<QueryTag, QueryTimer> timers = new ConcurrentHashMap<>();
+
+    private final int maxTimers;
+
+    public HistogramQueryMetrics() {
+        this(DEFAULT_MAX_TIMERS);
+    }
+
+    /**
+     * @param maxTimers 计时器数量上限
+     */
+    public HistogramQueryMetrics(int maxTimers) {
+        if (maxTimers < 1) {
+            throw new IllegalArgumentException("maxTimers must be positive: " + maxTimers);
+        }
+        this.maxTimers = maxTimers;
+    }
+
+    @Override
+    public void record(QueryTag tag, long elapsedNanos, long rows, boolean success) {
+        QueryTimer timer = timers.get(tag);
+        if (null == timer) {
+            if (timers.size() >= maxTimers) {
+                tag = tag.withFingerprint(QueryTag.OTHER_FINGERPRINT);
+            }
+            timer = timers.computeIfAbsent(tag, k -> new QueryTimer());
+        }
+        timer.record(elapsedNanos, rows, success);
+    }
+
+    /**
+     * 获取标签的计时器
+     *
+     * @param tag 标签
+     *
+     * @return 计时器，没有记录时返回null
+     */
+    public QueryTimer getTimer(QueryTag tag) {
+        return timers.get(tag);
+    }
+
+    /**
+     * 获取所有计时器
+     *
+     * @return 标签与计时器
+     */
+    public Map<QueryTag, QueryTimer> getTimers() {
+        return Collections.unmodifiableMap(timers);
+    }
+
+    /**
+     * 清空所有计时器
+     */
+    public void reset() {
+        timers.clear();
+    }
+
+    /**
+     * 按总耗时从大到小输出各计时器
+     *
+     * @return 每个计时器一行
+     */
+    public String report() {
+        List<Map.Entry<QueryTag, QueryTimer>> entries = new ArrayList<>(timers.entrySet());
+        entries.sort((a, b) -> Long.compare(b.getValue().getHistogram().getSum(), a.getValue().getHistogram().getSum()));
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<QueryTag, QueryTimer> entry : entries) {
+            sb.append(entry.getKey()).append(" : ").append(entry.getValue()).append('\n');
+        }
+        return sb.toString();
+    }
+
+    public int getMaxTimers() {
+        return maxTimers;
+    }
+}
@@ -0,0 +1,181 @@
+package com.egzosn.infrastructure.database.jdbc.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 无锁的耗时直方图，按HDR Histogram的对数线性分桶
+ * <p>
+ * 每个2的幂区间再均分为 {@link #SUB_BUCKETS} 个桶，相对误差不超过1/{@link #SUB_BUCKETS}；
+ * 记录只做原子递增，不加锁也不分配对象；可记录的最大值为 {@link #MAX_VALUE} 纳秒，超出时按最大值记录。
+ * 读取时不与记录互斥，并发记录时百分位与总数可能相差正在记录的几个值
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 5;
+
+    /**
+     * 每个2的幂区间内的桶数
+     */
+    public static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    private static final int MAX_VALUE_BITS = 36;
+
+    /**
+     * 可记录的最大值，纳秒，约68.7秒
+     */
+    public static final long MAX_VALUE = (1L << MAX_VALUE_BITS) - 1;
+
+    private static final int BUCKETS = (MAX_VALUE_BITS - SUB_BUCKET_BITS + 1) << SUB_BUCKET_BITS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+    private final LongAdder count = new LongAdder();
+
+    private final LongAdder sum = new LongAdder();
+
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * 记录一个值
+     *
+     * @param value 值，纳秒
+     */
+    public void record(long value) {
+        if (value < 0) {
+            value = 0;
+        } else if (value > MAX_VALUE) {
+            value = MAX_VALUE;
+        }
+        counts.incrementAndGet(index(value));
+        count.increment();
+        sum.add(value);
+        long current;
+        while (value > (current = max.get()) && !max.compareAndSet(current, value)) {
+            //其他线程记录了更小的最大值，重试
+        }
+    }
+
+    /**
+     * 获取记录的数量
+     *
+     * @return 数量
+     */
+    public long getCount() {
+        return count.sum();
+    }
+
+    /**
+     * 获取记录的值的总和
+     *
+     * @return 总和，纳秒
+     */
+    public long getSum() {
+        return sum.sum();
+    }
+
+    /**
+     * 获取平均值
+     *
+     * @return 平均值，纳秒，没有记录时为0
+     */
+    public double getMean() {
+        long n = count.sum();
+        return 0 == n ? 0 : (double) sum.sum() / n;
+    }
+
+    /**
+     * 获取最大值
+     *
+     * @return 最大值，纳秒
+     */
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * 获取百分位对应的值，为所在桶的上界，不超过最大值
+     *
+     * @param percentile 百分位，0 ~ 100
+     *
+     * @return 值，纳秒，没有记录时为0
+     */
+    public long getValueAtPercentile(double percentile) {
+        long[] snapshot = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = counts.get(i);
+            total += snapshot[i];
+        }
+        if (0 == total) {
+            return 0;
+        }
+        long target = Math.max(1, (long) Math.ceil(Math.min(100, Math.max(0, percentile)) / 100 * total));
+        long accumulated = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            accumulated += snapshot[i];
+            if (accumulated >= target) {
+                return Math.min(lowestValue(i) + bucketWidth(i) - 1, getMax());
+            }
+        }
+        return getMax();
+    }
+
+    /**
+     * 按指定单位获取百分位对应的值
+     *
+     * @param percentile 百分位，0 ~ 100
+     * @param unit       单位
+     *
+     * @return 值
+     */
+    public double getValueAtPercentile(double percentile, TimeUnit unit) {
+        return (double) getValueAtPercentile(percentile) / unit.toNanos(1);
+    }
+
+    /**
+     * 清空记录，与并发的记录不互斥
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts.set(i, 0);
+        }
+        count.reset();
+        sum.reset();
+        max.set(0);
+    }
+
+    /**
+     * 值所在的桶
+     *
+     * @param value 值，0 ~ {@link #MAX_VALUE}
+     *
+     * @return 桶的下标
+     */
+    static int index(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        return ((shift + 1) << SUB_BUCKET_BITS) + (int) ((value >>> shift) - SUB_BUCKETS);
+    }
+
+    /**
+     * 桶的最小值
+     */
+    static long lowestValue(int index) {
+        int group = index >>> SUB_BUCKET_BITS;
+        int sub = index & (SUB_BUCKETS - 1);
+        return 0 == group ? sub : (long) (SUB_BUCKETS + sub) << (group - 1);
+    }
+
+    /**
+     * 桶的宽度
+     */
+    static long bucketWidth(int index) {
+        int group = index >>> SUB_BUCKET_BITS;
+        return 0 == group ? 1 : 1L << (group - 1);
+    }
+}
@@ -0,0 +1,37 @@
+package com.egzosn.infrastructure.database.jdbc.metrics;
+
+import java.util.Iterator;
+import java.util.ServiceLoader;
+
+/**
+ * 仓库操作耗时的收集接口
+ * <p>
+ * 默认使用进程内的 {@link HistogramQueryMetrics}；接入其他监控系统时实现此接口，
+ * 在 META-INF/services/com.egzosn.infrastructure.database.jdbc.metrics.QueryMetrics 中声明，
+ * 或通过 {@link com.egzosn.infrastructure.database.jdbc.SupportJdbcRepository#setQueryMetrics(QueryMetrics)} 指定。
+ * 在查询线程上同步调用，实现不应阻塞
+ */
+public interface QueryMetrics {
+
+    /**
+     * 记录一次操作
+     *
+     * @param tag          标签
+     * @param elapsedNanos 耗时，纳秒
+     * @param rows         返回或影响的行数
+     * @param success      是否成功
+     */
+    void record(QueryTag tag, long elapsedNanos, long rows, boolean success);
+
+    /**
+     * 加载声明的实现，没有声明时使用 {@link HistogramQueryMetrics}
+     *
+     * @param classLoader 类加载器
+     *
+     * @return 第一个声明的实现
+     */
+    static QueryMetrics load(ClassLoader classLoader) {
+        Iterator<QueryMetrics> providers = ServiceLoader.load(QueryMetrics.class, classLoader).iterator();
+        return providers.hasNext() ? providers.next() : new HistogramQueryMetrics();
+    }
+}
@@ -0,0 +1,58 @@
+package com.egzosn.infrastructure.database.jdbc.metrics;
+
+/**
+ * 仓库操作类型，作为计时器的标签
+ */
+public enum QueryOperation {
+    /**
+     * 按主键查询
+     */
+    GET("get"),
+    /**
+     * 保存实体
+     */
+    SAVE("save"),
+    /**
+     * 批量保存实体
+     */
+    SAVE_ALL("saveAll"),
+    /**
+     * 更新
+     */
+    UPDATE("update"),
+    /**
+     * 查询实体集
+     */
+    QUERY("queryEntityList"),
+    /**
+     * 分页查询实体
+     */
+    PAGE("pageQueryEntity"),
+    /**
+     * 统计记录数
+     */
+    COUNT("count"),
+    /**
+     * 查询记录集
+     */
+    LIST("list"),
+    /**
+     * 查询单条记录
+     */
+    UNIQUE("uniqueResult");
+
+    private final String tagValue;
+
+    QueryOperation(String tagValue) {
+        this.tagValue = tagValue;
+    }
+
+    /**
+     * 获取标签值，与仓库的方法名一致
+     *
+     * @return 标签值
+     */
+    public String getTagValue() {
+        return tagValue;
+    }
+}
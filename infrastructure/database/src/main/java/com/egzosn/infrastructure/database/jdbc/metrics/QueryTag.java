@@ -0,0 +1,86 @@
+package com.egzosn.infrastructure.database.jdbc.metrics;
+
+/**
+ * 计时器的标签：实体、操作与sql指纹
+ */
+public final class QueryTag {
+
+    /**
+     * 计时器数量超出上限后合并使用的sql指纹
+     */
+    public static final String OTHER_FINGERPRINT = "<other>";
+
+    private final Class<?> entityClass;
+
+    private final QueryOperation operation;
+
+    private final String fingerprint;
+
+    private final int hash;
+
+    /**
+     * @param entityClass 实体类
+     * @param operation   操作
+     * @param fingerprint sql指纹 {@link SqlFingerprint}
+     */
+    public QueryTag(Class<?> entityClass, QueryOperation operation, String fingerprint) {
+        this.entityClass = entityClass;
+        this.operation = operation;
+        this.fingerprint = fingerprint;
+        this.hash = (31 * entityClass.hashCode() + operation.hashCode()) * 31 + fingerprint.hashCode();
+    }
+
+    /**
+     * 替换sql指纹
+     *
+     * @param fingerprint sql指纹
+     *
+     * @return 新的标签
+     */
+    public QueryTag withFingerprint(String fingerprint) {
+        return new QueryTag(entityClass, operation, fingerprint);
+    }
+
+    public Class<?> getEntityClass() {
+        return entityClass;
+    }
+
+    /**
+     * 获取实体名，实体类的简单类名
+     *
+     * @return 实体名
+     */
+    public String getEntityName() {
+        return entityClass.getSimpleName();
+    }
+
+    public QueryOperation getOperation() {
+        return operation;
+    }
+
+    public String getFingerprint() {
+        return fingerprint;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof QueryTag)) {
+            return false;
+        }
+        QueryTag other = (QueryTag) o;
+        return hash == other.hash && entityClass == other.entityClass && operation == other.operation && fingerprint.equals(other.fingerprint);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        return getEntityName() + "." + operation.getTagValue() + " " + fingerprint;
+    }
+}
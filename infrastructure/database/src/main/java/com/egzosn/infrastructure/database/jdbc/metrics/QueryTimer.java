@@ -0,0 +1,78 @@
+package com.egzosn.infrastructure.database.jdbc.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 一个标签的计时器：耗时直方图、返回或影响的行数与失败次数
+ */
+public class QueryTimer {
+
+    private final LatencyHistogram histogram = new LatencyHistogram();
+
+    private final LongAdder rows = new LongAdder();
+
+    private final LongAdder errors = new LongAdder();
+
+    /**
+     * 记录一次执行
+     *
+     * @param elapsedNanos 耗时，纳秒
+     * @param rows         返回或影响的行数
+     * @param success      是否成功
+     */
+    public void record(long elapsedNanos, long rows, boolean success) {
+        histogram.record(elapsedNanos);
+        this.rows.add(rows);
+        if (!success) {
+            errors.increment();
+        }
+    }
+
+    public LatencyHistogram getHistogram() {
+        return histogram;
+    }
+
+    /**
+     * 获取执行次数
+     *
+     * @return 执行次数
+     */
+    public long getCount() {
+        return histogram.getCount();
+    }
+
+    /**
+     * 获取返回或影响的总行数
+     *
+     * @return 总行数
+     */
+    public long getRows() {
+        return rows.sum();
+    }
+
+    /**
+     * 获取失败次数
+     *
+     * @return 失败次数
+     */
+    public long getErrors() {
+        return errors.sum();
+    }
+
+    /**
+     * 清空记录
+     */
+    public void reset() {
+        histogram.reset();
+        rows.reset();
+        errors.reset();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("count=%d errors=%d rows=%d mean=%.3fms p50=%.3fms p99=%.3fms max=%.3fms", getCount(), getErrors(), getRows(),
+                histogram.getMean() / TimeUnit.MILLISECONDS.toNanos(1), histogram.getValueAtPercentile(50, TimeUnit.MILLISECONDS),
+                histogram.getValueAtPercentile(99, TimeUnit.MILLISECONDS), (double) histogram.getMax() / TimeUnit.MILLISECONDS.toNanos(1));
+    }
+}
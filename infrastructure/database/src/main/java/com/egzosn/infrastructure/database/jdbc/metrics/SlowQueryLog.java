@@ -0,0 +1,124 @@
+package com.egzosn.infrastructure.database.jdbc.metrics;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Timestamp;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 慢查询日志，耗时达到阈值的操作以warn级别输出绑定参数后的sql与行数
+ * <p>
+ * 绑定参数的sql只用于阅读，字符串参数超过 {@link #MAX_PARAMETER_LENGTH} 时截断
+ */
+public class SlowQueryLog {
+    private static Logger logger = LoggerFactory.getLogger(SlowQueryLog.class);
+
+    /**
+     * 默认的阈值，毫秒
+     */
+    public static final long DEFAULT_THRESHOLD_MILLIS = 1000;
+
+    /**
+     * 字符串参数输出的最大长度
+     */
+    public static final int MAX_PARAMETER_LENGTH = 256;
+
+    private final long thresholdMillis;
+
+    private final long thresholdNanos;
+
+    public SlowQueryLog() {
+        this(DEFAULT_THRESHOLD_MILLIS);
+    }
+
+    /**
+     * @param thresholdMillis 阈值，毫秒，0为输出所有操作
+     */
+    public SlowQueryLog(long thresholdMillis) {
+        if (thresholdMillis < 0) {
+            throw new IllegalArgumentException("thresholdMillis must not be negative: " + thresholdMillis);
+        }
+        this.thresholdMillis = thresholdMillis;
+        this.thresholdNanos = TimeUnit.MILLISECONDS.toNanos(thresholdMillis);
+    }
+
+    /**
+     * 是否达到阈值
+     *
+     * @param elapsedNanos 耗时，纳秒
+     *
+     * @return 是否慢查询
+     */
+    public boolean isSlow(long elapsedNanos) {
+        return elapsedNanos >= thresholdNanos && logger.isWarnEnabled();
+    }
+
+    /**
+     * 输出慢查询
+     *
+     * @param tag          标签
+     * @param sql          sql
+     * @param params       参数，可为null
+     * @param elapsedNanos 耗时，纳秒
+     * @param rows         返回或影响的行数
+     * @param success      是否成功
+     */
+    public void log(QueryTag tag, String sql, Object[] params, long elapsedNanos, long rows, boolean success) {
+        logger.warn("slow query {}.{} {}ms rows={}{}: {}", tag.getEntityName(), tag.getOperation().getTagValue(),
+                TimeUnit.NANOSECONDS.toMillis(elapsedNanos), rows, success ? "" : " failed", toBoundSql(sql, params));
+    }
+
+    /**
+     * 将参数按顺序代入问号，字符串、注释与反引号中的问号不替换
+     *
+     * @param sql    问号形式的sql
+     * @param params 参数，为null时返回原sql
+     *
+     * @return 绑定参数后的sql
+     */
+    public static String toBoundSql(String sql, Object[] params) {
+        if (null == params || params.length == 0) {
+            return sql;
+        }
+        StringBuilder sb = new StringBuilder(sql.length() + params.length * 8);
+        int index = 0;
+        char quote = 0;
+        for (int i = 0; i < sql.length(); i++) {
+            char c = sql.charAt(i);
+            if (0 != quote) {
+                if (c == quote) {
+                    quote = 0;
+                }
+            } else if (c == '\'' || c == '"' || c == '`') {
+                quote = c;
+            } else if (c == '?' && index < params.length) {
+                appendLiteral(sb, params[index++]);
+                continue;
+            }
+            sb.append(c);
+        }
+        return sb.toString();
+    }
+
+    private static void appendLiteral(StringBuilder sb, Object value) {
+        if (null == value) {
+            sb.append("NULL");
+        } else if (value instanceof Number || value instanceof Boolean) {
+            sb.append(value);
+        } else if (value instanceof byte[]) {
+            sb.append("<").append(((byte[]) value).length).append(" bytes>");
+        } else {
+            String text = value instanceof Date ? new Timestamp(((Date) value).getTime()).toString() : value.toString();
+            if (text.length() > MAX_PARAMETER_LENGTH) {
+                text = text.substring(0, MAX_PARAMETER_LENGTH) + "...";
+            }
+            sb.append('\'').append(text.replace("'", "''")).append('\'');
+        }
+    }
+
+    public long getThresholdMillis() {
+        return thresholdMillis;
+    }
+}
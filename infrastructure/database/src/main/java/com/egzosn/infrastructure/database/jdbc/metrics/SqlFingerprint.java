@@ -0,0 +1,265 @@
+package com.egzosn.infrastructure.database.jdbc.metrics;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * sql指纹，同一结构的sql归为一类
+ * <p>
+ * 去掉注释，合并空白并转为小写，字符串与数字常量替换为问号，
+ * in列表与多行values合并为一个问号；计算结果按sql缓存
+ * <code>
+ *     select * from t where id in (1, 2, 3) and name = 'a'  =  select * from t where id in (?) and name = ?
+ * </code>
+ */
+public final class SqlFingerprint {
+
+    /**
+     * 最多缓存的指纹数量，超出后不再缓存
+     */
+    private static final int MAX_CACHE = 4096;
+
+    private static final ConcurrentMap<String, String> CACHE = new ConcurrentHashMap<>();
+
+    private SqlFingerprint() {
+    }
+
+    /**
+     * 获取sql指纹
+     *
+     * @param sql sql
+     *
+     * @return sql指纹
+     */
+    public static String of(String sql) {
+        String fingerprint = CACHE.get(sql);
+        if (null == fingerprint) {
+            fingerprint = normalize(sql);
+            if (CACHE.size() < MAX_CACHE) {
+                CACHE.putIfAbsent(sql, fingerprint);
+            }
+        }
+        return fingerprint;
+    }
+
+    /**
+     * 获取逻辑sql的指纹，from/join/into/update/table 之后以分表前缀开头的表名替换为逻辑表名，
+     * 同一操作在各张分表上的sql归为一类
+     * <code>
+     *     select * from log_201712 where id = 1  =  select * from $$log$$ where id = ?
+     * </code>
+     *
+     * @param sql         sql
+     * @param tablePrefix 分表前缀，为空时不替换
+     * @param logicalName 替换后的逻辑表名
+     *
+     * @return sql指纹
+     */
+    public static String of(String sql, String tablePrefix, String logicalName) {
+        String fingerprint = of(sql);
+        if (null == tablePrefix || tablePrefix.isEmpty()) {
+            return fingerprint;
+        }
+        return foldTables(fingerprint, tablePrefix.toLowerCase(), logicalName);
+    }
+
+    /**
+     * 替换指纹中的分表表名，指纹已转为小写，只有反引号内保留原样
+     *
+     * @param fingerprint sql指纹
+     * @param tablePrefix 小写的分表前缀
+     * @param logicalName 逻辑表名
+     *
+     * @return 替换后的指纹
+     */
+    private static String foldTables(String fingerprint, String tablePrefix, String logicalName) {
+        int length = fingerprint.length();
+        StringBuilder sb = null;
+        int copied = 0;
+        String previous = null;
+        int i = 0;
+        while (i < length) {
+            char c = fingerprint.charAt(i);
+            int start = i;
+            int end;
+            String word;
+            if (c == '`') {
+                end = fingerprint.indexOf('`', i + 1);
+                end = end < 0 ? length : end + 1;
+                word = fingerprint.substring(start + 1, Math.max(start + 1, end - 1)).toLowerCase();
+            } else if (Character.isLetter(c) || c == '_' || c == '$') {
+                end = i + 1;
+                while (end < length && isIdentifierChar(fingerprint.charAt(end))) {
+                    end++;
+                }
+                word = fingerprint.substring(start, end);
+            } else {
+                i++;
+                continue;
+            }
+            if (isTableKeyword(previous) && word.length() > tablePrefix.length() && word.startsWith(tablePrefix)) {
+                if (null == sb) {
+                    sb = new StringBuilder(length);
+                }
+                sb.append(fingerprint, copied, start).append(logicalName);
+                copied = end;
+            }
+            previous = word;
+            i = end;
+        }
+        return null == sb ? fingerprint : sb.append(fingerprint, copied, length).toString();
+    }
+
+    private static boolean isIdentifierChar(char c) {
+        return Character.isLetterOrDigit(c) || c == '_' || c == '$';
+    }
+
+    private static boolean isTableKeyword(String word) {
+        return "from".equals(word) || "join".equals(word) || "into".equals(word) || "update".equals(word) || "table".equals(word);
+    }
+
+    /**
+     * 计算sql指纹，不使用缓存
+     *
+     * @param sql sql
+     *
+     * @return sql指纹
+     */
+    public static String normalize(String sql) {
+        int length = sql.length();
+        StringBuilder sb = new StringBuilder(length);
+        boolean space = false;
+        for (int i = 0; i < length; i++) {
+            char c = sql.charAt(i);
+            if (c == '\'' || c == '"') {
+                i = skipQuoted(sql, i, c);
+                appendToken(sb, '?', space);
+                space = false;
+            } else if (c == '`') {
+                int end = sql.indexOf('`', i + 1);
+                end = end < 0 ? length - 1 : end;
+                if (space) {
+                    sb.append(' ');
+                    space = false;
+                }
+                sb.append(sql, i, end + 1);
+                i = end;
+            } else if (c == '/' && i + 1 < length && sql.charAt(i + 1) == '*') {
+                int end = sql.indexOf("*/", i + 2);
+                i = end < 0 ? length : end + 1;
+                space = sb.length() > 0;
+            } else if (c == '-' && i + 1 < length && sql.charAt(i + 1) == '-') {
+                int end = sql.indexOf('\n', i + 2);
+                i = end < 0 ? length : end;
+                space = sb.length() > 0;
+            } else if (Character.isWhitespace(c)) {
+                space = sb.length() > 0;
+            } else if (Character.isDigit(c) && (space || !isIdentifierPart(sb))) {
+                while (i + 1 < length && (Character.isDigit(sql.charAt(i + 1)) || sql.charAt(i + 1) == '.')) {
+                    i++;
+                }
+                appendToken(sb, '?', space);
+                space = false;
+            } else {
+                appendToken(sb, Character.toLowerCase(c), space);
+                space = false;
+            }
+        }
+        return collapse(collapse(sb, "?"), "(?)");
+    }
+
+    /**
+     * 逗号分隔的连续多个相同项合并为一项，如 <code>?, ?, ?</code> 合并为 <code>?</code>
+     * <p>
+     * 逐字符扫描，不使用带重复分组的正则，正则的重复分组按元素递归，上千个参数的in列表会栈溢出
+     *
+     * @param sql  sql
+     * @param item 项
+     *
+     * @return 合并后的sql
+     */
+    private static String collapse(CharSequence sql, String item) {
+        int length = sql.length();
+        StringBuilder sb = new StringBuilder(length);
+        int i = 0;
+        while (i < length) {
+            if (regionMatches(sql, i, item)) {
+                sb.append(item);
+                i += item.length();
+                for (;;) {
+                    int next = skipSpace(sql, i);
+                    if (next >= length || sql.charAt(next) != ',') {
+                        break;
+                    }
+                    next = skipSpace(sql, next + 1);
+                    if (!regionMatches(sql, next, item)) {
+                        break;
+                    }
+                    i = next + item.length();
+                }
+            } else {
+                sb.append(sql.charAt(i++));
+            }
+        }
+        return sb.toString();
+    }
+
+    private static int skipSpace(CharSequence sql, int i) {
+        while (i < sql.length() && Character.isWhitespace(sql.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    private static boolean regionMatches(CharSequence sql, int start, String item) {
+        if (sql.length() - start < item.length()) {
+            return false;
+        }
+        for (int i = 0; i < item.length(); i++) {
+            if (sql.charAt(start + i) != item.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void appendToken(StringBuilder sb, char c, boolean space) {
+        if (space) {
+            sb.append(' ');
+        }
+        sb.append(c);
+    }
+
+    /**
+     * 前一个字符是否标识符的一部分，如表名 order_201712 中的数字不是常量
+     */
+    private static boolean isIdentifierPart(StringBuilder sb) {
+        if (sb.length() == 0) {
+            return false;
+        }
+        char last = sb.charAt(sb.length() - 1);
+        return Character.isLetterOrDigit(last) || last == '_' || last == '$';
+    }
+
+    /**
+     * 跳过引号内的字符串，两个连续的引号或反斜杠转义的引号不结束字符串
+     *
+     * @return 结束引号的位置
+     */
+    private static int skipQuoted(String sql, int start, char quote) {
+        int length = sql.length();
+        for (int i = start + 1; i < length; i++) {
+            char c = sql.charAt(i);
+            if (c == '\\') {
+                i++;
+            } else if (c == quote) {
+                if (i + 1 < length && sql.charAt(i + 1) == quote) {
+                    i++;
+                } else {
+                    return i;
+                }
+            }
+        }
+        return length - 1;
+    }
+}
@@ -0,0 +1,13 @@
+package com.egzosn.infrastructure.database.splittable;
+
+import java.time.temporal.ChronoUnit;
+
+/**
+ * 按天分表，表名为 前缀 + yyyyMMdd
+ */
+public class DailyTableHandler extends DateTableHandler {
+
+    public DailyTableHandler() {
+        super("yyyyMMdd", ChronoUnit.DAYS);
+    }
+}
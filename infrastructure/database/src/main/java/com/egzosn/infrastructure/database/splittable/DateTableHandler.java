@@ -0,0 +1,127 @@
+package com.egzosn.infrastructure.database.splittable;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.TemporalAccessor;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * 按日期分表，表名为 前缀 + 格式化后的日期
+ * <p>
+ * 字段值支持 {@link Date}、{@link Calendar}、毫秒数、java.time 的日期时间以及 yyyy-MM-dd 开头的字符串
+ */
+public abstract class DateTableHandler implements RangeTableHandler<Object> {
+
+    /**
+     * 一次最多列出的分表数量，超出时不再列出
+     */
+    public static final int MAX_TABLES = 4096;
+
+    private final DateTimeFormatter formatter;
+
+    private final ChronoUnit unit;
+
+    /**
+     * @param pattern 日期格式
+     * @param unit    每张表的时间跨度，{@link ChronoUnit#DAYS} 或 {@link ChronoUnit#MONTHS}
+     */
+    protected DateTableHandler(String pattern, ChronoUnit unit) {
+        this.formatter = DateTimeFormatter.ofPattern(pattern);
+        this.unit = unit;
+    }
+
+    /**
+     * 获取分表表名的处理器
+     *
+     * @param prefix 分表的前缀
+     * @param field  字段名
+     * @param value  字段对应的值
+     *
+     * @return 分表表名
+     */
+    @Override
+    public String handler(String prefix, String field, Object value) {
+        if (null == value){
+            throw new NullPointerException("Field is null to name: " + field);
+        }
+        return prefix + formatter.format(toLocalDate(value));
+    }
+
+    /**
+     * 获取日期范围内的所有分表
+     *
+     * @param prefix 分表的前缀
+     * @param field  字段名
+     * @param from   起始日期(包含)，为null时不限
+     * @param to     结束日期(包含)，为null时不限
+     *
+     * @return 分表表名，任一端不限或超过 {@link #MAX_TABLES} 时返回null
+     */
+    @Override
+    public List<String> handler(String prefix, String field, Object from, Object to) {
+        if (null == from || null == to) {
+            return null;
+        }
+        LocalDate date = truncate(toLocalDate(from));
+        LocalDate end = toLocalDate(to);
+        List<String> tables = new ArrayList<>();
+        for (; !date.isAfter(end); date = date.plus(1, unit)) {
+            if (tables.size() == MAX_TABLES) {
+                return null;
+            }
+            tables.add(prefix + formatter.format(date));
+        }
+        return tables;
+    }
+
+    @Override
+    public boolean isOrdered() {
+        return true;
+    }
+
+    /**
+     * 截断到每张表的起始日期
+     *
+     * @param date 日期
+     * @return 表的起始日期
+     */
+    private LocalDate truncate(LocalDate date) {
+        return ChronoUnit.MONTHS == unit ? date.withDayOfMonth(1) : date;
+    }
+
+    /**
+     * 字段值转换为日期
+     *
+     * @param value 字段值
+     * @return 日期
+     */
+    protected LocalDate toLocalDate(Object value) {
+        if (value instanceof Date) {
+            return toLocalDate(((Date) value).getTime());
+        }
+        if (value instanceof Calendar) {
+            return toLocalDate(((Calendar) value).getTimeInMillis());
+        }
+        if (value instanceof Number) {
+            return toLocalDate(((Number) value).longValue());
+        }
+        if (value instanceof Instant) {
+            return ((Instant) value).atZone(ZoneId.systemDefault()).toLocalDate();
+        }
+        if (value instanceof TemporalAccessor) {
+            return LocalDate.from((TemporalAccessor) value);
+        }
+        String text = value.toString();
+        return LocalDate.parse(text.length() > 10 ? text.substring(0, 10) : text);
+    }
+
+    private LocalDate toLocalDate(long millis) {
+        return Instant.ofEpochMilli(millis).atZone(ZoneId.systemDefault()).toLocalDate();
+    }
+}
@@ -0,0 +1,106 @@
+package com.egzosn.infrastructure.database.splittable;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 按字段值取模分表，表名为 前缀 + 序号(0 ~ 分表数量-1)
+ * <p>
+ * 整数按数值取模，不论是 Long、Integer、BigInteger 还是没有小数部分的 BigDecimal，
+ * 相同的数值落在同一个分表；其他值按 {@link String#hashCode()} 取模；
+ * 分表数量不是 {@link #DEFAULT_SHARDS} 时继承并在无参构造方法中指定
+ * <code>
+ * public class Order8TableHandler extends HashModTableHandler {
+ *     public Order8TableHandler() { super(8); }
+ * }
+ * </code>
+ */
+public class HashModTableHandler implements RangeTableHandler<Object> {
+
+    /**
+     * 默认的分表数量
+     */
+    public static final int DEFAULT_SHARDS = 16;
+
+    private final int shards;
+
+    public HashModTableHandler() {
+        this(DEFAULT_SHARDS);
+    }
+
+    /**
+     * @param shards 分表数量
+     */
+    public HashModTableHandler(int shards) {
+        if (shards < 1) {
+            throw new IllegalArgumentException("shards must be positive: " + shards);
+        }
+        this.shards = shards;
+    }
+
+    /**
+     * 获取分表表名的处理器
+     *
+     * @param prefix 分表的前缀
+     * @param field  字段名
+     * @param value  字段对应的值
+     *
+     * @return 分表表名
+     */
+    @Override
+    public String handler(String prefix, String field, Object value) {
+        if (null == value){
+            throw new NullPointerException("Field is null to name: " + field);
+        }
+        return prefix + index(value);
+    }
+
+    /**
+     * 取模后值的顺序被打乱，任意范围都对应全部分表
+     *
+     * @param prefix 分表的前缀
+     * @param field  字段名
+     * @param from   起始值
+     * @param to     结束值
+     *
+     * @return 全部分表
+     */
+    @Override
+    public List<String> handler(String prefix, String field, Object from, Object to) {
+        List<String> tables = new ArrayList<>(shards);
+        for (int i = 0; i < shards; i++) {
+            tables.add(prefix + i);
+        }
+        return tables;
+    }
+
+    /**
+     * 字段值对应的分表序号
+     *
+     * @param value 字段值
+     * @return 分表序号
+     */
+    protected int index(Object value) {
+        if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            return (int) Math.floorMod(((Number) value).longValue(), (long) shards);
+        }
+        if (value instanceof BigInteger) {
+            return ((BigInteger) value).mod(BigInteger.valueOf(shards)).intValue();
+        }
+        if (value instanceof BigDecimal) {
+            try {
+                return index(((BigDecimal) value).toBigIntegerExact());
+            } catch (ArithmeticException e) {
+                //有小数部分，按字符串取模
+                return Math.floorMod(((BigDecimal) value).stripTrailingZeros().toPlainString().hashCode(), shards);
+            }
+        }
+        return Math.floorMod(value.toString().hashCode(), shards);
+    }
+
+    public int getShards() {
+        return shards;
+    }
+}
@@ -0,0 +1,13 @@
+package com.egzosn.infrastructure.database.splittable;
+
+import java.time.temporal.ChronoUnit;
+
+/**
+ * 按月分表，表名为 前缀 + yyyyMM
+ */
+public class MonthlyTableHandler extends DateTableHandler {
+
+    public MonthlyTableHandler() {
+        super("yyyyMM", ChronoUnit.MONTHS);
+    }
+}
@@ -0,0 +1,27 @@
+package com.egzosn.infrastructure.database.splittable;
+
+import java.util.List;
+
+/**
+ *  可列出值范围内分表的处理器，用于跨分表查询
+ */
+public interface RangeTableHandler<T> extends TableHandler<T> {
+
+    /**
+     *  获取值范围内的所有分表
+     * @param prefix             分表的前缀
+     * @param field              字段名
+     * @param from         起始值(包含)，为null时不限
+     * @param to           结束值(包含)，为null时不限
+     * @return 分表表名，按分表的先后顺序，无法列出时返回null
+     */
+    List<String> handler(String prefix, String field, T from, T to);
+
+    /**
+     *  表名是否与字段值的顺序一致, 一致时开区间的范围可以按表名比较裁剪
+     * @return 表名是否与字段值的顺序一致
+     */
+    default boolean isOrdered() {
+        return false;
+    }
+}
@@ -21,7 +21,8 @@ public @interface SplitTable {
     boolean prefix() default true;
 
     /**
-     *  获取表名称的处理器 默认字段值处理器
+     *  获取表名称的处理器 默认字段值处理器，
+     *  内置按月 {@link MonthlyTableHandler}、按天 {@link DailyTableHandler}、取模 {@link HashModTableHandler}
      * @return 获取表名称的处理器
      */
     Class handler() default FieldValueTableHandler.class;
@@ -27,7 +27,7 @@ public class FieldToMethod {
      * May return null if the property can't be read.
      * @throws NoSuchMethodException
      */
-    public static synchronized Method getReadMethod(Class clazz, Field field) throws NoSuchMethodException {
+    public static Method getReadMethod(Class clazz, Field field) throws NoSuchMethodException {
 
         String readMethod = null;
         Class type = field.getType();
@@ -49,7 +49,7 @@ public class FieldToMethod {
      * May return null if the property can't be written.
      * @throws NoSuchMethodException
      */
-    public static synchronized Method getWriteMethod(Class clazz, Field field) throws NoSuchMethodException {
+    public static Method getWriteMethod(Class clazz, Field field) throws NoSuchMethodException {
 
         Class type = field.getType();
         return clazz.getMethod( SET_PREFIX + capitalize(field.getName()), new Class[]{type});
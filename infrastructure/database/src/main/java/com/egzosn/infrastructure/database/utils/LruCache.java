@@ -0,0 +1,141 @@
+package com.egzosn.infrastructure.database.utils;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 有界的LRU缓存，超出容量时淘汰最久未访问的条目，并记录命中、未命中与淘汰次数
+ */
+public class LruCache<K, V> {
+
+    /**
+     * 最大容量
+     */
+    private final int capacity;
+
+    private final LinkedHashMap<K, V> map;
+
+    private final AtomicLong hitCount = new AtomicLong();
+
+    private final AtomicLong missCount = new AtomicLong();
+
+    private final AtomicLong evictionCount = new AtomicLong();
+
+    /**
+     * @param capacity 最大容量
+     */
+    public LruCache(final int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be positive: " + capacity);
+        }
+        this.capacity = capacity;
+        this.map = new LinkedHashMap<K, V>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+                if (size() > capacity) {
+                    evictionCount.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * 获取缓存值
+     *
+     * @param key 键
+     * @return 缓存值，不存在返回null
+     */
+    public V get(K key) {
+        V value;
+        synchronized (map) {
+            value = map.get(key);
+        }
+        if (null == value) {
+            missCount.incrementAndGet();
+        } else {
+            hitCount.incrementAndGet();
+        }
+        return value;
+    }
+
+    /**
+     * 放入缓存
+     *
+     * @param key   键
+     * @param value 值
+     * @return 原来的值
+     */
+    public V put(K key, V value) {
+        synchronized (map) {
+            return map.put(key, value);
+        }
+    }
+
+    /**
+     * 移除缓存
+     *
+     * @param key 键
+     * @return 原来的值
+     */
+    public V remove(K key) {
+        synchronized (map) {
+            return map.remove(key);
+        }
+    }
+
+    /**
+     * 清空缓存，统计数据保留
+     */
+    public void clear() {
+        synchronized (map) {
+            map.clear();
+        }
+    }
+
+    public int size() {
+        synchronized (map) {
+            return map.size();
+        }
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    public long getEvictionCount() {
+        return evictionCount.get();
+    }
+
+    /**
+     * 命中率
+     *
+     * @return 命中率，未访问过返回0
+     */
+    public double getHitRatio() {
+        long hits = hitCount.get();
+        long total = hits + missCount.get();
+        return 0 == total ? 0 : (double) hits / total;
+    }
+
+    @Override
+    public String toString() {
+        return "LruCache{" +
+                "size=" + size() +
+                ", capacity=" + capacity +
+                ", hitCount=" + hitCount +
+                ", missCount=" + missCount +
+                ", evictionCount=" + evictionCount +
+                '}';
+    }
+}
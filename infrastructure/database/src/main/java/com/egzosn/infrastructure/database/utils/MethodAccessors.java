@@ -0,0 +1,272 @@
+package com.egzosn.infrastructure.database.utils;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.BeanInstantiationException;
+import org.springframework.util.ClassUtils;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
+
+/**
+ * 通过 {@link LambdaMetafactory} 生成实体的构造与属性访问器，替代 {@link Method#invoke}
+ * <p>
+ * 实体类对当前类加载器不可见时（例如热部署的类加载器）退化为 {@link MethodHandle} 调用
+ */
+public final class MethodAccessors {
+
+    private static Logger logger = LoggerFactory.getLogger(MethodAccessors.class);
+
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+    private MethodAccessors() {
+    }
+
+    /**
+     * 获取实体的无参构造器
+     *
+     * @param clazz 实体类
+     * @param <T>   实体类型
+     * @return 构造器
+     */
+    public static <T> Supplier<T> instantiator(final Class<T> clazz) {
+        final MethodHandle constructor;
+        try {
+            constructor = LOOKUP.findConstructor(clazz, MethodType.methodType(void.class));
+        } catch (ReflectiveOperationException e) {
+            throw new BeanInstantiationException(clazz, "No accessible default constructor found", e);
+        }
+        if (isGeneratable(clazz)) {
+            try {
+                CallSite site = LambdaMetafactory.metafactory(LOOKUP, "get",
+                        MethodType.methodType(Supplier.class),
+                        MethodType.methodType(Object.class),
+                        constructor,
+                        MethodType.methodType(clazz));
+                return (Supplier<T>) site.getTarget().invoke();
+            } catch (Throwable e) {
+                logger.debug("LambdaMetafactory unavailable for {}, fallback to MethodHandle", clazz, e);
+            }
+        }
+        final MethodHandle handle = constructor.asType(MethodType.methodType(Object.class));
+        return new Supplier<T>() {
+            @Override
+            public T get() {
+                try {
+                    return (T) handle.invokeExact();
+                } catch (Throwable e) {
+                    throw new BeanInstantiationException(clazz, e.getMessage(), e);
+                }
+            }
+        };
+    }
+
+    /**
+     * 获取属性对应的可写访问器
+     *
+     * @param writeMethod 可写方法
+     * @return 可写访问器，参数依次为 实体，值
+     */
+    public static BiConsumer<Object, Object> writer(final Method writeMethod) {
+        final MethodHandle setter;
+        try {
+            setter = LOOKUP.unreflect(writeMethod);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException("Method is not accessible: " + writeMethod, e);
+        }
+        Class<?> declaringClass = writeMethod.getDeclaringClass();
+        if (isGeneratable(declaringClass)) {
+            try {
+                CallSite site = LambdaMetafactory.metafactory(LOOKUP, "accept",
+                        MethodType.methodType(BiConsumer.class),
+                        MethodType.methodType(void.class, Object.class, Object.class),
+                        setter,
+                        MethodType.methodType(void.class, declaringClass, ClassUtils.resolvePrimitiveIfNecessary(writeMethod.getParameterTypes()[0])));
+                return (BiConsumer<Object, Object>) site.getTarget().invoke();
+            } catch (Throwable e) {
+                logger.debug("LambdaMetafactory unavailable for {}, fallback to MethodHandle", writeMethod, e);
+            }
+        }
+        final MethodHandle handle = setter.asType(MethodType.methodType(void.class, Object.class, Object.class));
+        return new BiConsumer<Object, Object>() {
+            @Override
+            public void accept(Object target, Object value) {
+                try {
+                    handle.invokeExact(target, value);
+                } catch (RuntimeException e) {
+                    throw e;
+                } catch (Throwable e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        };
+    }
+
+    /**
+     * 获取属性对应的可读访问器，基本类型的返回值装箱
+     *
+     * @param readMethod 可读方法
+     * @return 可读访问器，参数为实体
+     */
+    public static Function<Object, Object> reader(final Method readMethod) {
+        final MethodHandle getter = unreflect(readMethod);
+        Function<Object, Object> reader = generate(Function.class, "apply", MethodType.methodType(Object.class, Object.class),
+                getter, MethodType.methodType(ClassUtils.resolvePrimitiveIfNecessary(readMethod.getReturnType()), readMethod.getDeclaringClass()));
+        if (null != reader) {
+            return reader;
+        }
+        final MethodHandle handle = getter.asType(MethodType.methodType(Object.class, Object.class));
+        return new Function<Object, Object>() {
+            @Override
+            public Object apply(Object target) {
+                try {
+                    return handle.invokeExact(target);
+                } catch (RuntimeException e) {
+                    throw e;
+                } catch (Throwable e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        };
+    }
+
+    /**
+     * 获取int属性对应的可读访问器，不装箱
+     *
+     * @param readMethod 返回int的可读方法
+     * @return 可读访问器，参数为实体
+     */
+    public static ToIntFunction<Object> intReader(final Method readMethod) {
+        final MethodHandle getter = unreflect(readMethod);
+        ToIntFunction<Object> reader = generate(ToIntFunction.class, "applyAsInt", MethodType.methodType(int.class, Object.class),
+                getter, MethodType.methodType(int.class, readMethod.getDeclaringClass()));
+        if (null != reader) {
+            return reader;
+        }
+        final MethodHandle handle = getter.asType(MethodType.methodType(int.class, Object.class));
+        return new ToIntFunction<Object>() {
+            @Override
+            public int applyAsInt(Object target) {
+                try {
+                    return (int) handle.invokeExact(target);
+                } catch (RuntimeException e) {
+                    throw e;
+                } catch (Throwable e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        };
+    }
+
+    /**
+     * 获取long属性对应的可读访问器，不装箱
+     *
+     * @param readMethod 返回long的可读方法
+     * @return 可读访问器，参数为实体
+     */
+    public static ToLongFunction<Object> longReader(final Method readMethod) {
+        final MethodHandle getter = unreflect(readMethod);
+        ToLongFunction<Object> reader = generate(ToLongFunction.class, "applyAsLong", MethodType.methodType(long.class, Object.class),
+                getter, MethodType.methodType(long.class, readMethod.getDeclaringClass()));
+        if (null != reader) {
+            return reader;
+        }
+        final MethodHandle handle = getter.asType(MethodType.methodType(long.class, Object.class));
+        return new ToLongFunction<Object>() {
+            @Override
+            public long applyAsLong(Object target) {
+                try {
+                    return (long) handle.invokeExact(target);
+                } catch (RuntimeException e) {
+                    throw e;
+                } catch (Throwable e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        };
+    }
+
+    /**
+     * 获取boolean属性对应的可读访问器，不装箱
+     *
+     * @param readMethod 返回boolean的可读方法
+     * @return 可读访问器，参数为实体
+     */
+    public static Predicate<Object> booleanReader(final Method readMethod) {
+        final MethodHandle getter = unreflect(readMethod);
+        Predicate<Object> reader = generate(Predicate.class, "test", MethodType.methodType(boolean.class, Object.class),
+                getter, MethodType.methodType(boolean.class, readMethod.getDeclaringClass()));
+        if (null != reader) {
+            return reader;
+        }
+        final MethodHandle handle = getter.asType(MethodType.methodType(boolean.class, Object.class));
+        return new Predicate<Object>() {
+            @Override
+            public boolean test(Object target) {
+                try {
+                    return (boolean) handle.invokeExact(target);
+                } catch (RuntimeException e) {
+                    throw e;
+                } catch (Throwable e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        };
+    }
+
+    /**
+     * 通过 {@link LambdaMetafactory} 生成函数式接口的实现
+     *
+     * @param functionalInterface 函数式接口
+     * @param methodName          接口方法名
+     * @param samMethodType       接口方法擦除后的类型
+     * @param implMethod          实现方法
+     * @param instantiatedType    接口方法实际的类型
+     * @param <F>                 函数式接口类型
+     * @return 实现，无法生成时返回null
+     */
+    private static <F> F generate(Class<? super F> functionalInterface, String methodName, MethodType samMethodType, MethodHandle implMethod, MethodType instantiatedType) {
+        if (!isGeneratable(instantiatedType.parameterType(0))) {
+            return null;
+        }
+        try {
+            CallSite site = LambdaMetafactory.metafactory(LOOKUP, methodName,
+                    MethodType.methodType(functionalInterface),
+                    samMethodType,
+                    implMethod,
+                    instantiatedType);
+            return (F) site.getTarget().invoke();
+        } catch (Throwable e) {
+            logger.debug("LambdaMetafactory unavailable for {}, fallback to MethodHandle", implMethod, e);
+            return null;
+        }
+    }
+
+    private static MethodHandle unreflect(Method method) {
+        try {
+            return LOOKUP.unreflect(method);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException("Method is not accessible: " + method, e);
+        }
+    }
+
+    /**
+     * 生成的访问器会定义在当前类的类加载器中，实体类必须对其可见
+     *
+     * @param clazz 实体类
+     * @return 是否可以生成访问器
+     */
+    private static boolean isGeneratable(Class<?> clazz) {
+        return ClassUtils.isVisible(clazz, MethodAccessors.class.getClassLoader());
+    }
+}
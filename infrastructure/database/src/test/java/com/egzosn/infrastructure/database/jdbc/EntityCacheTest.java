@@ -0,0 +1,68 @@
+package com.egzosn.infrastructure.database.jdbc;
+
+import com.egzosn.infrastructure.database.jdbc.annotations.Cache;
+import com.egzosn.infrastructure.database.jdbc.annotations.GeneratedValue;
+import com.egzosn.infrastructure.database.jdbc.annotations.Id;
+import com.egzosn.infrastructure.database.jdbc.annotations.Table;
+import com.egzosn.infrastructure.database.jdbc.id.GenerationType;
+import org.junit.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+
+/**
+ * 实体二级缓存
+ */
+public class EntityCacheTest {
+
+    @Table(name = "cached_merchant")
+    @Cache
+    public static class CachedMerchant {
+        @Id
+        @GeneratedValue(strategy = GenerationType.AUTO)
+        private Long id;
+        private String name;
+
+        public Long getId() {
+            return id;
+        }
+
+        public void setId(Long id) {
+            this.id = id;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+    }
+
+    public static class CachedMerchantRepository extends BaseJdbcRepository<CachedMerchant> {
+    }
+
+    private static CachedMerchantRepository repository(String database, String name) {
+        JdbcTemplate template = new JdbcTemplate(new DriverManagerDataSource("jdbc:h2:mem:" + database + ";MODE=MySQL;DB_CLOSE_DELAY=-1", "sa", ""));
+        template.execute("drop table if exists cached_merchant");
+        template.execute("create table cached_merchant (id bigint auto_increment primary key, name varchar(20))");
+        template.update("insert into cached_merchant(name) values(?)", name);
+        CachedMerchantRepository repository = new CachedMerchantRepository();
+        repository.setJdbcTemplate(template);
+        return repository;
+    }
+
+    @Test
+    public void repositoriesOnDifferentDataSourcesKeepSeparateCaches() {
+        CachedMerchantRepository first = repository("cache_first", "first");
+        CachedMerchantRepository second = repository("cache_second", "second");
+        assertNotSame(first.getEntityCache(), second.getEntityCache());
+        assertEquals("first", first.get(1L).getName());
+        assertEquals("second", second.get(1L).getName());
+        assertEquals("first", first.get(1L).getName());
+        assertEquals(1, first.getEntityCache().getHitCount());
+    }
+}
@@ -0,0 +1,95 @@
+package com.egzosn.infrastructure.database.jdbc;
+
+import com.egzosn.infrastructure.database.jdbc.annotations.GeneratedValue;
+import com.egzosn.infrastructure.database.jdbc.annotations.Id;
+import com.egzosn.infrastructure.database.jdbc.annotations.Table;
+import com.egzosn.infrastructure.database.jdbc.id.GenerationType;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * 预编译语句缓存
+ */
+public class PreparedStatementCacheTest {
+
+    @Table(name = "cache_order")
+    public static class CacheOrder {
+        @Id
+        @GeneratedValue(strategy = GenerationType.AUTO)
+        private Long id;
+        private String name;
+
+        public Long getId() {
+            return id;
+        }
+
+        public void setId(Long id) {
+            this.id = id;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+    }
+
+    public static class CacheOrderRepository extends BaseJdbcRepository<CacheOrder> {
+    }
+
+    private SingleConnectionDataSource dataSource;
+
+    private CacheOrderRepository repository;
+
+    private PreparedStatementCache cache;
+
+    @Before
+    public void setUp() {
+        dataSource = new SingleConnectionDataSource("jdbc:h2:mem:statement_cache;MODE=MySQL", "sa", "", true);
+        JdbcTemplate template = new JdbcTemplate(dataSource);
+        template.execute("create table cache_order (id bigint auto_increment primary key, name varchar(20))");
+        repository = new CacheOrderRepository();
+        repository.setJdbcTemplate(template);
+        cache = new PreparedStatementCache();
+        repository.setStatementCache(cache);
+    }
+
+    @After
+    public void tearDown() {
+        cache.clear();
+        dataSource.destroy();
+    }
+
+    private static List<CacheOrder> orders(int size) {
+        List<CacheOrder> orders = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            CacheOrder order = new CacheOrder();
+            order.setName("o" + i);
+            orders.add(order);
+        }
+        return orders;
+    }
+
+    @Test
+    public void batchesOnSameConnectionShareEntry() {
+        for (int i = 0; i < 5; i++) {
+            repository.saveAll(orders(3));
+        }
+        CacheOrder order = new CacheOrder();
+        order.setName("single");
+        repository.save(order);
+        assertEquals(1, cache.getConnectionCount());
+        assertEquals(1, cache.size());
+        assertEquals(5, cache.getHitCount());
+    }
+}
@@ -0,0 +1,171 @@
+package com.egzosn.infrastructure.database.jdbc;
+
+import com.egzosn.infrastructure.database.jdbc.annotations.GeneratedValue;
+import com.egzosn.infrastructure.database.jdbc.annotations.Id;
+import com.egzosn.infrastructure.database.jdbc.annotations.Table;
+import com.egzosn.infrastructure.database.jdbc.id.GenerationType;
+import com.egzosn.infrastructure.utils.common.Page;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.io.Serializable;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * 读写分离状态传递到线程池中执行的操作
+ * <p>
+ * 主库与从库是两个内存库，写入只落在主库，从库始终为空，模拟复制延迟：
+ * 读到数据说明走了主库
+ */
+public class ReplicaRouterTest {
+
+    @Table(name = "router_order")
+    public static class RouterOrder {
+        @Id
+        @GeneratedValue(strategy = GenerationType.AUTO)
+        private Long id;
+        private String name;
+
+        public Long getId() {
+            return id;
+        }
+
+        public void setId(Long id) {
+            this.id = id;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+    }
+
+    public static class RouterOrderRepository extends BaseJdbcRepository<RouterOrder> {
+
+        long countAll() {
+            return countSQL("select * from router_order");
+        }
+
+        Page<RouterOrder> concurrentPage() {
+            return pageQueryEntity(CountMode.CONCURRENT, "select * from router_order", 1, 10);
+        }
+
+        long scatterCountAll() {
+            return scatterCount(Arrays.asList("router_order", "router_order"), table -> "select * from " + table);
+        }
+
+        long streamCountAll() {
+            return stream("select * from router_order").count();
+        }
+    }
+
+    private JdbcTemplate primary;
+
+    private RouterOrderRepository repository;
+
+    private ReplicaRouter router;
+
+    private ExecutorService executor;
+
+    private static JdbcTemplate database(String name) {
+        JdbcTemplate template = new JdbcTemplate(new DriverManagerDataSource("jdbc:h2:mem:" + name + ";MODE=MySQL;DB_CLOSE_DELAY=-1", "sa", ""));
+        template.execute("drop table if exists router_order");
+        template.execute("create table router_order (id bigint auto_increment primary key, name varchar(20))");
+        return template;
+    }
+
+    @Before
+    public void setUp() {
+        primary = database("router_primary");
+        JdbcTemplate replica = database("router_replica");
+        repository = new RouterOrderRepository();
+        repository.setJdbcTemplate(primary);
+        router = new ReplicaRouter(Collections.singletonList(replica), 60000);
+        repository.setReplicaRouter(router);
+        executor = Executors.newSingleThreadExecutor();
+        ReplicaRouter.reset();
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+        ReplicaRouter.reset();
+    }
+
+    private Serializable save(String name) {
+        RouterOrder order = new RouterOrder();
+        order.setName(name);
+        return repository.save(order);
+    }
+
+    @Test
+    public void readsReplicaWithoutWrite() {
+        primary.update("insert into router_order(name) values('a')");
+        assertEquals(0, repository.countAll());
+        assertEquals(0, repository.scatterCountAll());
+    }
+
+    @Test
+    public void concurrentCountFollowsCallerWrite() {
+        save("a");
+        Page<RouterOrder> page = repository.concurrentPage();
+        assertEquals(1, page.getContent().size());
+        assertEquals(1, page.getTotal());
+    }
+
+    @Test
+    public void scatterFollowsCallerWrite() {
+        save("a");
+        assertEquals(2, repository.scatterCountAll());
+    }
+
+    @Test
+    public void parallelQueryByIdsFollowsCallerWrite() {
+        repository.setBatchParallelism(4);
+        Serializable id = save("a");
+        List<Serializable> ids = new ArrayList<>();
+        ids.add(id);
+        for (long i = 1000000; ids.size() <= SQLTools.MAX_IN_SIZE * 2; i++) {
+            ids.add(i);
+        }
+        assertEquals(1, repository.getAll(ids).size());
+    }
+
+    @Test
+    public void asyncWriteRoutesCallerReadsToPrimary() {
+        AsyncJdbcRepository<RouterOrder> async = new AsyncJdbcRepository<>(repository, executor);
+        async.supply(() -> save("a")).join();
+        assertEquals(1, repository.countAll());
+        //执行线程恢复原来的状态，不保留调用方的写入
+        ReplicaRouter.reset();
+        assertEquals(0, (long) async.supply(repository::countAll).join());
+    }
+
+    @Test
+    public void asyncReadFollowsCallerWriteAndPrimaryBlock() {
+        AsyncJdbcRepository<RouterOrder> async = new AsyncJdbcRepository<>(repository, executor);
+        primary.update("insert into router_order(name) values('a')");
+        assertEquals(1, (long) ReplicaRouter.primary(() -> async.supply(repository::countAll).join()));
+        assertEquals(0, (long) async.supply(repository::countAll).join());
+        save("b");
+        assertEquals(2, (long) async.supply(repository::countAll).join());
+    }
+
+    @Test
+    public void consumedStreamReleasesReplica() {
+        for (int i = 0; i < 3; i++) {
+            assertEquals(0, repository.streamCountAll());
+        }
+        assertEquals(0, router.getOutstanding()[0]);
+    }
+}
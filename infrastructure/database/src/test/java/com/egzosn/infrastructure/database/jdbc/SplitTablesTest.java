@@ -0,0 +1,93 @@
+package com.egzosn.infrastructure.database.jdbc;
+
+import com.egzosn.infrastructure.database.jdbc.annotations.GeneratedValue;
+import com.egzosn.infrastructure.database.jdbc.annotations.Id;
+import com.egzosn.infrastructure.database.jdbc.annotations.Table;
+import com.egzosn.infrastructure.database.jdbc.id.GenerationType;
+import com.egzosn.infrastructure.database.splittable.HashModTableHandler;
+import com.egzosn.infrastructure.database.splittable.SplitTable;
+import com.egzosn.infrastructure.params.Where;
+import com.egzosn.infrastructure.params.enums.Restriction;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * 按查询条件裁剪分表
+ */
+public class SplitTablesTest {
+
+    public static class Mod4TableHandler extends HashModTableHandler {
+        public Mod4TableHandler() {
+            super(4);
+        }
+    }
+
+    @Table(name = "account")
+    @SplitTable(field = "userId", handler = Mod4TableHandler.class)
+    public static class Account {
+        @Id
+        @GeneratedValue(strategy = GenerationType.AUTO)
+        private Long id;
+        private Long userId;
+
+        public Long getId() {
+            return id;
+        }
+
+        public void setId(Long id) {
+            this.id = id;
+        }
+
+        public Long getUserId() {
+            return userId;
+        }
+
+        public void setUserId(Long userId) {
+            this.userId = userId;
+        }
+    }
+
+    public static class AccountRepository extends BaseJdbcRepository<Account> {
+    }
+
+    private final AccountRepository repository = new AccountRepository();
+
+    private List<String> tables(Object value) {
+        return repository.getSplitTables(new Where("userId", value));
+    }
+
+    @Test
+    public void stringAndLongIdsShareTable() {
+        Account account = new Account();
+        account.setUserId(123L);
+        String table = repository.getEntityPersister().getTableName(account);
+        assertEquals(Collections.singletonList(table), tables(123L));
+        assertEquals(Collections.singletonList(table), tables("123"));
+        assertEquals(Collections.singletonList(table), tables(123));
+        assertEquals(Collections.singletonList(table), tables(BigInteger.valueOf(123)));
+        assertEquals(Collections.singletonList(table), tables(new BigDecimal("123")));
+    }
+
+    @Test
+    public void inValuesConverted() {
+        Where where = new Where();
+        where.and("userId", Arrays.<Object>asList("123", 123L, "4"), Restriction.IN);
+        assertEquals(Arrays.asList("account_3", "account_0"), repository.getSplitTables(where));
+    }
+
+    @Test
+    public void handlerNormalizesNumbers() {
+        Mod4TableHandler handler = new Mod4TableHandler();
+        String table = handler.handler("account_", "userId", 123L);
+        assertEquals(table, handler.handler("account_", "userId", BigInteger.valueOf(123)));
+        assertEquals(table, handler.handler("account_", "userId", new BigDecimal("123.00")));
+        assertEquals(handler.handler("account_", "userId", -5L), handler.handler("account_", "userId", BigInteger.valueOf(-5)));
+    }
+}
@@ -0,0 +1,49 @@
+package com.egzosn.infrastructure.database.jdbc.id;
+
+import com.egzosn.infrastructure.database.jdbc.EntityMetadataRegistry;
+import com.egzosn.infrastructure.database.jdbc.annotations.GeneratedValue;
+import com.egzosn.infrastructure.database.jdbc.annotations.Id;
+import com.egzosn.infrastructure.database.jdbc.annotations.Table;
+import org.junit.After;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * 主键生成器
+ */
+public class IdGeneratorsTest {
+
+    @Table(name = "snowflake_order")
+    public static class SnowflakeOrder {
+        @Id
+        @GeneratedValue(strategy = GenerationType.SNOWFLAKE)
+        private Long id;
+
+        public Long getId() {
+            return id;
+        }
+
+        public void setId(Long id) {
+            this.id = id;
+        }
+    }
+
+    @After
+    public void tearDown() {
+        IdGenerators.setWorkerId(Long.getLong(IdGenerators.WORKER_ID_PROPERTY, 0L));
+    }
+
+    private static long workerId(long id) {
+        return (id >>> 12) & SnowflakeIdGenerator.MAX_WORKER_ID;
+    }
+
+    @Test
+    public void workerIdChangedAfterEntityInitialization() {
+        IdGeneratedStrategy strategy = EntityMetadataRegistry.getPersister(SnowflakeOrder.class).getIdField().getStrategy();
+        IdGenerators.setWorkerId(7);
+        assertEquals(7, workerId(((LongKeyHolder) strategy.generation(null, 1)).get(0)));
+        IdGenerators.setWorkerId(9);
+        assertEquals(9, workerId(((LongKeyHolder) strategy.generation(null, 1)).get(0)));
+    }
+}
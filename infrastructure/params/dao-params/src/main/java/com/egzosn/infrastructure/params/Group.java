@@ -26,6 +26,10 @@ import java.util.List;
  */
 public class Group extends QueryParams {
     private List<String[]> groups = null;
+    /**
+     * 生成的sql，分组变化时重新生成
+     */
+    private String groupSQL = null;
 
     public Group() {
     }
@@ -68,6 +72,7 @@ public class Group extends QueryParams {
         if (key == null || "".equals(key)) return this;
 
         if (null == groups) groups = new ArrayList<String[]>();
+        groupSQL = null;
 
         groups.add(new String[]{key, prefix});
 
@@ -82,6 +87,7 @@ public class Group extends QueryParams {
     @Override
     public String toSQL() {
         if (null == groups || groups.isEmpty()) return "";
+        if (null != groupSQL) return groupSQL;
 
         StringBuilder sb = new StringBuilder();
         sb.append(" Group by ");
@@ -90,7 +96,8 @@ public class Group extends QueryParams {
             sb.append(String.format("%s%s, ", null == value[1] ? "" : (value[1] + '.'), value[0]));
         }
         sb.deleteCharAt(sb.length() - 2);
-        return sb.toString();
+        groupSQL = sb.toString();
+        return groupSQL;
     }
 
 
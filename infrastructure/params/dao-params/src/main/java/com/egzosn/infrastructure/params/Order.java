@@ -25,6 +25,10 @@ import java.util.Map;
  */
 public class Order extends QueryParams {
     private Map<String, String[]> orders = null;
+    /**
+     * 生成的sql，排序变化时重新生成
+     */
+    private String orderSQL = null;
 
     public enum OrderAD {
         ASC, DESC
@@ -81,6 +85,7 @@ public class Order extends QueryParams {
 
     protected Order add(String key, OrderAD value, String prefix) {
         if (null == orders) orders = new LinkedHashMap<>();
+        orderSQL = null;
 
         if (null == value) {
             orders.remove(key);
@@ -100,6 +105,7 @@ public class Order extends QueryParams {
     @Override
     public String toSQL() {
         if (null == orders || orders.isEmpty()) return "";
+        if (null != orderSQL) return orderSQL;
 
         StringBuilder sb = new StringBuilder();
         sb.append(" Order by ");
@@ -108,7 +114,8 @@ public class Order extends QueryParams {
             sb.append(String.format("%s%s %s, ", null == value[1] ? "" : (value[1] + '.'), key, value[0]));
         }
         sb.deleteCharAt(sb.length() - 2);
-        return sb.toString();
+        orderSQL = sb.toString();
+        return orderSQL;
     }
 
 
@@ -19,8 +19,6 @@ package com.egzosn.infrastructure.params;
 
 import java.util.List;
 import java.util.Map;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 /**
  * Created by egan on 2015/7/15.
@@ -187,34 +185,14 @@ public abstract class QueryParams implements Params {
     }
 
     /**
-     * @param whereSQL
-     * @param attrs
-     * @param values
-     * @return
+     * 命名参数sql转换为占位符sql，解析结果按sql缓存
+     * @param whereSQL 命名参数sql
+     * @param attrs 参数名对应的值
+     * @param values 按顺序添加的参数值
+     * @return 占位符sql
      */
     public static String toFormatSQL(String whereSQL, Map<String, Object> attrs, List<Object> values) {
-        Matcher matcher = Pattern.compile(":(\\w+)").matcher(whereSQL);
-        String rexp = null;
-        while (matcher.find()) {
-            String group = matcher.group(1);
-            Object ov = attrs.get(group);
-            if (ov instanceof List) {
-                StringBuilder sb = new StringBuilder();
-                List vs = (List) ov;
-                for (Object v : vs) {
-                    sb.append("?,");
-                    values.add(v);
-                }
-                sb.deleteCharAt(sb.length() - 1);
-                rexp = sb.toString();
-
-            } else {
-                values.add(ov);
-                rexp = "?";
-            }
-            whereSQL = whereSQL.replace(String.format(":%s", group), rexp);
-        }
-        return whereSQL;
+        return QueryTemplate.parse(whereSQL).bind(attrs, values);
     }
 
     @Override
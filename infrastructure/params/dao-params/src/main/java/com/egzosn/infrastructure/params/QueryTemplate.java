@@ -0,0 +1,286 @@
+/*
+ * Copyright 2002-2017 the original  egan.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.egzosn.infrastructure.params;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+/**
+ * 编译后的查询模板
+ * <p>
+ * 带命名参数(:name)的sql只解析一次，跳过字符串、反引号标识符、注释以及 <code>::</code> 类型转换，
+ * 拆分为片段与参数名并缓存，之后每次只需按参数名取值填充，集合参数展开为多个问号，
+ * 参数中没有集合时直接返回缓存的sql
+ */
+public final class QueryTemplate {
+
+    /**
+     * 最多缓存的模板数量，缓存满时清空后重新缓存
+     */
+    private static final int MAX_TEMPLATES = 2048;
+
+    /**
+     * 命名参数sql对应的模板
+     */
+    private static final ConcurrentMap<String, QueryTemplate> SQL_TEMPLATES = new ConcurrentHashMap<>();
+
+    /**
+     * 条件结构对应的模板
+     */
+    private static final ConcurrentMap<String, QueryTemplate> SHAPE_TEMPLATES = new ConcurrentHashMap<>();
+
+    /**
+     * 命名参数sql
+     */
+    private final String sql;
+
+    /**
+     * 参数之间的片段，比参数名多一个
+     */
+    private final String[] segments;
+
+    /**
+     * 参数名
+     */
+    private final String[] names;
+
+    /**
+     * 参数都不是集合时的sql
+     */
+    private final String formatSQL;
+
+    private QueryTemplate(String sql, String[] segments, String[] names) {
+        this.sql = sql;
+        this.segments = segments;
+        this.names = names;
+        StringBuilder sb = new StringBuilder(sql.length());
+        for (int i = 0; i < names.length; i++) {
+            sb.append(segments[i]).append('?');
+        }
+        this.formatSQL = sb.append(segments[names.length]).toString();
+    }
+
+    /**
+     * 获取命名参数sql对应的模板
+     *
+     * @param sql 命名参数sql
+     * @return 模板
+     */
+    public static QueryTemplate parse(String sql) {
+        QueryTemplate template = SQL_TEMPLATES.get(sql);
+        if (null != template) {
+            return template;
+        }
+        return cache(SQL_TEMPLATES, sql, compile(sql));
+    }
+
+    /**
+     * 获取条件结构对应的模板
+     *
+     * @param shape 条件结构，相同结构生成相同的sql
+     * @param sql   结构未缓存时生成命名参数sql
+     * @return 模板
+     */
+    public static QueryTemplate get(String shape, Supplier<String> sql) {
+        QueryTemplate template = SHAPE_TEMPLATES.get(shape);
+        if (null != template) {
+            return template;
+        }
+        return cache(SHAPE_TEMPLATES, shape, compile(sql.get()));
+    }
+
+    /**
+     * 缓存模板，读取不加锁；拼接了字面量的sql可能无限增长，缓存满时清空，常用模板随后重新缓存
+     *
+     * @param templates 缓存
+     * @param key       键
+     * @param template  模板
+     * @return 已缓存的模板
+     */
+    private static QueryTemplate cache(ConcurrentMap<String, QueryTemplate> templates, String key, QueryTemplate template) {
+        if (templates.size() >= MAX_TEMPLATES) {
+            templates.clear();
+        }
+        QueryTemplate existing = templates.putIfAbsent(key, template);
+        return null == existing ? template : existing;
+    }
+
+    /**
+     * 单次扫描拆分片段与参数名，参数名规则与 <code>:(\w+)</code> 一致
+     *
+     * @param sql 命名参数sql
+     * @return 模板
+     */
+    private static QueryTemplate compile(String sql) {
+        List<String> segments = new ArrayList<>();
+        List<String> names = new ArrayList<>();
+        int length = sql.length();
+        int start = 0;
+        int i = 0;
+        while (i < length) {
+            char c = sql.charAt(i);
+            switch (c) {
+                case '\'':
+                case '"':
+                case '`':
+                    i = skipQuoted(sql, i, c);
+                    continue;
+                case '-':
+                    if (i + 1 < length && sql.charAt(i + 1) == '-') {
+                        i = skipTo(sql, i + 2, "\n");
+                        continue;
+                    }
+                    break;
+                case '#':
+                    i = skipTo(sql, i + 1, "\n");
+                    continue;
+                case '/':
+                    if (i + 1 < length && sql.charAt(i + 1) == '*') {
+                        i = skipTo(sql, i + 2, "*/");
+                        continue;
+                    }
+                    break;
+                case ':':
+                    if (i + 1 < length && sql.charAt(i + 1) == ':') {
+                        //类型转换 ::int
+                        i += 2;
+                        continue;
+                    }
+                    int end = i + 1;
+                    while (end < length && isWordChar(sql.charAt(end))) {
+                        end++;
+                    }
+                    if (end > i + 1) {
+                        segments.add(sql.substring(start, i));
+                        names.add(sql.substring(i + 1, end));
+                        start = i = end;
+                        continue;
+                    }
+                    break;
+                default:
+            }
+            i++;
+        }
+        segments.add(sql.substring(start));
+        return new QueryTemplate(sql, segments.toArray(new String[segments.size()]), names.toArray(new String[names.size()]));
+    }
+
+    /**
+     * 跳过引号内的内容，连续两个引号或反斜杠视为转义
+     *
+     * @param sql   sql
+     * @param i     起始引号的位置
+     * @param quote 引号
+     * @return 结束引号之后的位置
+     */
+    private static int skipQuoted(String sql, int i, char quote) {
+        int length = sql.length();
+        i++;
+        while (i < length) {
+            char c = sql.charAt(i);
+            if (c == '\\' && quote != '`') {
+                i += 2;
+                continue;
+            }
+            if (c == quote) {
+                if (i + 1 < length && sql.charAt(i + 1) == quote) {
+                    i += 2;
+                    continue;
+                }
+                return i + 1;
+            }
+            i++;
+        }
+        return length;
+    }
+
+    private static int skipTo(String sql, int from, String end) {
+        int index = sql.indexOf(end, from);
+        return -1 == index ? sql.length() : index + end.length();
+    }
+
+    private static boolean isWordChar(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '_';
+    }
+
+    /**
+     * 按参数名取值填充，集合参数展开为多个?
+     *
+     * @param attrs  参数名对应的值
+     * @param values 按顺序添加的参数值
+     * @return 占位符sql
+     */
+    public String bind(Map<String, Object> attrs, List<Object> values) {
+        boolean expand = false;
+        for (String name : names) {
+            if (attrs.get(name) instanceof Collection) {
+                expand = true;
+                break;
+            }
+        }
+        if (!expand) {
+            for (String name : names) {
+                values.add(attrs.get(name));
+            }
+            return formatSQL;
+        }
+        StringBuilder sb = new StringBuilder(formatSQL.length() + 16);
+        for (int i = 0; i < names.length; i++) {
+            sb.append(segments[i]);
+            Object value = attrs.get(names[i]);
+            if (value instanceof Collection) {
+                boolean first = true;
+                for (Object v : (Collection) value) {
+                    sb.append(first ? "?" : ",?");
+                    values.add(v);
+                    first = false;
+                }
+            } else {
+                sb.append('?');
+                values.add(value);
+            }
+        }
+        return sb.append(segments[names.length]).toString();
+    }
+
+    public String getSql() {
+        return sql;
+    }
+
+    public String[] getNames() {
+        return names.clone();
+    }
+
+    /**
+     * 参数都不是集合时的占位符sql
+     *
+     * @return 占位符sql
+     */
+    public String getFormatSQL() {
+        return formatSQL;
+    }
+
+    @Override
+    public String toString() {
+        return sql;
+    }
+}
@@ -143,6 +143,51 @@ public class Where extends QueryParams {
 
     public String toSQL() {
         if (wheres.isEmpty()) return "";
+        QueryTemplate template = template();
+        if (null != first) setAttrs(first, wheres.get(first));
+
+        for (String key : wheres.keySet()) {
+            if (key.equals(first)) continue;
+
+            setAttrs(key, wheres.get(key));
+        }
+
+        return template.getSql();
+    }
+
+    /**
+     * 获取条件结构对应的模板，相同结构的条件共用一个模板
+     * @return 模板
+     */
+    protected QueryTemplate template() {
+        return QueryTemplate.get(shape(), this::buildSQL);
+    }
+
+    /**
+     * 条件结构：按生成顺序的 前缀、字段、and/or、条件类型
+     * 每次生成时重新计算，getWheres 返回的条件被外部修改后同样生效
+     * @return 条件结构
+     */
+    protected String shape() {
+        StringBuilder sb = new StringBuilder();
+        if (null != first) appendShape(first, wheres.get(first), sb);
+        for (Map.Entry<String, Object[]> entry : wheres.entrySet()) {
+            if (entry.getKey().equals(first)) continue;
+            appendShape(entry.getKey(), entry.getValue(), sb);
+        }
+        return sb.toString();
+    }
+
+    private void appendShape(String key, Object[] objects, StringBuilder sb) {
+        sb.append(null == objects[3] ? "" : objects[3]).append('.').append(key).append(' ')
+                .append(((AndOr) objects[1]).ordinal()).append(' ').append(((Restriction) objects[2]).ordinal()).append(';');
+    }
+
+    /**
+     * 生成命名参数sql
+     * @return 命名参数sql
+     */
+    private String buildSQL() {
         StringBuilder sb = new StringBuilder();
         if (null != first) setSql(first, wheres.get(first), sb);
 
@@ -166,7 +211,6 @@ public class Where extends QueryParams {
             case LLK:
             case RLK:
                 sb.append(andOr.toMatchString(prefix + key, " like :" + key));
-                attrs.put(key, restriction.toMatchString(objects[0].toString()));
                 break;
             case NUL:
             case NNUL:
@@ -174,19 +218,38 @@ public class Where extends QueryParams {
                 break;
             case BW:
                 sb.append(andOr.toMatchString(prefix , restriction.toMatchString(key)));
+                break;
+            default:
+                sb.append(andOr.toMatchString(prefix + key, restriction.toMatchString(key)));
+        }
+    }
+
+    private void setAttrs(String key, Object[] objects) {
+        Restriction restriction = (Restriction) objects[2];
+        switch (restriction) {
+            case LK:
+            case LLK:
+            case RLK:
+                attrs.put(key, restriction.toMatchString(objects[0].toString()));
+                break;
+            case NUL:
+            case NNUL:
+                break;
+            case BW:
                 Object[] value = (Object[]) objects[0];
                 attrs.put(String.format("%s1", key), value[0]);
                 attrs.put(String.format("%s2", key), value[1]);
                 break;
             default:
-                sb.append(andOr.toMatchString(prefix + key, restriction.toMatchString(key)));
                 attrs.put(key, objects[0]);
         }
     }
 
     @Override
     public String toFormatSQL() {
-        return toFormatSQL(toSQL(), attrs, paras);
+        if (wheres.isEmpty()) return "";
+        toSQL();
+        return template().bind(attrs, paras);
     }
 
 
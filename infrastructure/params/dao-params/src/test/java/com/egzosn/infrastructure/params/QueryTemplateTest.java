@@ -0,0 +1,128 @@
+/*
+ * Copyright 2002-2017 the original  egan.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.egzosn.infrastructure.params;
+
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+/**
+ * 命名参数sql解析
+ */
+public class QueryTemplateTest {
+
+    private static String format(String sql, Map<String, Object> attrs, List<Object> values) {
+        return QueryParams.toFormatSQL(sql, attrs, values);
+    }
+
+    private static Map<String, Object> attrs(Object... pairs) {
+        Map<String, Object> attrs = new HashMap<>();
+        for (int i = 0; i < pairs.length; i += 2) {
+            attrs.put((String) pairs[i], pairs[i + 1]);
+        }
+        return attrs;
+    }
+
+    @Test
+    public void bindsInOrder() {
+        List<Object> values = new ArrayList<>();
+        String sql = format("select * from t where a = :a and b = :b and c = :a", attrs("a", 1, "b", "x"), values);
+        assertEquals("select * from t where a = ? and b = ? and c = ?", sql);
+        assertEquals(Arrays.<Object>asList(1, "x", 1), values);
+    }
+
+    @Test
+    public void prefixNameDoesNotCorruptLongerName() {
+        List<Object> values = new ArrayList<>();
+        String sql = format("where a = :a and ab = :ab", attrs("a", 1, "ab", 2), values);
+        assertEquals("where a = ? and ab = ?", sql);
+        assertEquals(Arrays.<Object>asList(1, 2), values);
+        assertArrayEquals(new String[]{"a", "ab"}, QueryTemplate.parse("where a = :a and ab = :ab").getNames());
+    }
+
+    @Test
+    public void skipsQuotedText() {
+        List<Object> values = new ArrayList<>();
+        String sql = format("select ':a', \"x:b\", `c:d`, 'it''s :e', 'x\\':f' from t where id = :id", attrs("id", 7), values);
+        assertEquals("select ':a', \"x:b\", `c:d`, 'it''s :e', 'x\\':f' from t where id = ?", sql);
+        assertEquals(Collections.<Object>singletonList(7), values);
+    }
+
+    @Test
+    public void skipsTypeCast() {
+        List<Object> values = new ArrayList<>();
+        String sql = format("select created::date from t where id = :id::int", attrs("id", 7), values);
+        assertEquals("select created::date from t where id = ?::int", sql);
+        assertEquals(Collections.<Object>singletonList(7), values);
+    }
+
+    @Test
+    public void skipsComments() {
+        List<Object> values = new ArrayList<>();
+        String sql = format("select * from t -- :a\n# :b\nwhere /* :c */ id = :id", attrs("id", 7), values);
+        assertEquals("select * from t -- :a\n# :b\nwhere /* :c */ id = ?", sql);
+        assertEquals(Collections.<Object>singletonList(7), values);
+        assertArrayEquals(new String[]{"id"}, QueryTemplate.parse("select * from t -- :a\n# :b\nwhere /* :c */ id = :id").getNames());
+    }
+
+    @Test
+    public void unterminatedCommentRunsToEnd() {
+        List<Object> values = new ArrayList<>();
+        assertEquals("where id = ? -- :a", format("where id = :id -- :a", attrs("id", 7), values));
+        assertEquals("where id = ? /* :a", format("where id = :id /* :a", attrs("id", 7), values));
+    }
+
+    @Test
+    public void expandsCollections() {
+        List<Object> values = new ArrayList<>();
+        Set<Object> ids = new LinkedHashSet<Object>(Arrays.asList(1, 2, 3));
+        String sql = format("where id in (:ids) and s = :s", attrs("ids", ids, "s", 0), values);
+        assertEquals("where id in (?,?,?) and s = ?", sql);
+        assertEquals(Arrays.<Object>asList(1, 2, 3, 0), values);
+
+        values.clear();
+        sql = format("where id in (:ids)", attrs("ids", Arrays.asList(4, 5)), values);
+        assertEquals("where id in (?,?)", sql);
+        assertEquals(Arrays.<Object>asList(4, 5), values);
+    }
+
+    @Test
+    public void cachesParsedTemplate() {
+        assertSame(QueryTemplate.parse("where x = :x"), QueryTemplate.parse("where x = :x"));
+        assertEquals("where x = ?", QueryTemplate.parse("where x = :x").getFormatSQL());
+    }
+
+    @Test
+    public void colonWithoutNameIsText() {
+        List<Object> values = new ArrayList<>();
+        assertEquals("set @a := ?", format("set @a := :a", attrs("a", 1), values));
+        assertEquals("where t = '10:00' and x = ?:", format("where t = '10:00' and x = :x:", attrs("x", 1), values));
+    }
+
+    @Test
+    public void shapeFollowsWheresChangedThroughGetter() {
+        Where where = new Where("a", 1).and("b", 2);
+        String both = where.toSQL();
+        where.getWheres().remove("b");
+        assertEquals(new Where("a", 1).toSQL(), where.toSQL());
+        assertEquals(both, new Where("a", 1).and("b", 2).toSQL());
+    }
+}
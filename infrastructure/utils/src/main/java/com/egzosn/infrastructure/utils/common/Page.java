@@ -11,6 +11,28 @@ import java.util.List;
  */
 public class Page<T> {
 
+	/**
+	 * 总记录数的来源
+	 */
+	public enum TotalType {
+		/**
+		 * 精确统计
+		 */
+		EXACT,
+		/**
+		 * 取自缓存，可能与当前数据有偏差
+		 */
+		CACHED,
+		/**
+		 * 根据已读取的记录估算，为总记录数的下限
+		 */
+		ESTIMATED,
+		/**
+		 * 未统计
+		 */
+		NONE
+	}
+
 	private int page = 1; //  当前页
 	
 	private int rows = 10; // 每页记录数
@@ -22,6 +44,12 @@ public class Page<T> {
 	private long total = 0; // 所有记录数
 	
 	private List<T> content; // 当前页内容
+
+	private String nextToken; // 键集分页的续页标识，null表示没有下一页
+
+	private boolean hasNext = false; // 是否有下一页
+
+	private TotalType totalType = TotalType.EXACT; // 总记录数的来源
 	
 	/**
 	 * 获取当前页
@@ -99,6 +127,54 @@ public class Page<T> {
 		this.content = content;
 	}
 
+	/**
+	 * 获取键集分页的续页标识
+	 * @return 续页标识，null表示没有下一页
+	 */
+	public String getNextToken() {
+		return nextToken;
+	}
+
+	/**
+	 * 设置键集分页的续页标识
+	 * @param nextToken 续页标识
+	 */
+	public void setNextToken(String nextToken) {
+		this.nextToken = nextToken;
+	}
+
+	/**
+	 * 是否有下一页
+	 * @return 是否有下一页
+	 */
+	public boolean isHasNext() {
+		return hasNext;
+	}
+
+	/**
+	 * 设置是否有下一页
+	 * @param hasNext 是否有下一页
+	 */
+	public void setHasNext(boolean hasNext) {
+		this.hasNext = hasNext;
+	}
+
+	/**
+	 * 获取总记录数的来源
+	 * @return 总记录数的来源
+	 */
+	public TotalType getTotalType() {
+		return totalType;
+	}
+
+	/**
+	 * 设置总记录数的来源
+	 * @param totalType 总记录数的来源
+	 */
+	public void setTotalType(TotalType totalType) {
+		this.totalType = totalType;
+	}
+
 	public void setCount(){
 		if (total >  0) {
 			this.count = (int)  Math.ceil((float)total / rows );
@@ -135,6 +211,7 @@ public class Page<T> {
 		this.rows = rows;
 		this.total = total;
 		this.content = content;
+		this.hasNext = (long) page * rows < total;
 		setCount();
 		setPages();
 	}